@@ -12,6 +12,9 @@ import java.lang.reflect.Method;
 import java.text.DateFormat;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Debug is a utility class that wraps println statements and allows more or less command line
@@ -28,6 +31,9 @@ import java.util.Date;
  * You might redirect info, action, error and debug messages to your own logger object<br>
  * Start with setLogger() and then define with setLoggerXyz() the redirection targets
  * <p>
+ * With Settings.LogAsync the messages are formatted by the caller and written by a background
+ * thread (see flush()), so logging threads do not wait for each other's output
+ * <p>
  * This solution is NOT threadsafe !!!
  */
 public class Debug {
@@ -40,8 +46,8 @@ public class Debug {
   private String _title = null;
   private static PrintStream printout = null;
   private static PrintStream printoutuser = null;
-  private static final DateFormat df =
-      DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM);
+  private static final ThreadLocal<DateFormat> df = ThreadLocal.withInitial(() ->
+      DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM));
   public static String logfile;
 
   private static Object privateLogger = null;
@@ -455,6 +461,7 @@ public class Debug {
       }
       try {
         logfile = fileName;
+        flush();
         if (printout != null) {
           printout.close();
         }
@@ -497,6 +504,7 @@ public class Debug {
         fileName = FileManager.slashify(System.getProperty("user.dir"), true) + "UserLog.txt";
       }
       try {
+        flush();
         if (printoutuser != null) {
           printoutuser.close();
         }
@@ -710,7 +718,7 @@ public class Debug {
       if (Settings.UserLogTime) {
 //TODO replace the hack -99 to filter user logs
         log(-99, String.format("%s (%s)",
-            Settings.UserLogPrefix, df.format(new Date())), message, args);
+            Settings.UserLogPrefix, df.get().format(new Date())), message, args);
       } else {
         log(-99, String.format("%s", Settings.UserLogPrefix), message, args);
       }
@@ -768,51 +776,230 @@ public class Debug {
     return out;
   }
 
-  private static synchronized String log(int level, String prefix, String message, Object... args) {
+  private static String log(int level, String prefix, String message, Object... args) {
 //TODO replace the hack -99 to filter user logs
-    if (beQuiet) {
+    if (beQuiet || level > DEBUG_LEVEL) {
       return "";
     }
-    String sout = "";
+    String sout;
     String stime = "";
-    if (level <= DEBUG_LEVEL) {
-      if (Settings.LogTime && level != -99) {
-        stime = String.format(" (%s)", df.format(new Date()));
+    if (Settings.LogTime && level != -99) {
+      stime = String.format(" (%s)", df.get().format(new Date()));
+    }
+    if (!prefix.isEmpty()) {
+      prefix = "[" + prefix + stime + "] ";
+    }
+    if (args != null && args.length > 0) {
+      sout = String.format(message, args);
+    } else {
+      sout = message;
+    }
+    if (Settings.LogAsync && Thread.currentThread() != logWriter) {
+      logAsync(level, prefix, sout);
+    } else {
+      if (logRing != null && !logRing.isEmpty() && Thread.currentThread() != logWriter) {
+        flush();
       }
-      if (!prefix.isEmpty()) {
-        prefix = "[" + prefix + stime + "] ";
+      synchronized (Debug.class) {
+        write(level, prefix, sout);
       }
-      if (args != null && args.length > 0) {
-        sout = String.format(message, args);
+    }
+    return prefix + sout;
+  }
+
+  private static void write(int level, String prefix, String sout) {
+    boolean isRedirected = false;
+    if (level > -99) {
+      isRedirected = doRedirect(CallbackType.DEBUG, prefix, sout);
+    } else if (level == -99) {
+      isRedirected = doRedirect(CallbackType.USER, prefix, sout);
+    }
+    if (!isRedirected) {
+      if (level == -99 && printoutuser != null) {
+        printoutuser.print(prefix + sout);
+        printoutuser.println();
+      } else if (printout != null) {
+        printout.print(prefix + sout);
+        printout.println();
       } else {
-        sout = message;
+        if (!beQuiet) {
+          System.out.print(prefix + sout);
+          System.out.println();
+        }
       }
-      boolean isRedirected = false;
-      if (level > -99) {
-        isRedirected = doRedirect(CallbackType.DEBUG, prefix, sout);
-      } else if (level == -99) {
-        isRedirected = doRedirect(CallbackType.USER, prefix, sout);
+      if (level == -1 || level == -100 || level > 2) {
+        out(prefix + sout);
       }
-      if (!isRedirected) {
-        if (level == -99 && printoutuser != null) {
-          printoutuser.print(prefix + sout);
-          printoutuser.println();
-        } else if (printout != null) {
-          printout.print(prefix + sout);
-          printout.println();
-        } else {
-          if (!beQuiet) {
-            System.out.print(prefix + sout);
-            System.out.println();
-          }
+    }
+  }
+
+  //<editor-fold desc="async logging">
+  private static class LogEntry {
+    final int level;
+    final String prefix;
+    final String message;
+
+    LogEntry(int level, String prefix, String message) {
+      this.level = level;
+      this.prefix = prefix;
+      this.message = message;
+    }
+  }
+
+  /**
+   * bounded ring buffer: many threads offer, only the writer thread polls
+   */
+  private static class LogRing {
+    private final AtomicReferenceArray<LogEntry> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;
+
+    LogRing(int size) {
+      int capacity = Integer.highestOneBit(Math.max(16, size) - 1) << 1;
+      slots = new AtomicReferenceArray<>(capacity);
+      mask = capacity - 1;
+    }
+
+    boolean offer(LogEntry entry) {
+      while (true) {
+        long next = tail.get();
+        if (next - head >= slots.length()) {
+          return false;
         }
-        if (level == -1 || level == -100 || level > 2) {
-          out(prefix + sout);
+        if (tail.compareAndSet(next, next + 1)) {
+          slots.lazySet((int) (next & mask), entry);
+          return true;
         }
       }
     }
-    return prefix + sout;
+
+    LogEntry poll() {
+      long current = head;
+      int index = (int) (current & mask);
+      LogEntry entry = slots.get(index);
+      if (entry == null) {
+        return null;
+      }
+      slots.lazySet(index, null);
+      head = current + 1;
+      return entry;
+    }
+
+    boolean isEmpty() {
+      return head == tail.get();
+    }
+  }
+
+  private static volatile LogRing logRing = null;
+  private static volatile Thread logWriter = null;
+  private static volatile boolean logWriterWaiting = false;
+  private static final AtomicLong logDropped = new AtomicLong();
+  private static long logDroppedReported = 0;
+
+  private static void logAsync(int level, String prefix, String sout) {
+    LogRing ring = logRing;
+    if (ring == null) {
+      ring = startLogWriter();
+    }
+    LogEntry entry = new LogEntry(level, prefix, sout);
+    boolean shouldWait = Settings.LogAsyncBlock || level == -1 || level == -99 || level == -100;
+    while (!ring.offer(entry)) {
+      if (!shouldWait) {
+        logDropped.incrementAndGet();
+        return;
+      }
+      LockSupport.unpark(logWriter);
+      LockSupport.parkNanos(100000);
+    }
+    if (logWriterWaiting) {
+      LockSupport.unpark(logWriter);
+    }
+  }
+
+  private static synchronized LogRing startLogWriter() {
+    if (logRing == null) {
+      LogRing ring = new LogRing(Settings.LogAsyncBufferSize);
+      Thread writer = new Thread(() -> runLogWriter(ring), "SikuliX-LogWriter");
+      writer.setDaemon(true);
+      logWriter = writer;
+      logRing = ring;
+      writer.start();
+    }
+    return logRing;
+  }
+
+  private static void runLogWriter(LogRing ring) {
+    while (true) {
+      LogEntry entry = ring.poll();
+      if (entry == null) {
+        synchronized (Debug.class) {
+          reportDropped();
+          flushStreams();
+        }
+        logWriterWaiting = true;
+        if (ring.isEmpty()) {
+          LockSupport.parkNanos(50000000);
+        }
+        logWriterWaiting = false;
+        continue;
+      }
+      synchronized (Debug.class) {
+        do {
+          try {
+            write(entry.level, entry.prefix, entry.message);
+          } catch (Exception ex) {
+            System.out.println("[error] Debug: async log writer: " + ex.getMessage());
+          }
+        } while ((entry = ring.poll()) != null);
+      }
+    }
+  }
+
+  private static void reportDropped() {
+    long dropped = logDropped.get();
+    if (dropped > logDroppedReported) {
+      write(-1, "[" + errorPrefix + "] ", String.format("Debug: async log buffer full: %d messages dropped",
+          dropped - logDroppedReported));
+      logDroppedReported = dropped;
+    }
+  }
+
+  private static void flushStreams() {
+    if (printout != null) {
+      printout.flush();
+    }
+    if (printoutuser != null) {
+      printoutuser.flush();
+    }
+  }
+
+  /**
+   * @return number of messages dropped so far, because the async log buffer was full
+   */
+  public static long getLogDropped() {
+    return logDropped.get();
+  }
+
+  /**
+   * waits until all pending async log messages are written (at most 2 seconds)
+   */
+  public static void flush() {
+    LogRing ring = logRing;
+    if (ring == null || Thread.currentThread() == logWriter) {
+      return;
+    }
+    long end = System.currentTimeMillis() + 2000;
+    while (!ring.isEmpty() && System.currentTimeMillis() < end) {
+      LockSupport.unpark(logWriter);
+      LockSupport.parkNanos(1000000);
+    }
+    synchronized (Debug.class) {
+      reportDropped();
+      flushStreams();
+    }
   }
+  //</editor-fold>
 
   /**
    * Sikuli profiling messages<br> switch on/off: Settings.ProfileLogs, default off
@@ -37,6 +37,8 @@ public class Settings {
   public static float AutoWaitTimeout = 3f; // in seconds
   public static float WaitScanRate = 3f; // frames per second
   public static float ObserveScanRate = 3f; // frames per second
+  public static boolean WaitChangeGated = false; // wait: search again only if the pixels changed (image search)
+  public static float WaitScanIdleMax = 1f; // wait: max seconds between scans while nothing changes
   public static int ObserveMinChangedPixels = 50; // in pixels
   public static int RepeatWaitTime = 1; // wait 1 second for visual to vanish after action
   public static double MinSimilarity = 0.7;
@@ -44,8 +46,113 @@ public class Settings {
   public static int DefaultPadding = 50;
   public static boolean AutoDetectKeyboardLayout = true;  
 
+  /**
+   * Linux: window queries (App) use xdotool processes instead of the own connection to the X server
+   */
+  public static boolean LinuxUseXdotool = false;
+
+  /**
+   * SikulixServer: number of scripts run at the same time
+   * (more than 1 only for scripts, that do not compete for screen, mouse and keyboard)<br>
+   * scripts only run concurrently, if their runner supports it (Jython: JythonPoolSize &gt; 0) -
+   * otherwise the started tasks wait for each other in the runner (one script at a time) and more workers do not help
+   */
+  public static int ServerWorkers = 1;
+  /**
+   * SikulixServer: the scripts of the same group run one after the other
+   */
+  public static boolean ServerGroupSerial = true;
+  /**
+   * SikulixServer: number of ended tasks kept for the tasks list (the oldest are dropped)
+   */
+  public static int ServerTasksKept = 1000;
+  /**
+   * RunServer (legacy socket protocol): number of threads processing the requests
+   * (the requests of one connection are always processed in order)
+   */
+  public static int RunServerWorkers = 1;
+  /**
+   * RunServer (legacy socket protocol): max number of open connections (more are refused with fail:)
+   */
+  public static int RunServerConnections = 100;
+
+  /**
+   * Jython: number of pre-warmed interpreters, each with its own sys (modules, path, argv),
+   * in which scripts are run concurrently (0: all scripts run one at a time in the one shared interpreter - to be set before the first run)<br>
+   * concurrent scripts share the screen, mouse and keyboard and the image path (their folders are added while they run)
+   */
+  public static int JythonPoolSize = 0;
+  /**
+   * Jython: a pooled interpreter is replaced by a fresh one after this number of runs
+   */
+  public static int JythonPoolRecycle = 20;
+  /**
+   * Jython: scripts and imported .sikuli bundles are run from bytecode cached by content (see JythonSupport)
+   */
+  public static boolean JythonCompileCache = true;
+
+  /**
+   * msec: a screen capture is served from a recent capture of the same area (or one that is running),
+   * if that is not older (0: always capture, see CaptureService)
+   */
+  public static int CaptureShareTime = 0;
+  /**
+   * number of recent captures kept for sharing (only with CaptureShareTime &gt; 0)
+   */
+  public static int CaptureFrames = 4;
+
   public static boolean CheckLastSeen = true;
   public static float CheckLastSeenSimilar = 0.95f;
+  /**
+   * number of places per image, where it was found before and is looked for first (best ranked first)
+   */
+  public static int CheckLastSeenHotspots = 3;
+  /**
+   * with each find of an image the rank of its known places is multiplied by this factor
+   */
+  public static float CheckLastSeenDecay = 0.8f;
+  /**
+   * the lastSeen info of images is kept across runs (see ImageFacts)
+   */
+  public static boolean PersistLastSeen = false;
+
+  /**
+   * true = search in a downsized version of the image first (coarse-to-fine)
+   * and refine the candidates in the original (default: false)<br>
+   * a match is only accepted after verification in the original,
+   * otherwise the standard search in the original is done
+   * (can be overwritten per Pattern: Pattern.downsized(boolean))<br>
+   * all places near the top score in the downsized image are verified and the best is taken -
+   * with more than a few such places the search is done in the original
+   */
+  public static boolean SearchDownsized = false;
+
+  /**
+   * number of threads used for parallel searches (findAny, waitAny, ...)
+   * (0 = number of processors, only evaluated at first use)
+   */
+  public static int FindThreads = 0;
+
+  /**
+   * search large images in overlapping strips in parallel (one strip per available worker)
+   */
+  public static boolean FindTiled = false;
+
+  /**
+   * number of workers used with FindTiled
+   * (0 = number of processors, only evaluated at first use)
+   */
+  public static int FindTiledParallelism = 0;
+
+  /**
+   * FindTiled is only used, if the image to search in has at least this number of pixels
+   */
+  public static int FindTiledMinPixels = 1000000;
+
+  /**
+   * findAll with an image (not a Pattern): stop, when the score drops more than usual from one match to the next
+   */
+  public static boolean FindAllScoreGap = true;
 
   public static org.sikuli.script.ImageCallback ImageCallback = null;
 
@@ -90,6 +197,15 @@ public class Settings {
   public static boolean ClickTypeHack = false;
 
   public static String BundlePath = null;
+  /**
+   * ImagePath.find uses a per path entry index of the available image files
+   * (folder listings, jar entries, http results) instead of asking each location every time
+   */
+  public static boolean ImagePathIndex = true;
+  /**
+   * seconds after which an image not found at an http path entry is asked for again
+   */
+  public static int ImagePathHttpRecheck = 60;
   public static boolean OverwriteImages = false;
 
   public static final String OcrLanguageDefault = "eng";
@@ -97,6 +213,17 @@ public class Settings {
   public static String OcrDataPath = null;
   public static boolean OcrTextSearch = true;
   public static boolean OcrTextRead = true;
+
+  /**
+   * max number of Tesseract engines kept for parallel OCR (each holds its traineddata in memory)
+   */
+  public static int OcrEngines = 4;
+
+  /**
+   * number of recently read images, whose OCR result (lines and words) is kept for reuse (0 = no caching)
+   */
+  public static int OcrCacheSize = 10;
+
   public static boolean SwitchToText = false;
 
   public static boolean TRUE = true;
@@ -136,6 +263,19 @@ public class Settings {
   public static boolean ProfileLogs = false;
   public static boolean TraceLogs = false;
   public static boolean LogTime = false;
+  /**
+   * log messages are handed to a background writer (Debug.flush() waits until written)
+   */
+  public static boolean LogAsync = false;
+  /**
+   * number of log messages the async log buffer can hold (rounded up to a power of 2)
+   */
+  public static int LogAsyncBufferSize = 8192;
+  /**
+   * async log buffer full: true - the caller waits, false - debug messages are dropped
+   * (errors and user messages always wait)
+   */
+  public static boolean LogAsyncBlock = false;
 
   public static boolean UserLogs = true;
   public static String UserLogPrefix = "user";
@@ -13,9 +13,12 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
 
 import org.sikuli.basics.Debug;
+import org.sikuli.basics.Settings;
 import org.sikuli.support.runner.ProcessRunner;
 import org.sikuli.support.runner.IRunner;
 
@@ -30,6 +33,14 @@ public class LinuxUtil extends GenericOsUtil {
 
 		@Override
 		public OsProcess getProcess() {
+			X11Windows x11 = x11();
+			if (x11 != null) {
+				long pid = x11.getPid(id);
+				if (pid < 0) {
+					return null;
+				}
+				return ProcessHandle.of(pid).map((h) -> (OsProcess) new GenericOsProcess(h)).orElse(null);
+			}
 			try {
 				List<String> lines = xdotool(new String[] { "getwindowpid", Long.toString(id) });
 
@@ -48,6 +59,10 @@ public class LinuxUtil extends GenericOsUtil {
 
 		@Override
 		public String getTitle() {
+			X11Windows x11 = x11();
+			if (x11 != null) {
+				return x11.getTitle(id);
+			}
 			try {
 				List<String> lines = xdotool(new String[] { "getwindowname", Long.toString(id) });
 				return lines.stream().findFirst().orElse("");
@@ -58,6 +73,10 @@ public class LinuxUtil extends GenericOsUtil {
 
 		@Override
 		public Rectangle getBounds() {
+			X11Windows x11 = x11();
+			if (x11 != null) {
+				return x11.getBounds(id);
+			}
 			try {
 				List<String> lines = xdotool(new String[] { "getwindowgeometry", "--shell", Long.toString(id) });
 
@@ -112,10 +131,24 @@ public class LinuxUtil extends GenericOsUtil {
 		}
 	}
 
-	private static boolean xdotoolAvailable = true;
+	private static Boolean xdotoolAvailable = null;
 	private static ProcessRunner xdotoolRunner = new ProcessRunner();
 
-	static {
+	/**
+	 * the window queries go to the X server directly (see X11Windows)<br>
+	 * xdotool is only used for focus() and if that is not possible or Settings.LinuxUseXdotool is set
+	 *
+	 * @return the X server connection or null
+	 */
+	private static X11Windows x11() {
+		if (Settings.LinuxUseXdotool) {
+			return null;
+		}
+		return X11Windows.get();
+	}
+
+	private static void checkXdotool() {
+		xdotoolAvailable = true;
 		try {
 			xdotool(new String[] { "-v" });
 		} catch (Exception e) {
@@ -134,6 +167,9 @@ public class LinuxUtil extends GenericOsUtil {
 	};
 
 	private static synchronized List<String> xdotool(String[] args) {
+		if (xdotoolAvailable == null) {
+			checkXdotool();
+		}
 		if (xdotoolAvailable) {
 			ByteArrayOutputStream out = new ByteArrayOutputStream();
 			ByteArrayOutputStream err = new ByteArrayOutputStream();
@@ -154,6 +190,24 @@ public class LinuxUtil extends GenericOsUtil {
 
 	@Override
 	public List<OsWindow> findWindows(String title) {
+		X11Windows x11 = x11();
+		// client list not readable (e.g. window manager restarting): asking xdotool
+		List<Long> clients = x11 == null ? null : x11.getClients();
+		if (clients != null) {
+			Pattern pattern;
+			try {
+				pattern = Pattern.compile(title, Pattern.CASE_INSENSITIVE);
+			} catch (PatternSyntaxException e) {
+				pattern = Pattern.compile(Pattern.quote(title), Pattern.CASE_INSENSITIVE);
+			}
+			List<OsWindow> windows = new ArrayList<>();
+			for (long id : clients) {
+				if (x11.isViewable(id) && pattern.matcher(x11.getTitle(id)).find()) {
+					windows.add(new LinuxWindow(id));
+				}
+			}
+			return windows;
+		}
 		try {
 			List<String> lines = xdotool(new String[] { "search", "--onlyvisible", "--name", title });
 			return lines.stream().map((l) -> new LinuxWindow(Long.parseLong(l))).collect(Collectors.toList());
@@ -164,6 +218,17 @@ public class LinuxUtil extends GenericOsUtil {
 
 	@Override
 	public List<OsWindow> getWindows(OsProcess process) {
+		X11Windows x11 = x11();
+		List<Long> clients = x11 == null ? null : x11.getClients();
+		if (clients != null) {
+			List<OsWindow> windows = new ArrayList<>();
+			for (long id : clients) {
+				if (x11.isViewable(id) && x11.getPid(id) == process.getPid()) {
+					windows.add(new LinuxWindow(id));
+				}
+			}
+			return windows;
+		}
 		try {
 			List<String> lines = xdotool(
 					new String[] { "search", "--onlyvisible", "--pid", Long.toString(process.getPid()) });
@@ -175,6 +240,11 @@ public class LinuxUtil extends GenericOsUtil {
 
 	@Override
 	public OsWindow getFocusedWindow() {
+		X11Windows x11 = x11();
+		if (x11 != null) {
+			long id = x11.getActive();
+			return id == 0 ? null : new LinuxWindow(id);
+		}
 		try {
 			List<String> lines = xdotool(new String[] { "getactivewindow" });
 
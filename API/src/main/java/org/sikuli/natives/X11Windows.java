@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2010-2021, sikuli.org, sikulix.com - MIT license
+ */
+package org.sikuli.natives;
+
+import java.awt.Rectangle;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sikuli.basics.Debug;
+
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.platform.unix.X11;
+import com.sun.jna.platform.unix.X11.Atom;
+import com.sun.jna.platform.unix.X11.AtomByReference;
+import com.sun.jna.platform.unix.X11.Display;
+import com.sun.jna.platform.unix.X11.Window;
+import com.sun.jna.platform.unix.X11.WindowByReference;
+import com.sun.jna.platform.unix.X11.XErrorEvent;
+import com.sun.jna.platform.unix.X11.XErrorHandler;
+import com.sun.jna.platform.unix.X11.XEvent;
+import com.sun.jna.platform.unix.X11.XWindowAttributes;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.NativeLongByReference;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * INTERNAL USE: window queries for LinuxUtil through an own connection to the X server (Xlib via JNA)<br>
+ * - the windows are the clients of the window manager (EWMH: _NET_CLIENT_LIST, _NET_ACTIVE_WINDOW)<br>
+ * - title, pid, bounds and visibility of a window are cached, until the X server reports a change
+ * (PropertyNotify, ConfigureNotify, Map/UnmapNotify, DestroyNotify)<br>
+ * - pending events are applied before each query and every 100 msec by a daemon thread<br>
+ * - not available (get() returns null): no DISPLAY, no libX11 or a window manager without EWMH<br>
+ * LIMITATION: the client window is reparented into the frame of the window manager,
+ * so moving the frame only changes the client's position relative to the root.
+ * The cached bounds rely on the synthetic ConfigureNotify that ICCCM (4.1.5) asks the window manager to send then -
+ * with a window manager not doing this, getBounds() might report the position before the move
+ * (Settings.LinuxUseXdotool switches back to xdotool).<br>
+ * tested by X11WindowsTest (needs an X server with an EWMH window manager, e.g. Xvfb with a light-weight one)
+ */
+class X11Windows {
+
+	private static String me = "X11Windows: ";
+	private static int lvl = 3;
+
+	private static void log(int level, String message, Object... args) {
+		if (Debug.is(level)) {
+			Debug.logx(level, me + message, args);
+		}
+	}
+
+	private static final long PROPERTY_MAX = 4096;
+	private static final long EVENT_POLL = 100;
+	private static final long PID_UNKNOWN = -2;
+
+	private static X11Windows instance = null;
+	private static boolean checked = false;
+
+	private static XErrorHandler errorHandler = null;
+	private static XErrorHandler previousHandler = null;
+
+	private final X11 x11 = X11.INSTANCE;
+	private final Display display;
+	private final Window root;
+	private final Atom atomClientList;
+	private final Atom atomActiveWindow;
+	private final Atom atomName;
+	private final Atom atomPid;
+	private final Atom atomUtf8;
+
+	private List<Long> clients = null;
+	private long active = -1;
+	private final Map<Long, Info> infos = new HashMap<>();
+	private int errors = 0;
+
+	private static class Info {
+		String title = null;
+		long pid = PID_UNKNOWN;
+		Rectangle bounds = null;
+		Boolean viewable = null;
+	}
+
+	//<editor-fold desc="01 connection">
+	/**
+	 * @return the connection (opened at first use) or null if not available
+	 */
+	static synchronized X11Windows get() {
+		if (!checked) {
+			checked = true;
+			String displayName = System.getenv("DISPLAY");
+			if (displayName == null || displayName.isEmpty()) {
+				log(lvl, "no DISPLAY - not available");
+				return null;
+			}
+			try {
+				Display display = X11.INSTANCE.XOpenDisplay(null);
+				if (display == null) {
+					log(-1, "cannot connect to X server %s - window queries use xdotool", displayName);
+					return null;
+				}
+				X11Windows windows = new X11Windows(display);
+				if (windows.getClients() == null) {
+					log(-1, "window manager does not support _NET_CLIENT_LIST - window queries use xdotool");
+					X11.INSTANCE.XCloseDisplay(display);
+					return null;
+				}
+				windows.startEvents();
+				instance = windows;
+				log(lvl, "connected to X server %s", displayName);
+			} catch (Throwable e) {
+				log(-1, "not available (%s) - window queries use xdotool", e.getMessage());
+			}
+		}
+		return instance;
+	}
+
+	private X11Windows(Display display) {
+		this.display = display;
+		setErrorHandler();
+		root = x11.XDefaultRootWindow(display);
+		atomClientList = x11.XInternAtom(display, "_NET_CLIENT_LIST", false);
+		atomActiveWindow = x11.XInternAtom(display, "_NET_ACTIVE_WINDOW", false);
+		atomName = x11.XInternAtom(display, "_NET_WM_NAME", false);
+		atomPid = x11.XInternAtom(display, "_NET_WM_PID", false);
+		atomUtf8 = x11.XInternAtom(display, "UTF8_STRING", false);
+		x11.XSelectInput(display, root, new NativeLong(X11.PropertyChangeMask));
+		x11.XFlush(display);
+	}
+
+	/**
+	 * a window might vanish between two requests (BadWindow): the default Xlib handler would end the JVM<br>
+	 * errors of other connections (e.g. the one of AWT) go to the handler that was there before
+	 */
+	private void setErrorHandler() {
+		if (errorHandler != null) {
+			return;
+		}
+		errorHandler = new XErrorHandler() {
+			@Override
+			public int apply(Display errorDisplay, XErrorEvent errorEvent) {
+				if (display.equals(errorDisplay)) {
+					errors++;
+					log(lvl + 1, "X error %d (request %d) for window %d", errorEvent.error_code & 0xff,
+							errorEvent.request_code & 0xff, errorEvent.resourceid.longValue());
+					return 0;
+				}
+				if (previousHandler != null) {
+					return previousHandler.apply(errorDisplay, errorEvent);
+				}
+				return 0;
+			}
+		};
+		previousHandler = x11.XSetErrorHandler(errorHandler);
+	}
+
+	private void startEvents() {
+		Thread thread = new Thread(() -> {
+			while (true) {
+				try {
+					Thread.sleep(EVENT_POLL);
+				} catch (InterruptedException e) {
+					return;
+				}
+				synchronized (this) {
+					processEvents();
+				}
+			}
+		}, "SikuliX-X11Events");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	//</editor-fold>
+
+	//<editor-fold desc="02 events">
+	private final XEvent event = new XEvent();
+
+	private void processEvents() {
+		while (x11.XPending(display) > 0) {
+			x11.XNextEvent(display, event);
+			switch (event.type) {
+			case X11.PropertyNotify:
+				X11.XPropertyEvent property = (X11.XPropertyEvent) event.readField("xproperty");
+				propertyChanged(property.window.longValue(), property.atom);
+				break;
+			case X11.ConfigureNotify:
+				X11.XConfigureEvent configure = (X11.XConfigureEvent) event.readField("xconfigure");
+				Info configured = infos.get(configure.window.longValue());
+				if (configured != null) {
+					configured.bounds = null;
+				}
+				break;
+			case X11.MapNotify:
+			case X11.UnmapNotify:
+				Info mapped = infos.get(((X11.XAnyEvent) event.readField("xany")).window.longValue());
+				if (mapped != null) {
+					mapped.viewable = null;
+					mapped.bounds = null;
+				}
+				break;
+			case X11.DestroyNotify:
+				X11.XDestroyWindowEvent destroyed = (X11.XDestroyWindowEvent) event.readField("xdestroywindow");
+				infos.remove(destroyed.window.longValue());
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	private void propertyChanged(long window, Atom atom) {
+		if (window == root.longValue()) {
+			if (atomClientList.equals(atom)) {
+				clients = null;
+			} else if (atomActiveWindow.equals(atom)) {
+				active = -1;
+			}
+			return;
+		}
+		Info info = infos.get(window);
+		if (info == null) {
+			return;
+		}
+		if (atomName.equals(atom) || X11.XA_WM_NAME.equals(atom)) {
+			info.title = null;
+		} else if (atomPid.equals(atom)) {
+			info.pid = PID_UNKNOWN;
+		}
+	}
+	//</editor-fold>
+
+	//<editor-fold desc="03 queries">
+	/**
+	 * @return the windows managed by the window manager (null: not known)
+	 */
+	synchronized List<Long> getClients() {
+		processEvents();
+		if (clients == null) {
+			long[] ids = getWindowProperty(root, atomClientList);
+			if (ids == null) {
+				return null;
+			}
+			List<Long> newClients = new ArrayList<>(ids.length);
+			for (long id : ids) {
+				newClients.add(id);
+				if (!infos.containsKey(id)) {
+					infos.put(id, new Info());
+					x11.XSelectInput(display, new Window(id),
+							new NativeLong(X11.PropertyChangeMask | X11.StructureNotifyMask));
+				}
+			}
+			infos.keySet().retainAll(newClients);
+			x11.XFlush(display);
+			clients = newClients;
+		}
+		return new ArrayList<>(clients);
+	}
+
+	/**
+	 * @return the active window (0: none)
+	 */
+	synchronized long getActive() {
+		processEvents();
+		if (active < 0) {
+			long[] ids = getWindowProperty(root, atomActiveWindow);
+			active = ids == null || ids.length == 0 ? 0 : ids[0];
+		}
+		return active;
+	}
+
+	synchronized String getTitle(long id) {
+		processEvents();
+		Info info = infos.get(id);
+		if (info != null && info.title != null) {
+			return info.title;
+		}
+		Window window = new Window(id);
+		String title = getStringProperty(window, atomName, atomUtf8, StandardCharsets.UTF_8);
+		if (title == null) {
+			title = getStringProperty(window, X11.XA_WM_NAME, new Atom(X11.AnyPropertyType),
+					StandardCharsets.ISO_8859_1);
+		}
+		if (title == null) {
+			title = "";
+		}
+		if (info != null) {
+			info.title = title;
+		}
+		return title;
+	}
+
+	/**
+	 * @return the process id (-1: not known)
+	 */
+	synchronized long getPid(long id) {
+		processEvents();
+		Info info = infos.get(id);
+		if (info != null && info.pid != PID_UNKNOWN) {
+			return info.pid;
+		}
+		long[] values = getProperty(new Window(id), atomPid, X11.XA_CARDINAL);
+		long pid = values == null || values.length == 0 ? -1 : values[0];
+		if (info != null) {
+			info.pid = pid;
+		}
+		return pid;
+	}
+
+	/**
+	 * @return the window's area in screen coordinates (null: window not known)
+	 */
+	synchronized Rectangle getBounds(long id) {
+		processEvents();
+		Info info = infos.get(id);
+		if (info != null && info.bounds != null) {
+			return new Rectangle(info.bounds);
+		}
+		Window window = new Window(id);
+		XWindowAttributes attributes = new XWindowAttributes();
+		int errorsBefore = errors;
+		x11.XGetWindowAttributes(display, window, attributes);
+		IntByReference x = new IntByReference();
+		IntByReference y = new IntByReference();
+		x11.XTranslateCoordinates(display, window, root, 0, 0, x, y, new WindowByReference());
+		if (errors != errorsBefore) {
+			return null;
+		}
+		Rectangle bounds = new Rectangle(x.getValue(), y.getValue(), attributes.width, attributes.height);
+		if (info != null) {
+			info.bounds = bounds;
+			info.viewable = attributes.map_state == X11.IsViewable;
+		}
+		return new Rectangle(bounds);
+	}
+
+	synchronized boolean isViewable(long id) {
+		processEvents();
+		Info info = infos.get(id);
+		if (info != null && info.viewable != null) {
+			return info.viewable;
+		}
+		XWindowAttributes attributes = new XWindowAttributes();
+		int errorsBefore = errors;
+		x11.XGetWindowAttributes(display, new Window(id), attributes);
+		if (errors != errorsBefore) {
+			return false;
+		}
+		boolean viewable = attributes.map_state == X11.IsViewable;
+		if (info != null) {
+			info.viewable = viewable;
+		}
+		return viewable;
+	}
+	//</editor-fold>
+
+	//<editor-fold desc="04 properties">
+	private long[] getWindowProperty(Window window, Atom property) {
+		return getProperty(window, property, X11.XA_WINDOW);
+	}
+
+	private long[] getProperty(Window window, Atom property, Atom type) {
+		NativeLongByReference items = new NativeLongByReference();
+		Pointer data = readProperty(window, property, type, items);
+		if (data == null) {
+			return null;
+		}
+		try {
+			long[] values = new long[items.getValue().intValue()];
+			for (int n = 0; n < values.length; n++) {
+				values[n] = data.getNativeLong((long) n * NativeLong.SIZE).longValue();
+			}
+			return values;
+		} finally {
+			x11.XFree(data);
+		}
+	}
+
+	private String getStringProperty(Window window, Atom property, Atom type, Charset charset) {
+		NativeLongByReference items = new NativeLongByReference();
+		Pointer data = readProperty(window, property, type, items);
+		if (data == null) {
+			return null;
+		}
+		try {
+			return new String(data.getByteArray(0, items.getValue().intValue()), charset);
+		} finally {
+			x11.XFree(data);
+		}
+	}
+
+	/**
+	 * @return the property value (to be freed with XFree) or null (no such property or window)
+	 */
+	private Pointer readProperty(Window window, Atom property, Atom type, NativeLongByReference items) {
+		AtomByReference actualType = new AtomByReference();
+		IntByReference actualFormat = new IntByReference();
+		NativeLongByReference bytesAfter = new NativeLongByReference();
+		PointerByReference data = new PointerByReference();
+		int errorsBefore = errors;
+		int result = x11.XGetWindowProperty(display, window, property, new NativeLong(0),
+				new NativeLong(PROPERTY_MAX), false, type, actualType, actualFormat, items, bytesAfter, data);
+		if (result != X11.Success || errors != errorsBefore || data.getValue() == null) {
+			return null;
+		}
+		if (actualType.getValue() == null || actualType.getValue().longValue() == 0) {
+			x11.XFree(data.getValue());
+			return null;
+		}
+		return data.getValue();
+	}
+	//</editor-fold>
+}
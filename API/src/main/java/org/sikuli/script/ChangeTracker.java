@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2010-2021, sikuli.org, sikulix.com - MIT license
+ */
+package org.sikuli.script;
+
+import org.opencv.core.*;
+import org.opencv.imgproc.Imgproc;
+import org.sikuli.basics.Debug;
+import org.sikuli.support.Commons;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * INTERNAL USE: detects changes between consecutive images of the same size (used by onChange)<br>
+ * - keeps a checksum per tile of the previous image and skips unchanged tiles<br>
+ * - runs the contour detection (as with Finder.findChanges) only on groups of adjacent changed tiles<br>
+ * - the Mats are kept and reused as long as the image size does not change
+ */
+public class ChangeTracker {
+
+  private static String me = "ChangeTracker: ";
+  private static int lvl = 3;
+
+  private static void log(int level, String message, Object... args) {
+    Debug.logx(level, me + message, args);
+  }
+
+  public static final int TILE_SIZE_DEFAULT = 64;
+  // dilate and close reach this far beyond a changed pixel
+  private static final int tileMargin = 4;
+
+  private int tileSize;
+  private int width = -1;
+  private int height = -1;
+  private int tileCols = 0;
+  private int tileRows = 0;
+  private long[] tileHashes = null;
+  private boolean hasPrevious = false;
+
+  private Mat frameBGR = Commons.getNewMat();
+  private Mat previousGray = Commons.getNewMat();
+  private Mat nextGray = Commons.getNewMat();
+  private Mat mDiffAbs = Commons.getNewMat();
+  private Mat mDiffTresh = Commons.getNewMat();
+  private Mat mHierarchy = Commons.getNewMat();
+  private Mat se = null;
+
+  public ChangeTracker() {
+    this(TILE_SIZE_DEFAULT);
+  }
+
+  public ChangeTracker(int tileSize) {
+    this.tileSize = Math.max(8, tileSize);
+  }
+
+  /**
+   * forget the previous image (the next one is taken as the new base)
+   */
+  public void reset() {
+    hasPrevious = false;
+  }
+
+  /**
+   * compares the given image with the previous one and keeps it for the next compare
+   *
+   * @param simg the next image
+   * @return the changed areas (relative to the image) - empty for the first image
+   */
+  public List<Region> findChanges(ScreenImage simg) {
+    return findChanges(simg.getImage());
+  }
+
+  /**
+   * compares the given image with the previous one and keeps it for the next compare
+   *
+   * @param bimg the next image
+   * @return the changed areas (relative to the image) - empty for the first image
+   */
+  public List<Region> findChanges(BufferedImage bimg) {
+    List<Region> changes = new ArrayList<>();
+    if (bimg.getWidth() != width || bimg.getHeight() != height) {
+      width = bimg.getWidth();
+      height = bimg.getHeight();
+      tileCols = (width + tileSize - 1) / tileSize;
+      tileRows = (height + tileSize - 1) / tileSize;
+      hasPrevious = false;
+      previousGray.create(height, width, CvType.CV_8UC1);
+      nextGray.create(height, width, CvType.CV_8UC1);
+      mDiffAbs.create(height, width, CvType.CV_8UC1);
+      mDiffTresh.create(height, width, CvType.CV_8UC1);
+    }
+    long[] hashes = getTileHashes(bimg);
+    if (!hasPrevious) {
+      Commons.makeMat(bimg, true, frameBGR);
+      Imgproc.cvtColor(frameBGR, previousGray, Imgproc.COLOR_BGR2GRAY);
+      tileHashes = hashes;
+      hasPrevious = true;
+      return changes;
+    }
+    boolean[] dirty = new boolean[tileCols * tileRows];
+    int nDirty = 0;
+    for (int n = 0; n < dirty.length; n++) {
+      if (tileHashes == null || hashes[n] != tileHashes[n]) {
+        dirty[n] = true;
+        nDirty++;
+      }
+    }
+    tileHashes = hashes;
+    if (nDirty == 0) {
+      return changes;
+    }
+    log(lvl + 1, "findChanges: %d of %d tiles changed", nDirty, dirty.length);
+    Commons.makeMat(bimg, true, frameBGR);
+    List<Rect> groups = getTileGroups(dirty);
+    int changedPixels = 0;
+    for (Rect group : groups) {
+      Mat previous = previousGray.submat(group);
+      Mat next = nextGray.submat(group);
+      Imgproc.cvtColor(frameBGR.submat(group), next, Imgproc.COLOR_BGR2GRAY);
+      Core.absdiff(previous, next, mDiffAbs.submat(group));
+      Imgproc.threshold(mDiffAbs.submat(group), mDiffTresh.submat(group),
+          Finder.PIXEL_DIFF_THRESHOLD, 0.0, Imgproc.THRESH_TOZERO);
+      changedPixels += Core.countNonZero(mDiffTresh.submat(group));
+    }
+    if (changedPixels > Finder.IMAGE_DIFF_THRESHOLD) {
+      if (se == null) {
+        se = Imgproc.getStructuringElement(Imgproc.MORPH_ELLIPSE, new Size(5, 5));
+      }
+      for (Rect group : groups) {
+        Mat diff = mDiffAbs.submat(group);
+        Imgproc.threshold(diff, diff, Finder.PIXEL_DIFF_THRESHOLD, 255, Imgproc.THRESH_BINARY);
+        Imgproc.dilate(diff, diff, Commons.getNewMat());
+        Imgproc.morphologyEx(diff, diff, Imgproc.MORPH_CLOSE, se);
+        List<MatOfPoint> contours = new ArrayList<>();
+        Imgproc.findContours(diff, contours, mHierarchy, Imgproc.RETR_LIST, Imgproc.CHAIN_APPROX_SIMPLE);
+        for (Region change : Finder.Finder2.contoursToRectangle(contours)) {
+          change.x += group.x;
+          change.y += group.y;
+          changes.add(change);
+        }
+      }
+    }
+    for (Rect group : groups) {
+      nextGray.submat(group).copyTo(previousGray.submat(group));
+    }
+    return changes;
+  }
+
+  /**
+   * one checksum per tile (Commons.getImageHash)
+   */
+  private long[] getTileHashes(BufferedImage bimg) {
+    long[] hashes = new long[tileCols * tileRows];
+    for (int tileRow = 0; tileRow < tileRows; tileRow++) {
+      for (int tileCol = 0; tileCol < tileCols; tileCol++) {
+        Rectangle tile = new Rectangle(tileCol * tileSize, tileRow * tileSize,
+            Math.min(width, (tileCol + 1) * tileSize) - tileCol * tileSize,
+            Math.min(height, (tileRow + 1) * tileSize) - tileRow * tileSize);
+        hashes[tileRow * tileCols + tileCol] = Commons.getImageHash(bimg, tile);
+      }
+    }
+    return hashes;
+  }
+
+  /**
+   * merges adjacent changed tiles (including diagonal neighbours) into groups,
+   * groups whose rectangles (with margin) overlap are merged too, so no pixel is processed twice
+   *
+   * @return the bounding rectangles of the groups in pixels (with a margin for the morphology)
+   */
+  private List<Rect> getTileGroups(boolean[] dirty) {
+    List<Rectangle> rGroups = new ArrayList<>();
+    boolean[] seen = new boolean[dirty.length];
+    int[] stack = new int[dirty.length];
+    Rectangle rImage = new Rectangle(0, 0, width, height);
+    for (int start = 0; start < dirty.length; start++) {
+      if (!dirty[start] || seen[start]) {
+        continue;
+      }
+      int minCol = tileCols, minRow = tileRows, maxCol = -1, maxRow = -1;
+      int top = 0;
+      stack[top++] = start;
+      seen[start] = true;
+      while (top > 0) {
+        int tile = stack[--top];
+        int col = tile % tileCols;
+        int row = tile / tileCols;
+        minCol = Math.min(minCol, col);
+        maxCol = Math.max(maxCol, col);
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        for (int nRow = Math.max(0, row - 1); nRow <= Math.min(tileRows - 1, row + 1); nRow++) {
+          for (int nCol = Math.max(0, col - 1); nCol <= Math.min(tileCols - 1, col + 1); nCol++) {
+            int neighbour = nRow * tileCols + nCol;
+            if (dirty[neighbour] && !seen[neighbour]) {
+              seen[neighbour] = true;
+              stack[top++] = neighbour;
+            }
+          }
+        }
+      }
+      Rectangle rGroup = new Rectangle(minCol * tileSize - tileMargin, minRow * tileSize - tileMargin,
+          (maxCol - minCol + 1) * tileSize + 2 * tileMargin, (maxRow - minRow + 1) * tileSize + 2 * tileMargin)
+          .intersection(rImage);
+      boolean merged = true;
+      while (merged) {
+        merged = false;
+        for (Rectangle rOther : rGroups) {
+          if (rOther.intersects(rGroup)) {
+            rGroups.remove(rOther);
+            rGroup = rGroup.union(rOther);
+            merged = true;
+            break;
+          }
+        }
+      }
+      rGroups.add(rGroup);
+    }
+    List<Rect> groups = new ArrayList<>();
+    for (Rectangle rGroup : rGroups) {
+      groups.add(new Rect(rGroup.x, rGroup.y, rGroup.width, rGroup.height));
+    }
+    return groups;
+  }
+}
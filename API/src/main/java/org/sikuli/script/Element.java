@@ -147,6 +147,9 @@ public abstract class Element {
    * @return the text read (utf8 encoded)
    */
   public String text() {
+    if (hasOcrCache()) {
+      return ocrCache.readText(getBufferedImage(this));
+    }
     return OCR.readText(this);
   }
 
@@ -216,6 +219,9 @@ public abstract class Element {
    * @return a list of text {@link Match}es or empty list if not found
    */
   public List<Match> findLines() {
+    if (hasOcrCache()) {
+      return relocate(ocrCache.read(getBufferedImage(this)).getLines());
+    }
     return relocate(OCR.readLines(this));
   }
 
@@ -225,10 +231,49 @@ public abstract class Element {
    * @return a list of text matches
    */
   public List<Match> findWords() {
+    if (hasOcrCache()) {
+      return relocate(ocrCache.read(getBufferedImage(this)).getWords());
+    }
     return relocate(OCR.readWords(this));
   }
   //</editor-fold>
 
+  //<editor-fold desc="13 OCR cache">
+  private OcrCache ocrCache = null;
+
+  /**
+   * switch caching of OCR results for this region/image on or off (default: off)<br>
+   * when on, text(), findLines(), findWords() and the text searches (findText, existsText, waitText, ...)
+   * return the last result without OCR as long as the pixels do not change,
+   * and only read the changed parts again otherwise
+   *
+   * @param state true to switch on
+   * @return this
+   */
+  public Element setOcrCache(boolean state) {
+    if (!state) {
+      ocrCache = null;
+    } else if (ocrCache == null) {
+      ocrCache = new OcrCache();
+    }
+    return this;
+  }
+
+  /**
+   * @return true if OCR results are cached for this region/image
+   */
+  public boolean hasOcrCache() {
+    return ocrCache != null;
+  }
+
+  /**
+   * @return the OCR cache (null if not switched on)
+   */
+  public OcrCache getOcrCache() {
+    return ocrCache;
+  }
+  //</editor-fold>
+
   //<editor-fold desc="15 find text (word, line)">
   /**
    * Find the first word as text (top left to bottom right) containing the given text
@@ -13,7 +13,11 @@ import org.sikuli.support.devices.IScreen;
 import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.net.URL;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 
 public class Finder implements Iterator<Match> {
@@ -29,11 +33,15 @@ public class Finder implements Iterator<Match> {
   private boolean repeating = false;
   private boolean valid = true;
   private boolean screenFinder = true;
+  private int hotspot = -1;
 
   private static String me = "Finder: ";
   private static int lvl = 3;
 
   private static void log(int level, String message, Object... args) {
+    if (!Debug.is(level)) {
+      return;
+    }
     Debug.logx(level, me + message, args);
   }
 
@@ -76,6 +84,18 @@ public class Finder implements Iterator<Match> {
     initScreenFinder(simg, region);
   }
 
+  /**
+   * Finder for a Region on an image already converted to cvMat (might be shared with other Finders)
+   *
+   * @param base   the image as cvMat (BGR or GRAY)
+   * @param region the region the image was taken from (matches are relative to it)
+   */
+  public Finder(Mat base, Region region) {
+    initMatFinder(base);
+    _region = region;
+    resetFindChanges();
+  }
+
   private void initScreenFinder(ScreenImage simg, Region region) {
     setScreenImage(simg);
     _region = region;
@@ -100,10 +120,20 @@ public class Finder implements Iterator<Match> {
     repeating = true;
   }
 
+  /**
+   * internal use: the matches are from a lastSeen place of the image
+   *
+   * @param hotspot index in Image.getHotspots()
+   */
+  protected void setHotspot(int hotspot) {
+    this.hotspot = hotspot;
+  }
+
   /**
    * internal use: repeat with same Finder
    */
   protected void findRepeat() {
+    hotspot = -1;
     _results = Finder2.find(_findInput);
     currentMatchIndex = 0;
   }
@@ -147,11 +177,16 @@ public class Finder implements Iterator<Match> {
     return possibleImageResizeOrCallback(img, 0);
   }
 
-  private Mat possibleImageResizeOrCallback(Image img, float oneTimeResize) {
+  private static float getResizeFactor(float oneTimeResize) {
     float factor = oneTimeResize;
     if (factor == 0 && Settings.AlwaysResize > 0 && Settings.AlwaysResize != 1) {
       factor = Settings.AlwaysResize;
     }
+    return factor;
+  }
+
+  private Mat possibleImageResizeOrCallback(Image img, float oneTimeResize) {
+    float factor = getResizeFactor(oneTimeResize);
     Mat mat = Commons.makeMat(img.get(), false);
     if (factor > 0 && factor != 1) {
       Debug.log(3, "Finder::possibleImageResizeOrCallback: resize");
@@ -169,6 +204,30 @@ public class Finder implements Iterator<Match> {
     return mat;
   }
 
+  /**
+   * sets the image to search as target, taking the prepared Mat, mask and attributes
+   * from the target cache if possible (otherwise they are evaluated and cached)
+   *
+   * @param img           the image to search
+   * @param oneTimeResize resize factor of the pattern (0 if none)
+   * @param patternMask   the pattern's mask or null
+   */
+  private void setTarget(Image img, float oneTimeResize, Mat patternMask) {
+    _findInput.setMask(SX.isNotNull(patternMask) ? patternMask : Commons.getNewMat());
+    String key = TargetCache.getKey(img, getResizeFactor(oneTimeResize), patternMask);
+    if (SX.isNotNull(key)) {
+      TargetCache.Entry entry = TargetCache.get(key);
+      if (SX.isNotNull(entry)) {
+        _findInput.setTarget(entry);
+        return;
+      }
+    }
+    _findInput.setTarget(possibleImageResizeOrCallback(img, oneTimeResize));
+    if (SX.isNotNull(key) && _findInput.setAttributes()) {
+      TargetCache.put(key, _findInput.getCacheEntry());
+    }
+  }
+
   /**
    * do a find op with the given pattern in the Finder's image
    * (hasNext() and next() will reveal possible match results)
@@ -183,12 +242,10 @@ public class Finder implements Iterator<Match> {
     }
     if (aPtn.isValid()) {
       _pattern = aPtn;
-      if (_pattern.hasMask()) {
-        _findInput.setMask(_pattern.getMask());
-      }
       _image = aPtn.getImage();
-      _findInput.setTarget(possibleImageResizeOrCallback(_image, aPtn.getResize()));
+      setTarget(_image, aPtn.getResize(), _pattern.hasMask() ? _pattern.getMask() : null);
       _findInput.setSimilarity(aPtn.getSimilar());
+      _findInput.setSearchDownsized(aPtn.isDownsized());
       _findInput.setIsPattern();
       _results = Finder2.find(_findInput);
       currentMatchIndex = 0;
@@ -212,8 +269,9 @@ public class Finder implements Iterator<Match> {
     }
     if (img.isValid()) {
       _image = img;
-      _findInput.setTarget(possibleImageResizeOrCallback(img));
+      setTarget(img, 0, null);
       _findInput.setSimilarity(Settings.MinSimilarity);
+      _findInput.setSearchDownsized(Settings.SearchDownsized);
       _results = Finder2.find(_findInput);
       currentMatchIndex = 0;
       return img.getFilename();
@@ -294,13 +352,10 @@ public class Finder implements Iterator<Match> {
     if (aPtn.isValid()) {
       _pattern = aPtn;
       _image = aPtn.getImage();
-      _findInput.setTarget(possibleImageResizeOrCallback(_image, aPtn.getResize()));
+      setTarget(_image, aPtn.getResize(), _pattern.hasMask() ? _pattern.getMask() : null);
       _findInput.setSimilarity(aPtn.getSimilar());
       _findInput.setIsPattern();
       _findInput.setFindAll();
-      if (_pattern.hasMask()) {
-        _findInput.setMask(_pattern.getMask());
-      }
       Debug timing = Debug.startTimer("Finder.findAll");
       _results = Finder2.find(_findInput);
       currentMatchIndex = 0;
@@ -325,7 +380,7 @@ public class Finder implements Iterator<Match> {
     }
     if (img.isValid()) {
       _image = img;
-      _findInput.setTarget(possibleImageResizeOrCallback(img));
+      setTarget(img, 0, null);
       _findInput.setSimilarity(Settings.MinSimilarity);
       _findInput.setFindAll();
       Debug timing = Debug.startTimer("Finder.findAll");
@@ -469,6 +524,7 @@ public class Finder implements Iterator<Match> {
       }
       match.setOnScreen(screenFinder);
       match.setImage(_image);
+      match.setHotspot(hotspot);
     }
     return match;
   }
@@ -510,6 +566,150 @@ public class Finder implements Iterator<Match> {
   }
 //</editor-fold>
 
+  //<editor-fold desc="target cache">
+
+  /**
+   * INTERNAL USE: second level cache for images to search (on top of the Image cache)<br>
+   * keeps the ready-to-match Mat (BGR or GRAY), the mask and the evaluated attributes,<br>
+   * key: image URL, resize factor and mask mode (alpha channel or checksum of the pattern mask)<br>
+   * shares the budget of the Image cache ({@link Settings#getImageCache()} MB for images and targets together),
+   * least recently used first out
+   */
+  static class TargetCache {
+
+    private static final int MB = 1024 * 1024;
+
+    static class Entry {
+      Mat target;
+      Mat mask;
+      boolean plainColor;
+      boolean blackColor;
+      boolean whiteColor;
+      boolean grayColor;
+      double resizeFactor;
+      int[] meanColor;
+      double targetStdDev;
+      double targetMean;
+      long size = 0;
+    }
+
+    private static Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private static volatile long currentMemory = 0;
+
+    /**
+     * @return the key or null if the image cannot be cached (in memory, callback or caching switched off)
+     */
+    static String getKey(Image img, float factor, Mat patternMask) {
+      if (Settings.getImageCache() == 0 || SX.isNull(img.getURL())) {
+        return null;
+      }
+      if (Settings.ImageCallback != null && (factor == 0 || factor == 1)) {
+        return null;
+      }
+      return String.format("%s|%s|%s", img.getURL(), (factor == 0 ? 1 : factor),
+          SX.isNull(patternMask) ? "alpha" : "mask" + getMaskHash(patternMask));
+    }
+
+    /**
+     * equal masks (e.g. the same mask image given to more than one Pattern) give the same key
+     */
+    private static long getMaskHash(Mat patternMask) {
+      Mat mask = patternMask;
+      if (mask.depth() != CvType.CV_8U) {
+        mask = new Mat();
+        patternMask.convertTo(mask, CvType.CV_8U);
+      }
+      byte[] bytes = new byte[(int) (mask.total() * mask.elemSize())];
+      mask.get(0, 0, bytes);
+      if (mask != patternMask) {
+        mask.release();
+      }
+      long hash = 31L * patternMask.cols() + patternMask.rows();
+      for (byte value : bytes) {
+        hash = 31L * hash + value;
+      }
+      return hash;
+    }
+
+    static synchronized Entry get(String key) {
+      return entries.get(key);
+    }
+
+    static synchronized void put(String key, Entry entry) {
+      if (entry.target.empty()) {
+        return;
+      }
+      entry.size = entry.target.total() * entry.target.elemSize() + entry.mask.total() * entry.mask.elemSize();
+      Entry old = entries.put(key, entry);
+      if (SX.isNotNull(old)) {
+        currentMemory -= old.size;
+      }
+      currentMemory += entry.size;
+      evict((long) Settings.getImageCache() * MB);
+    }
+
+    /**
+     * drop least recently used entries until images and targets together use at most maxMemory
+     *
+     * @param maxMemory bytes
+     */
+    static synchronized void evict(long maxMemory) {
+      Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+      while (currentMemory + Image.getCacheMemory() > maxMemory && it.hasNext()) {
+        Map.Entry<String, Entry> eldest = it.next();
+        currentMemory -= eldest.getValue().size;
+        it.remove();
+      }
+    }
+
+    /**
+     * forget all entries for the given image URL
+     *
+     * @param url image URL
+     */
+    static void remove(URL url) {
+      if (SX.isNotNull(url)) {
+        removeAll(url + "|");
+      }
+    }
+
+    /**
+     * forget all entries for images below the given path URL
+     *
+     * @param pathURL path URL
+     */
+    static void purge(URL pathURL) {
+      if (SX.isNotNull(pathURL)) {
+        removeAll(pathURL.toString());
+      }
+    }
+
+    private static synchronized void removeAll(String prefix) {
+      Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<String, Entry> entry = it.next();
+        if (entry.getKey().startsWith(prefix)) {
+          currentMemory -= entry.getValue().size;
+          it.remove();
+        }
+      }
+    }
+
+    static synchronized void clear() {
+      entries.clear();
+      currentMemory = 0;
+    }
+
+    static synchronized int size() {
+      return entries.size();
+    }
+
+    static long getMemory() {
+      return currentMemory;
+    }
+  }
+  //</editor-fold>
+
   static final int PIXEL_DIFF_THRESHOLD_DEFAULT = 3;
   static final int IMAGE_DIFF_THRESHOLD_DEFAULT = 5;
   static int PIXEL_DIFF_THRESHOLD = PIXEL_DIFF_THRESHOLD_DEFAULT;
@@ -549,7 +749,17 @@ public class Finder implements Iterator<Match> {
         Debug.error(prefix + msg, args);
       }
 
+      /**
+       * @return true if trace messages are logged (to avoid evaluating the arguments with every find)
+       */
+      public static boolean isTrace() {
+        return Settings.DebugLogs && Debug.is(3);
+      }
+
       public static void trace(String msg, Object... args) {
+        if (!isTrace()) {
+          return;
+        }
         Debug.log(3, prefix + msg, args);
       }
     }
@@ -585,6 +795,7 @@ public class Finder implements Iterator<Match> {
     private final float[] resizeLevels = new float[]{1f, 0.4f};
     private boolean isCheckLastSeen = false;
     private static final double downSimDiff = 0.15;
+    private static final int downCandidates = 5;
 
     private boolean isWord() {
       return fInput.getTextLevel() == OCR.PAGE_ITERATOR_LEVEL_WORD;
@@ -626,92 +837,147 @@ public class Finder implements Iterator<Match> {
       FindInput2 findInput = fInput;
       log.trace("doFindImage: start %s", findInput);
       mBase = findInput.getBase();
-      boolean success = false;
       long begin_lap = 0;
       long begin_find = new Date().getTime();
       Core.MinMaxLocResult mMinMax = null;
 
-      double rfactor = 0;
-      boolean downSizeFound = false;
-      double downSizeScore = -1;
-      double downSizeWantedScore = 0;
+      if (findInput.shouldSearchDownsized(resizeMinFactor)
+          && !mBase.size().equals(findInput.getTarget().size())) {
+        // ************************************************* search in downsized
+        findResult = doFindDownsized(findInput);
+        if (SX.isNotNull(findResult)) {
+          if (log.isTrace()) {
+            log.trace("doFindImage: end (downsized) %d msec", new Date().getTime() - begin_find);
+          }
+          return findResult;
+        }
+      }
+      // ************************************** search in original
+      begin_lap = new Date().getTime();
+      mResult = doFindMatch(findInput.getTarget(), mBase, findInput);
+      mMinMax = Core.minMaxLoc(mResult);
+      if (!isCheckLastSeen && log.isTrace()) {
+        log.trace("doFindImage: in original: %%%.4f (?%.0f) %d msec %s",
+            mMinMax.maxVal * 100, findInput.getScore() * 100, new Date().getTime() - begin_lap,
+            findInput.hasMask() ? " **withMask" : "");
+      }
+      if (mMinMax.maxVal > findInput.getScore()) {
+        findResult = new FindResult2(mResult, findInput);
+      }
+      if (log.isTrace()) {
+        log.trace("doFindImage: end %d msec", new Date().getTime() - begin_find);
+      }
+      return findResult;
+    }
+
+    /**
+     * coarse-to-fine: match in downsized versions of base and target (resizeLevels, coarsest first),
+     * then verify the best candidates in a small window of the original at the wanted score.<br>
+     * returns null if no candidate could be verified - the caller then searches in the original,
+     * so the result never has a score below the wanted one.<br>
+     * every downsized peak within downSimDiff of the top peak is refined and the best refined one is taken,
+     * so places, that might score higher in the original, are all checked -
+     * with more than downCandidates such peaks (repetitive content) the search is done in the original instead
+     *
+     * @param findInput the find setup
+     * @return the verified result or null
+     */
+    private FindResult2 doFindDownsized(FindInput2 findInput) {
+      long begin_lap = new Date().getTime();
+      Mat target = findInput.getTarget();
+      double imgFactor = findInput.getResizeFactor();
+      double wantedScore = findInput.getScore();
+      double downWantedScore = ((int) ((wantedScore - downSimDiff) * 100)) / 100.0;
+      Rectangle rBase = new Rectangle(0, 0, mBase.cols(), mBase.rows());
       Mat findWhere = Commons.getNewMat();
       Mat findWhat = Commons.getNewMat();
-
-      boolean trueOrFalse = findInput.shouldSearchDownsized(resizeMinFactor);
-      //TODO search downsized?
-      trueOrFalse = false;
-      if (trueOrFalse) {
-        // ************************************************* search in downsized
-        begin_lap = new Date().getTime();
-        double imgFactor = findInput.getResizeFactor();
-        Size sizeBase, sizePattern;
-        mResult = null;
-        for (double factor : resizeLevels) {
-          rfactor = factor * imgFactor;
-          sizeBase = new Size(this.mBase.cols() / rfactor, this.mBase.rows() / rfactor);
-          sizePattern = new Size(findInput.getTarget().cols() / rfactor, findInput.getTarget().rows() / rfactor);
-          Imgproc.resize(this.mBase, findWhere, sizeBase, 0, 0, Imgproc.INTER_AREA);
-          Imgproc.resize(findInput.getTarget(), findWhat, sizePattern, 0, 0, Imgproc.INTER_AREA);
-          mResult = doFindMatch(findWhat, findWhere, findInput);
-          mMinMax = Core.minMaxLoc(mResult);
-          downSizeWantedScore = ((int) ((findInput.getScore() - downSimDiff) * 100)) / 100.0;
-          downSizeScore = mMinMax.maxVal;
-          if (downSizeScore > downSizeWantedScore) {
-            downSizeFound = true;
+      for (float level : resizeLevels) {
+        double rfactor = level * imgFactor;
+        if (rfactor < resizeMinFactor) {
+          continue;
+        }
+        Size sizeBase = new Size(mBase.cols() / rfactor, mBase.rows() / rfactor);
+        Size sizeTarget = new Size(target.cols() / rfactor, target.rows() / rfactor);
+        if (sizeTarget.width < 1 || sizeTarget.height < 1) {
+          continue;
+        }
+        Imgproc.resize(mBase, findWhere, sizeBase, 0, 0, Imgproc.INTER_AREA);
+        Imgproc.resize(target, findWhat, sizeTarget, 0, 0, Imgproc.INTER_AREA);
+        Mat mDown = doFindMatch(findWhat, findWhere, findInput);
+        Mat mPurge;
+        int margin = ((int) Math.ceil(rfactor)) + 1;
+        int purgeX = Math.max(1, findWhat.cols() / 2);
+        int purgeY = Math.max(1, findWhat.rows() / 2);
+        Mat bestResult = null;
+        Rect bestRect = null;
+        double bestScore = -1;
+        double peakScore = downWantedScore;
+        boolean tooMany = false;
+        for (int n = 0; ; n++) {
+          Core.MinMaxLocResult mMinMax = Core.minMaxLoc(mDown);
+          if (n == 0) {
+            peakScore = Math.max(downWantedScore, mMinMax.maxVal - downSimDiff);
+          }
+          if (mMinMax.maxVal < peakScore) {
             break;
           }
-        }
-        log.trace("downSizeFound: %s", downSizeFound);
-        log.trace("doFindImage: down: %%%.2f %d msec", 100 * mMinMax.maxVal, new Date().getTime() - begin_lap);
-      }
-      findWhere = this.mBase;
-      trueOrFalse = !findInput.isFindAll() && downSizeFound;
-      if (trueOrFalse) {
-        // ************************************* check after downsized success
-        if (findWhere.size().equals(findInput.getTarget().size())) {
-          // trust downsized mResult, if images have same size
-          return new FindResult2(mResult, findInput);
-        } else {
-          int maxLocX = (int) (mMinMax.maxLoc.x * rfactor);
-          int maxLocY = (int) (mMinMax.maxLoc.y * rfactor);
-          begin_lap = new Date().getTime();
-          int margin = ((int) findInput.getResizeFactor()) + 1;
-          Rectangle rSub = new Rectangle(Math.max(0, maxLocX - margin), Math.max(0, maxLocY - margin),
-              Math.min(findInput.getTarget().width() + 2 * margin, findWhere.width()),
-              Math.min(findInput.getTarget().height() + 2 * margin, findWhere.height()));
-          Rectangle rWhere = new Rectangle(0, 0, findWhere.cols(), findWhere.rows());
-          Rectangle rSubNew = rWhere.intersection(rSub);
-          Rect rectSub = new Rect(rSubNew.x, rSubNew.y, rSubNew.width, rSubNew.height);
-          mResult = doFindMatch(findInput.getTarget(), findWhere.submat(rectSub), findInput);
-          mMinMax = Core.minMaxLoc(mResult);
-          double maxVal = mMinMax.maxVal;
-          double wantedScore = findInput.getScore();
-          if (maxVal > wantedScore) {
-            findResult = new FindResult2(mResult, findInput, new int[]{rectSub.x, rectSub.y});
+          if (n == downCandidates) {
+            tooMany = true;
+            break;
           }
-          if (SX.isNotNull(findResult)) {
-            log.trace("doFindImage after down: %%%.2f(?%%%.2f) %d msec",
-                maxVal * 100, wantedScore * 100, new Date().getTime() - begin_lap);
+          int downX = (int) mMinMax.maxLoc.x;
+          int downY = (int) mMinMax.maxLoc.y;
+          mPurge = mDown.submat(Math.max(downY - purgeY, 0), Math.min(downY + purgeY + 1, mDown.rows()),
+              Math.max(downX - purgeX, 0), Math.min(downX + purgeX + 1, mDown.cols()));
+          mPurge.setTo(new Scalar(0f));
+          mPurge.release();
+          Rectangle rSub = new Rectangle((int) (downX * rfactor) - margin, (int) (downY * rfactor) - margin,
+              target.cols() + 2 * margin, target.rows() + 2 * margin).intersection(rBase);
+          if (rSub.width < target.cols() || rSub.height < target.rows()) {
+            continue;
+          }
+          Rect rectSub = new Rect(rSub.x, rSub.y, rSub.width, rSub.height);
+          Mat mSub = mBase.submat(rectSub);
+          Mat mRefine = doFindMatch(target, mSub, findInput);
+          mSub.release();
+          double refineScore = Core.minMaxLoc(mRefine).maxVal;
+          if (refineScore > wantedScore && refineScore > bestScore) {
+            if (SX.isNotNull(bestResult)) {
+              bestResult.release();
+            }
+            bestScore = refineScore;
+            bestResult = mRefine;
+            bestRect = rectSub;
+          } else {
+            mRefine.release();
           }
         }
-      }
-      // ************************************** search in original
-      if (downSizeScore < 0) {
-        begin_lap = new Date().getTime();
-        mResult = doFindMatch(findInput.getTarget(), findWhere, findInput);
-        mMinMax = Core.minMaxLoc(mResult);
-        if (!isCheckLastSeen) {
-          log.trace("doFindImage: in original: %%%.4f (?%.0f) %d msec %s",
-              mMinMax.maxVal * 100, findInput.getScore() * 100, new Date().getTime() - begin_lap,
-              findInput.hasMask() ? " **withMask" : "");
+        mDown.release();
+        if (tooMany) {
+          if (SX.isNotNull(bestResult)) {
+            bestResult.release();
+          }
+          if (log.isTrace()) {
+            log.trace("doFindImage: downsized(%.2f): more than %d candidates", rfactor, downCandidates);
+          }
+          break;
         }
-        if (mMinMax.maxVal > findInput.getScore()) {
-          findResult = new FindResult2(mResult, findInput);
+        if (SX.isNotNull(bestResult)) {
+          findWhere.release();
+          findWhat.release();
+          if (log.isTrace()) {
+            log.trace("doFindImage: downsized(%.2f): %%%.2f(?%%%.2f) %d msec",
+                rfactor, bestScore * 100, wantedScore * 100, new Date().getTime() - begin_lap);
+          }
+          return new FindResult2(bestResult, findInput, new int[]{bestRect.x, bestRect.y});
         }
       }
-      log.trace("doFindImage: end %d msec", new Date().getTime() - begin_find);
-      return findResult;
+      findWhere.release();
+      findWhat.release();
+      if (log.isTrace()) {
+        log.trace("doFindImage: downsized: not verified %d msec", new Date().getTime() - begin_lap);
+      }
+      return null;
     }
 
     private Mat doFindMatch(Mat what, Mat where, FindInput2 findInput) {
@@ -719,28 +985,32 @@ public class Finder implements Iterator<Match> {
       if (what.empty()) {
         log.error("doFindMatch: image conversion to cvMat did not work");
       } else {
+        // where might be shared with other finds (e.g. observe): convert into new Mats
         Mat mWhere = where;
-        if (findInput.isGray()) {
+        if (findInput.isGray() && where.channels() > 1) {
+          mWhere = Commons.getNewMat();
           Imgproc.cvtColor(where, mWhere, Imgproc.COLOR_BGR2GRAY);
         }
         if (!findInput.isPlainColor()) {
           if (findInput.hasMask()) {
             Mat mask = findInput.getMask();
-            Imgproc.matchTemplate(mWhere, what, mResult, Imgproc.TM_CCORR_NORMED, mask);
+            matchTemplate(mWhere, what, mResult, Imgproc.TM_CCORR_NORMED, mask);
           } else {
-            Imgproc.matchTemplate(mWhere, what, mResult, Imgproc.TM_CCOEFF_NORMED);
+            matchTemplate(mWhere, what, mResult, Imgproc.TM_CCOEFF_NORMED, null);
           }
         } else {
           Mat wherePlain = mWhere;
           Mat whatPlain = what;
           if (findInput.isBlack()) {
+            wherePlain = Commons.getNewMat();
+            whatPlain = Commons.getNewMat();
             Core.bitwise_not(mWhere, wherePlain);
             Core.bitwise_not(what, whatPlain);
           }
           if (findInput.hasMask()) {
-            Imgproc.matchTemplate(wherePlain, what, mResult, Imgproc.TM_SQDIFF_NORMED, findInput.getMask());
+            matchTemplate(wherePlain, what, mResult, Imgproc.TM_SQDIFF_NORMED, findInput.getMask());
           } else {
-            Imgproc.matchTemplate(wherePlain, whatPlain, mResult, Imgproc.TM_SQDIFF_NORMED);
+            matchTemplate(wherePlain, whatPlain, mResult, Imgproc.TM_SQDIFF_NORMED, null);
           }
           Core.subtract(Mat.ones(mResult.size(), CvType.CV_32F), mResult, mResult);
         }
@@ -748,6 +1018,55 @@ public class Finder implements Iterator<Match> {
       return mResult;
     }
 
+    private static final int minStripRows = 32;
+
+    /**
+     * Imgproc.matchTemplate - with Settings.FindTiled large images are split into horizontal strips
+     * (overlapping by target height - 1), that are matched in parallel and stitched into one result
+     * (the same result as with one call, since all used methods are normed per position)
+     */
+    private static void matchTemplate(Mat where, Mat what, Mat result, int method, Mat mask) {
+      int resultRows = where.rows() - what.rows() + 1;
+      int resultCols = where.cols() - what.cols() + 1;
+      int strips = 1;
+      if (Settings.FindTiled && where.total() >= Settings.FindTiledMinPixels && resultRows > 0 && resultCols > 0) {
+        strips = Math.min(Commons.getMatchPool().getParallelism(), resultRows / minStripRows);
+      }
+      if (strips > 1) {
+        result.create(resultRows, resultCols, CvType.CV_32F);
+        int stripRows = (resultRows + strips - 1) / strips;
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < resultRows; start += stripRows) {
+          int end = Math.min(resultRows, start + stripRows);
+          Mat whereStrip = where.rowRange(start, end + what.rows() - 1);
+          Mat resultStrip = result.rowRange(start, end);
+          tasks.add(() -> {
+            Mat mStrip = Commons.getNewMat();
+            matchTemplateStrip(whereStrip, what, mStrip, method, mask);
+            mStrip.copyTo(resultStrip);
+            return null;
+          });
+        }
+        try {
+          for (Future<Void> task : Commons.getMatchPool().invokeAll(tasks)) {
+            task.get();
+          }
+          return;
+        } catch (InterruptedException | ExecutionException e) {
+          log.error("matchTemplate: tiled (%d strips) did not work: %s", tasks.size(), e.getMessage());
+        }
+      }
+      matchTemplateStrip(where, what, result, method, mask);
+    }
+
+    private static void matchTemplateStrip(Mat where, Mat what, Mat result, int method, Mat mask) {
+      if (SX.isNull(mask)) {
+        Imgproc.matchTemplate(where, what, result, method);
+      } else {
+        Imgproc.matchTemplate(where, what, result, method, mask);
+      }
+    }
+
     private FindResult2 doFindText() {
       FindResult2 findResult = null;
       Region where = fInput.getWhere();
@@ -755,6 +1074,7 @@ public class Finder implements Iterator<Match> {
       boolean globalSearch = false;
       boolean singleWord = true;
       List<Match> wordsFound;
+      List<TextRecognizer.TextLine> linesFound = null;
       String[] textSplit = new String[0];
       java.util.regex.Pattern pattern = null;
 
@@ -766,10 +1086,14 @@ public class Finder implements Iterator<Match> {
       } else {
         text = text.trim();
       }
+      TextRecognizer.TextResult cached = null;
+      if (SX.isNotNull(where) && where.hasOcrCache()) {
+        cached = where.getOcrCache().read(bimg);
+      }
       if (textLevel == OCR.PAGE_ITERATOR_LEVEL_LINE) {
-        wordsFound = OCR.readLines(bimg);
+        wordsFound = SX.isNotNull(cached) ? cached.getLines() : OCR.readLines(bimg);
       } else if (textLevel == OCR.PAGE_ITERATOR_LEVEL_WORD) {
-        wordsFound = OCR.readWords(bimg);
+        wordsFound = SX.isNotNull(cached) ? cached.getWords() : OCR.readWords(bimg);
       } else {
         globalSearch = true;
         textSplit = text.split("\\s");
@@ -779,12 +1103,18 @@ public class Finder implements Iterator<Match> {
             pattern = java.util.regex.Pattern.compile(textSplit[0] + ".*?" + textSplit[2]);
           }
         }
-        wordsFound = OCR.readLines(bimg);
+        // lines and their words in one pass
+        linesFound = (SX.isNotNull(cached) ? cached : OCR.readTextResult(bimg)).getTextLines();
+        wordsFound = new ArrayList<>();
+        for (TextRecognizer.TextLine line : linesFound) {
+          wordsFound.add(line.getLine());
+        }
       }
       timer = new Date().getTime() - timer;
       List<Match> wordsMatch = new ArrayList<>();
       if (!text.isEmpty()) {
-        for (Match match : wordsFound) {
+        for (int nFound = 0; nFound < wordsFound.size(); nFound++) {
+          Match match = wordsFound.get(nFound);
           if (isWord()) {
             if (!isTextMatching(match.getText(), text, pattern)) {
               continue;
@@ -800,19 +1130,15 @@ public class Finder implements Iterator<Match> {
           } else {
             continue;
           }
-          Rectangle wordOrLine = match.getRect();
           List<Match> wordsInLine;
           if (globalSearch) {
-            BufferedImage bLine = Image.createSubimage(bimg, wordOrLine);
-            wordsInLine = OCR.readWords(bLine);
+            wordsInLine = linesFound.get(nFound).getWords();
             if (singleWord) {
               for (Match wordInLine : wordsInLine) {
                 if (!isTextContained(wordInLine.getText().toLowerCase(), text.toLowerCase(), null)) {
                   continue;
                 }
                 Rectangle rword = new Rectangle(wordInLine.getRect());
-                rword.x += wordOrLine.x;
-                rword.y += wordOrLine.y;
                 wordsMatch.add(new Match(rword, wordInLine.getScore(), wordInLine.getText(), where));
               }
             } else {
@@ -838,8 +1164,6 @@ public class Finder implements Iterator<Match> {
               if (startText > -1 && endText > -1) {
                 Rectangle rword = (new Rectangle(wordsInLine.get(startText).getRect())).
                     union(new Rectangle(wordsInLine.get(endText).getRect()));
-                rword.x += wordOrLine.x;
-                rword.y += wordOrLine.y;
                 double score = (wordsInLine.get(startText).getScore() + wordsInLine.get(startText).getScore()) / 2;
                 String foundText = wordsInLine.get(startText).getText() + " ... " + wordsInLine.get(endText);
                 wordsMatch.add(new Match(rword, score, foundText, where));
@@ -1027,6 +1351,7 @@ public class Finder implements Iterator<Match> {
 
     protected void setMask(Mat mask) {
       this.mask = mask;
+      attributesValid = false;
     }
 
     private Mat targetBGR = new Mat();
@@ -1064,6 +1389,38 @@ public class Finder implements Iterator<Match> {
 
     public void setTarget(Mat target) {
       this.target = target;
+      targetBGR = new Mat();
+      attributesValid = false;
+    }
+
+    public void setTarget(TargetCache.Entry entry) {
+      target = entry.target;
+      targetBGR = entry.target;
+      mask = entry.mask;
+      plainColor = entry.plainColor;
+      blackColor = entry.blackColor;
+      whiteColor = entry.whiteColor;
+      grayColor = entry.grayColor;
+      resizeFactor = entry.resizeFactor;
+      meanColor = entry.meanColor;
+      targetStdDev = entry.targetStdDev;
+      targetMean = entry.targetMean;
+      attributesValid = true;
+    }
+
+    public TargetCache.Entry getCacheEntry() {
+      TargetCache.Entry entry = new TargetCache.Entry();
+      entry.target = targetBGR;
+      entry.mask = mask;
+      entry.plainColor = plainColor;
+      entry.blackColor = blackColor;
+      entry.whiteColor = whiteColor;
+      entry.grayColor = grayColor;
+      entry.resizeFactor = resizeFactor;
+      entry.meanColor = meanColor;
+      entry.targetStdDev = targetStdDev;
+      entry.targetMean = targetMean;
+      return entry;
     }
 
     public Mat getTarget() {
@@ -1167,8 +1524,15 @@ public class Finder implements Iterator<Match> {
       return similarity >= 0.99;
     }
 
+    private boolean searchDownsized = false;
+
+    public void setSearchDownsized(boolean state) {
+      searchDownsized = state;
+    }
+
     public boolean shouldSearchDownsized(float resizeMinFactor) {
-      return !hasMask() && !isExact() && !isFindAll() && getResizeFactor() > resizeMinFactor;
+      return searchDownsized && !hasMask() && !isExact() && !isFindAll() && !isPlainColor() && !isGray()
+          && getResizeFactor() > resizeMinFactor;
     }
 
     private double scoreMaxDiff = 0.05;
@@ -1231,9 +1595,17 @@ public class Finder implements Iterator<Match> {
     double targetStdDev = -1;
     double targetMean = -1;
 
-    public void setAttributes() {
-      if (targetTypeText) {
-        return;
+    private boolean attributesValid = false;
+
+    /**
+     * evaluates mask, plain color flags, resize factor and mean/stdDev of the target
+     * (only once per target)
+     *
+     * @return true if evaluated now
+     */
+    public boolean setAttributes() {
+      if (targetTypeText || attributesValid || SX.isNull(target) || target.empty()) {
+        return false;
       }
       List<Mat> mats = Finder2.extractMask(target, true);
       targetBGR = mats.get(0);
@@ -1241,11 +1613,10 @@ public class Finder implements Iterator<Match> {
         mask = mats.get(1);
       }
 
-      if (targetBGR.channels() == 1) {
-        grayColor = true;
-      }
+      grayColor = targetBGR.channels() == 1;
       plainColor = false;
       blackColor = false;
+      whiteColor = false;
       resizeFactor = Math.min(((double) targetBGR.width()) / resizeMinDownSample,
           ((double) targetBGR.height()) / resizeMinDownSample);
       resizeFactor = Math.max(1.0, resizeFactor);
@@ -1282,6 +1653,8 @@ public class Finder implements Iterator<Match> {
       if (meanColor.length > 1) {
         whiteColor = isMeanColorEqual(Color.WHITE);
       }
+      attributesValid = true;
+      return true;
     }
 
     public String toString() {
@@ -1341,12 +1714,7 @@ public class Finder implements Iterator<Match> {
         }
         return false;
       }
-      resultMinMax = Core.minMaxLoc(result);
-      currentScore = resultMinMax.maxVal;
-      currentX = (int) resultMinMax.maxLoc.x;
-      currentY = (int) resultMinMax.maxLoc.y;
-      if (lastScore < 0) {
-        lastScore = currentScore;
+      if (targetScore < 0) {
         targetScore = findInput.getScore();
         baseW = result.width();
         baseH = result.height();
@@ -1356,6 +1724,27 @@ public class Finder implements Iterator<Match> {
         marginY = (int) (targetH * 0.8);
         matchCount = 0;
       }
+      if (findInput.isFindAll()) {
+        if (SX.isNull(peaks)) {
+          peaks = getPeaks();
+        }
+        if (matchCount < peaks.size()) {
+          double[] peak = peaks.get(matchCount);
+          currentX = (int) peak[0];
+          currentY = (int) peak[1];
+          currentScore = peak[2];
+        } else {
+          currentScore = 0;
+        }
+      } else {
+        resultMinMax = Core.minMaxLoc(result);
+        currentScore = resultMinMax.maxVal;
+        currentX = (int) resultMinMax.maxLoc.x;
+        currentY = (int) resultMinMax.maxLoc.y;
+      }
+      if (lastScore < 0) {
+        lastScore = currentScore;
+      }
       boolean isMatch = false;
       if (currentScore > targetScore) {
         if (matchCount == 0) {
@@ -1365,7 +1754,8 @@ public class Finder implements Iterator<Match> {
           isMatch = true;
         } else {
           double scoreDiff = lastScore - currentScore;
-          if (findInput.isPattern || scoreDiff <= (scoreMeanDiff + 0.01)) { // 0.005
+          if (findInput.isPattern || !Settings.FindAllScoreGap
+              || scoreDiff <= (scoreMeanDiff + 0.01)) { // 0.005
             scoreMeanDiff = ((scoreMeanDiff * matchCount) + scoreDiff) / (matchCount + 1);
             isMatch = true;
           }
@@ -1386,6 +1776,9 @@ public class Finder implements Iterator<Match> {
           match = new Match(currentX + offX, currentY + offY, targetW, targetH, currentScore, null);
           matchCount++;
           lastScore = currentScore;
+          if (findInput.isFindAll()) {
+            return match;
+          }
           //int margin = getPurgeMargin();
           Range rangeX = new Range(Math.max(currentX - marginX, 0), Math.min(currentX + marginX, result.width()));
           Range rangeY = new Range(Math.max(currentY - marginY, 0), Math.min(currentY + marginY, result.height()));
@@ -1395,6 +1788,53 @@ public class Finder implements Iterator<Match> {
       return match;
     }
 
+    private List<double[]> peaks = null;
+
+    /**
+     * findAll: all matches in one pass over the result (instead of one minMaxLoc per match)<br>
+     * - the local maxima above the target score (3x3 neighbourhood) are the candidates<br>
+     * - best first, a candidate is dropped, if it is within marginX/marginY of an already taken one
+     * (same as purging the result around each match)
+     *
+     * @return x, y, score of the matches - best first
+     */
+    private List<double[]> getPeaks() {
+      List<double[]> candidates = new ArrayList<>();
+      Mat mDilated = Commons.getNewMat();
+      Mat mPeaks = Commons.getNewMat();
+      Mat mAbove = Commons.getNewMat();
+      Imgproc.dilate(result, mDilated, Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3)));
+      Core.compare(result, mDilated, mPeaks, Core.CMP_GE);
+      Core.compare(result, new Scalar(targetScore), mAbove, Core.CMP_GT);
+      Core.bitwise_and(mPeaks, mAbove, mPeaks);
+      MatOfPoint mPoints = new MatOfPoint();
+      Core.findNonZero(mPeaks, mPoints);
+      if (!mPoints.empty()) {
+        float[] score = new float[1];
+        for (Point point : mPoints.toArray()) {
+          result.get((int) point.y, (int) point.x, score);
+          candidates.add(new double[]{point.x, point.y, score[0]});
+        }
+      }
+      candidates.sort((c1, c2) -> Double.compare(c2[2], c1[2]));
+      List<double[]> taken = new ArrayList<>();
+      for (double[] candidate : candidates) {
+        boolean isPurged = false;
+        for (double[] peak : taken) {
+          if (candidate[0] >= peak[0] - marginX && candidate[0] < peak[0] + marginX
+              && candidate[1] >= peak[1] - marginY && candidate[1] < peak[1] + marginY) {
+            isPurged = true;
+            break;
+          }
+        }
+        if (!isPurged) {
+          taken.add(candidate);
+        }
+      }
+      Debug.log(4, "findAll: %d peaks (%d candidates)", taken.size(), candidates.size());
+      return taken;
+    }
+
     private int getPurgeMargin() {
       if (currentScore < 0.95) {
         return 4;
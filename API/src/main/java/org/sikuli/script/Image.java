@@ -9,6 +9,7 @@ import org.sikuli.basics.Debug;
 import org.sikuli.support.FileManager;
 import org.sikuli.basics.Settings;
 import org.sikuli.support.Commons;
+import org.sikuli.support.ImageFacts;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
@@ -18,6 +19,9 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class hides the complexity behind image names given as string.
@@ -39,16 +43,18 @@ import java.util.*;
  * - a list of all images ever loaded in this session with their source
  * reference and a ref to the image object<br>
  * - a list of all images currently having their content in memory (buffered
- * image) (managed as a configurable cache)<br>
- * The caching can be configured using {@link Settings#setImageCache(int)}
+ * image) (managed as a configurable cache weighted by the bytes of the images,
+ * least recently used images are dropped first - access order is kept in O(1) per hit and per eviction)<br>
+ * The caching can be configured using {@link Settings#setImageCache(int)}, usage see {@link #getCacheStats()}
  */
 public class Image extends Element {
 
   private static String logName = "Image: ";
 
-  private static List<Image> images = Collections.synchronizedList(new ArrayList<Image>());
-  private static Map<URL, Image> imageFiles = Collections.synchronizedMap(new HashMap<URL, Image>());
-  private static Map<String, URL> imageNames = Collections.synchronizedMap(new HashMap<String, URL>());
+  // images having their content in memory - access ordered (eldest first), guarded by the class lock
+  private static Map<Image, Image> images = new LinkedHashMap<>(16, 0.75f, true);
+  private static Map<URL, Image> imageFiles = new ConcurrentHashMap<>();
+  private static Map<String, URL> imageNames = new ConcurrentHashMap<>();
 
   //<editor-fold desc="00 0  instance">
   public static Image getDefaultInstance4py() {
@@ -95,7 +101,7 @@ public class Image extends Element {
         fURL = Commons.makeURL(imgFile);
       }
     } else {
-      fURL = imageNames.get(img.getName());
+      fURL = img.getName() == null ? null : imageNames.get(img.getName());
       if (fURL == null) {
         fURL = ImagePath.find(img.getName());
       }
@@ -113,7 +119,12 @@ public class Image extends Element {
     imgTarget.setIsAbsolute(imageIsAbsolute);
     imgTarget.setIsText(imageIsText);
     imgTarget.setIsBundled(imageIsBundled);
-    imgTarget.setLastSeen(getLastSeen(), getLastSeenScore());
+    imgTarget.restoreLastSeen(getLastSeen(), getLastSeenScore());
+    synchronized (hotspots) {
+      for (Hotspot hotspot : hotspots) {
+        imgTarget.hotspots.add(new Hotspot(hotspot));
+      }
+    }
     imgTarget.setHasIOException(hasIOException());
     if (isPattern()) {
       imgTarget.setSimilarity(similarity);
@@ -353,13 +364,16 @@ public class Image extends Element {
    * @return BufferedImage (might be null)
    */
   public BufferedImage get() {
-    if (bimg != null) {
+    // might be evicted meanwhile by another thread
+    BufferedImage cached = bimg;
+    if (cached != null) {
       if (fileURL == null) {
         log(logLevel + 1, "getImage inMemory: %s", getName());
       } else {
         log(logLevel + 1, "getImage from cache: %s", getName());
+        cacheTouch(this);
       }
-      return bimg;
+      return cached;
     } else {
       return load();
     }
@@ -705,54 +719,75 @@ public class Image extends Element {
   private final static String isBImg = "__BufferedImage__";
   private final static String isMat = "__OpenCV_Mat__";
 
-  private static long currentMemory = 0;
+  // written under the class lock
+  private static volatile long currentMemory = 0;
+  private static LongAdder cacheHits = new LongAdder();
+  private static AtomicLong cacheMisses = new AtomicLong();
+  private static AtomicLong cacheEvictions = new AtomicLong();
 
-  private static synchronized long currentMemoryChange(long size, long max) {
-    long maxMemory = max;
-    if (max < 0) {
-      maxMemory = Settings.getImageCache() * MB;
-      currentMemory += size;
-    }
-    if (currentMemory > maxMemory) {
-      Image first;
-      while (images.size() > 0 && currentMemory > maxMemory) {
-        first = images.remove(0);
-        first.bimg = null;
-        currentMemory -= first.bsize;
-      }
-      if (maxMemory == 0) {
-        currentMemory = 0;
-      } else {
-        currentMemory = Math.max(0, currentMemory);
-      }
-    }
-    if (size < 0) {
-      currentMemory = Math.max(0, currentMemory);
+  // the size accounted in currentMemory while in the cache
+  private int cachedSize = 0;
+
+  private static synchronized void cacheAdd(Image img) {
+    if (null != images.put(img, img)) {
+      currentMemory -= img.cachedSize;
     }
-    return currentMemory;
+    img.cachedSize = img.bsize;
+    currentMemory += img.cachedSize;
+    cacheEvict((long) Settings.getImageCache() * MB);
   }
 
-  private static long currentMemoryUp(long size) {
-    return currentMemoryChange(size, -1);
+  // moves the image to the end of the access order
+  private static synchronized void cacheTouch(Image img) {
+    images.get(img);
   }
 
-  private static long currentMemoryDown(long size) {
-    currentMemory -= size;
-    currentMemory = Math.max(0, currentMemory);
-    return currentMemoryChange(-size, -1);
+  private static synchronized void cacheRemove(Image img) {
+    if (null != images.remove(img)) {
+      currentMemory -= img.cachedSize;
+      img.cachedSize = 0;
+    }
   }
 
-  private static long currentMemoryDownUp(int sizeOld, int sizeNew) {
-    currentMemoryDown(sizeOld);
-    return currentMemoryUp(sizeNew);
+  /**
+   * evict least recently used images until images and prepared targets (Finder.TargetCache)
+   * together use at most maxMemory, then the targets are trimmed, if still needed
+   */
+  private static synchronized void cacheEvict(long maxMemory) {
+    Iterator<Image> it = images.keySet().iterator();
+    while (currentMemory + Finder.TargetCache.getMemory() > maxMemory && it.hasNext()) {
+      Image eldest = it.next();
+      it.remove();
+      eldest.bimg = null;
+      currentMemory -= eldest.cachedSize;
+      eldest.cachedSize = 0;
+      cacheEvictions.incrementAndGet();
+      log(logLevel + 1, "evicted: %s", eldest.getName());
+    }
+    Finder.TargetCache.evict(maxMemory);
+  }
+
+  /**
+   * @return bytes used by the cached images
+   */
+  static long getCacheMemory() {
+    return currentMemory;
   }
 
   private static boolean isCaching() {
     return Settings.getImageCache() > 0;
   }
 
+  /**
+   * evict least recently used images until the cache uses at most maxSize MB
+   *
+   * @param maxSize MB
+   */
   public static void clearCache(int maxSize) {
-    currentMemoryChange(0, maxSize);
+    cacheEvict((long) maxSize * MB);
+    if (maxSize == 0) {
+      Finder.TargetCache.clear();
+    }
   }
 
   public static void purge() {
@@ -787,30 +822,27 @@ public class Image extends Element {
         it.remove();
       }
     }
-    if (!imagePurgeList.isEmpty()) {
-      Iterator<Image> bit = images.iterator();
-      while (bit.hasNext()) {
-        img = bit.next();
-        if (imagePurgeList.contains(img)) {
-          bit.remove();
-          log(logLevel + 1, "purge: bimg: %s", img);
-          currentMemoryDown(img.bsize);
-        }
-      }
+    for (Image purged : imagePurgeList) {
+      log(logLevel + 1, "purge: bimg: %s", purged);
+      cacheRemove(purged);
     }
     for (String name : imageNamePurgeList) {
       imageNames.remove(name);
     }
+    Finder.TargetCache.purge(pathURL);
   }
 
   private static void unCache(URL imgURL) {
+    if (imgURL == null) {
+      return;
+    }
+    Finder.TargetCache.remove(imgURL);
     Image img = imageFiles.get(imgURL);
     if (img == null) {
       return;
     }
-    currentMemoryDown(img.bsize);
+    cacheRemove(img);
     img.setBimg(null);
-    images.remove(img);
   }
 
   //TODO make obsolete
@@ -854,13 +886,102 @@ public class Image extends Element {
     if (Settings.getImageCache() == 0) {
       log(logLevel, "Cache state: switched off!");
     } else {
+      CacheStats stats = getCacheStats();
       log(logLevel, "Cache state: Max %d MB (entries: %d  used: %d %% %d KB)",
-          Settings.getImageCache(), images.size(),
-          (int) (100 * currentMemory / (Settings.getImageCache() * MB)), (int) (currentMemory / KB));
+          Settings.getImageCache(), stats.getEntries(),
+          (int) (100 * stats.getMemory() / ((long) Settings.getImageCache() * MB)), (int) (stats.getMemory() / KB));
+      log(logLevel, "Cache usage: hits: %d  misses: %d  evictions: %d (hit rate %.1f %%)",
+          stats.getHits(), stats.getMisses(), stats.getEvictions(), stats.getHitRate() * 100);
+      log(logLevel, "Target cache: entries: %d  used: %d KB",
+          Finder.TargetCache.size(), (int) (Finder.TargetCache.getMemory() / KB));
     }
     log(logLevel, "--- end of Image dump ---");
   }
 
+  /**
+   * a snapshot of the image cache state and usage counters
+   */
+  public static class CacheStats {
+    private long hits;
+    private long misses;
+    private long evictions;
+    private int entries;
+    private long memory;
+
+    private CacheStats(long hits, long misses, long evictions, int entries, long memory) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.entries = entries;
+      this.memory = memory;
+    }
+
+    /**
+     * @return number of image lookups (Image.create) served with an image in memory
+     */
+    public long getHits() {
+      return hits;
+    }
+
+    /**
+     * @return number of requests that had to load the image
+     */
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * @return number of images dropped to stay within the cache size
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /**
+     * @return number of images currently in the cache
+     */
+    public int getEntries() {
+      return entries;
+    }
+
+    /**
+     * @return bytes currently used by the cached images
+     */
+    public long getMemory() {
+      return memory;
+    }
+
+    /**
+     * @return hits / (hits + misses) or 0
+     */
+    public double getHitRate() {
+      long requests = hits + misses;
+      return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("ImageCache: entries: %d (%d KB) hits: %d misses: %d evictions: %d",
+          entries, memory / KB, hits, misses, evictions);
+    }
+  }
+
+  /**
+   * @return the current state and usage counters of the image cache
+   */
+  public static synchronized CacheStats getCacheStats() {
+    return new CacheStats(cacheHits.sum(), cacheMisses.get(), cacheEvictions.get(), images.size(), currentMemory);
+  }
+
+  /**
+   * reset the usage counters of the image cache (hits, misses, evictions)
+   */
+  public static void resetCacheStats() {
+    cacheHits.reset();
+    cacheMisses.set(0);
+    cacheEvictions.set(0);
+  }
+
   /**
    * clears all caches (should only be needed for debugging)
    */
@@ -971,6 +1092,8 @@ public class Image extends Element {
           if (!silent) {
             log(3, "reused: %s (%s)", image.getName(), image.fileURL);
           }
+          cacheHits.increment();
+          cacheTouch(image);
         } else {
           if (Settings.getImageCache() > 0) {
             image.load();
@@ -1004,14 +1127,15 @@ public class Image extends Element {
         bsize = bImage.getData().getDataBuffer().getSize();
         log(logLevel, "loaded: %s (%s)", getName(), fileURL);
         if (isCaching()) {
-          int maxMemory = Settings.getImageCache() * MB;
-          currentMemoryUp(bsize);
+          long maxMemory = (long) Settings.getImageCache() * MB;
+          cacheMisses.incrementAndGet();
           bimg = bImage;
-          images.add(this);
+          cacheAdd(this);
+          CacheStats stats = getCacheStats();
           log(logLevel, "cached: %s (%d KB) (# %d KB %d -- %d %% of %d MB)",
               getName(), getKB(),
-              images.size(), (int) (currentMemory / KB),
-              (int) (100 * currentMemory / maxMemory), (int) (maxMemory / MB));
+              stats.getEntries(), (int) (stats.getMemory() / KB),
+              (int) (100 * stats.getMemory() / maxMemory), (int) (maxMemory / MB));
         }
       } else {
         log(-1, "invalid! not loaded! %s", fileURL);
@@ -1048,12 +1172,17 @@ public class Image extends Element {
 
   public static void reload(String fpImage) {
 //    URL uImage = FileManager.makeURL(fpImage);
-    URL uImage = imageNames.get(fpImage);
-    if (imageFiles.containsKey(uImage)) {
+    URL uImage = fpImage == null ? null : imageNames.get(fpImage);
+    if (uImage != null && imageFiles.containsKey(uImage)) {
       Image image = imageFiles.get(uImage);
-      int sizeOld = image.bsize;
-      if (null != image.loadAgain()) {
-        currentMemoryDownUp(sizeOld, image.bsize);
+      Finder.TargetCache.remove(uImage);
+      ImageFacts.forget(uImage);
+      BufferedImage bImage = image.loadAgain();
+      if (null != bImage) {
+        if (isCaching()) {
+          image.bimg = bImage;
+          cacheAdd(image);
+        }
         image.setLastSeen(null, 0);
       }
     }
@@ -1061,8 +1190,11 @@ public class Image extends Element {
 
   public static void setIDEshouldReload(Image img) {
     ideShouldReload = true;
+    Finder.TargetCache.remove(img.getURL());
+    ImageFacts.forget(img.getURL());
     img.wasRecaptured = true;
     img.lastSeen = null;
+    img.clearHotspots();
   }
 
   public static boolean getIDEshouldReload() {
@@ -1169,8 +1301,132 @@ public class Image extends Element {
   public Image setLastSeen(Rectangle lastSeen, double sim) {
     this.lastSeen = lastSeen;
     this.lastScore = sim;
+    if (lastSeen == null) {
+      clearHotspots();
+    } else {
+      addHotspot(lastSeen, sim);
+    }
+    ImageFacts.update(this, lastSeen, sim);
     return this;
   }
+
+  /**
+   * Internal Use: set the last seen info known from before (not recorded as a new find)
+   *
+   * @param lastSeen Match
+   * @param sim      SimilarityScore
+   * @return the image
+   */
+  public Image restoreLastSeen(Rectangle lastSeen, double sim) {
+    this.lastSeen = lastSeen;
+    this.lastScore = sim;
+    synchronized (hotspots) {
+      if (lastSeen != null && hotspots.isEmpty()) {
+        hotspots.add(new Hotspot(lastSeen, sim));
+      }
+    }
+    return this;
+  }
+
+  private final List<Hotspot> hotspots = new ArrayList<>();
+
+  /**
+   * a place where the image was found before
+   */
+  public static class Hotspot {
+    private Rectangle rect;
+    private double score;
+    private int hits = 1;
+    private double weight = 1;
+
+    private Hotspot(Rectangle rect, double score) {
+      this.rect = new Rectangle(rect);
+      this.score = score;
+    }
+
+    private Hotspot(Hotspot hotspot) {
+      rect = new Rectangle(hotspot.rect);
+      score = hotspot.score;
+      hits = hotspot.hits;
+      weight = hotspot.weight;
+    }
+
+    public Rectangle getRect() {
+      return new Rectangle(rect);
+    }
+
+    /**
+     * @return the score of the last find at this place
+     */
+    public double getScore() {
+      return score;
+    }
+
+    /**
+     * @return how often the image was found at this place
+     */
+    public int getHits() {
+      return hits;
+    }
+
+    /**
+     * @return the rank: each find adds 1 and lets the weight of all places decay (Settings.CheckLastSeenDecay)
+     */
+    public double getWeight() {
+      return weight;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("[%d,%d %dx%d] %.2f hits: %d weight: %.2f",
+          rect.x, rect.y, rect.width, rect.height, score, hits, weight);
+    }
+  }
+
+  /**
+   * the places where the image was found before, best ranked first
+   * (at most Settings.CheckLastSeenHotspots)
+   *
+   * @return a copy of the list
+   */
+  public List<Hotspot> getHotspots() {
+    synchronized (hotspots) {
+      List<Hotspot> copy = new ArrayList<>();
+      for (Hotspot hotspot : hotspots) {
+        copy.add(new Hotspot(hotspot));
+      }
+      return copy;
+    }
+  }
+
+  private void addHotspot(Rectangle rect, double score) {
+    synchronized (hotspots) {
+      Hotspot found = null;
+      for (Hotspot hotspot : hotspots) {
+        hotspot.weight *= Settings.CheckLastSeenDecay;
+        if (hotspot.rect.equals(rect)) {
+          found = hotspot;
+        }
+      }
+      if (found == null) {
+        hotspots.add(new Hotspot(rect, score));
+      } else {
+        found.score = score;
+        found.hits++;
+        found.weight += 1;
+      }
+      hotspots.sort((h1, h2) -> Double.compare(h2.weight, h1.weight));
+      while (hotspots.size() > Math.max(1, Settings.CheckLastSeenHotspots)) {
+        hotspots.remove(hotspots.size() - 1);
+      }
+    }
+  }
+
+  private void clearHotspots() {
+    synchronized (hotspots) {
+      hotspots.clear();
+    }
+  }
   //</editor-fold>
 
   //<editor-fold desc="10 raster">
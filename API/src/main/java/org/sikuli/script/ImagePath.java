@@ -5,8 +5,13 @@ package org.sikuli.script;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.file.*;
 import java.security.CodeSource;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 
 import org.sikuli.basics.Debug;
 import org.sikuli.support.FileManager;
@@ -64,6 +69,7 @@ public class ImagePath {
     if (entry > 0 && entry < imagePaths.size()) {
       PathEntry pathEntry = imagePaths.remove(entry);
       Image.purge(pathEntry);
+      pathEntry.dropIndex();
       return pathEntry.pathURL;
     }
     return null;
@@ -92,6 +98,9 @@ public class ImagePath {
   public static void dump(int lvl) {
     log(lvl, "ImagePath has %d entries (valid %d)", imagePaths.size(), getCount());
     dumpDo(0, null);
+    if (Settings.ImagePathIndex) {
+      log(lvl, "%s", getIndexStats());
+    }
   }
 
   public static void dump(String msg) {
@@ -133,6 +142,8 @@ public class ImagePath {
       Image.purge(pathEntry);
       if (pathEntry.isSpecial()) {
         toSave.add(pathEntry);
+      } else {
+        pathEntry.dropIndex();
       }
     }
     PathEntry bundlePath = getBundle();
@@ -185,6 +196,7 @@ public class ImagePath {
 
     private URL pathURL = null;
     private String path = null;
+    private PathIndex index = null;
 
     private PathEntry(String main, String sub, URL eqivalentURL) {
       if (main == null) {
@@ -280,6 +292,30 @@ public class ImagePath {
     public URL getURL() {
       return pathURL;
     }
+
+    private synchronized PathIndex getIndex() {
+      if (index == null) {
+        index = new PathIndex(this);
+      }
+      return index;
+    }
+
+    /**
+     * forget what is known about the image files available at this entry<br>
+     * (they are looked up again with the next find)
+     */
+    public synchronized void refresh() {
+      if (index != null) {
+        index.clear();
+      }
+    }
+
+    private synchronized void dropIndex() {
+      if (index != null) {
+        index.close();
+        index = null;
+      }
+    }
   }
 
   private static boolean hasPathEntry(PathEntry pathEntry) {
@@ -612,6 +648,7 @@ public class ImagePath {
       int pathEntryIndex = getPathEntryIndex(where);
       if (0 < pathEntryIndex) {
         Image.purge(getPaths().get(pathEntryIndex));
+        getPaths().get(pathEntryIndex).dropIndex();
         getPaths().set(pathEntryIndex, whatEntry);
         url = whatEntry.pathURL;
       }
@@ -678,6 +715,9 @@ public class ImagePath {
         return folder;
       }
       Image.purge(oldBundle);
+      if (oldBundle != null) {
+        oldBundle.dropIndex();
+      }
       setBundle(entry);
       log(lvl, "new BundlePath: %s", entry);
     }
@@ -708,6 +748,311 @@ public class ImagePath {
   }
   //</editor-fold>
 
+  //<editor-fold desc="06 path index">
+  private static final AtomicLong indexLookups = new AtomicLong();
+  private static final AtomicLong indexProbes = new AtomicLong();
+  private static final AtomicLong indexListings = new AtomicLong();
+  private static final AtomicLong indexChanges = new AtomicLong();
+
+  /**
+   * forget what is known about the image files available in the path entries<br>
+   * (needed only for changes the index cannot notice: jar contents and found images on http locations)
+   */
+  public static void refresh() {
+    for (PathEntry entry : getPaths().toArray(new PathEntry[0])) {
+      if (entry != null) {
+        entry.refresh();
+      }
+    }
+  }
+
+  /**
+   * @return a snapshot of the usage counters of the path entry indexes
+   */
+  public static IndexStats getIndexStats() {
+    return new IndexStats(indexLookups.get(), indexProbes.get(), indexListings.get(), indexChanges.get());
+  }
+
+  public static void resetIndexStats() {
+    indexLookups.set(0);
+    indexProbes.set(0);
+    indexListings.set(0);
+    indexChanges.set(0);
+  }
+
+  /**
+   * a snapshot of the path entry index usage counters
+   */
+  public static class IndexStats {
+    private long lookups;
+    private long probes;
+    private long listings;
+    private long changes;
+
+    private IndexStats(long lookups, long probes, long listings, long changes) {
+      this.lookups = lookups;
+      this.probes = probes;
+      this.listings = listings;
+      this.changes = changes;
+    }
+
+    /**
+     * @return number of relative image names looked up with the index
+     */
+    public long getLookups() {
+      return lookups;
+    }
+
+    /**
+     * @return number of single existence checks (file system, jar or HEAD request)
+     */
+    public long getProbes() {
+      return probes;
+    }
+
+    /**
+     * @return number of folder listings and jar entry tables read
+     */
+    public long getListings() {
+      return listings;
+    }
+
+    /**
+     * @return number of folder listings dropped because of changes in the folder
+     */
+    public long getChanges() {
+      return changes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("ImagePath index: lookups: %d  probes: %d  listings: %d  changes: %d",
+          lookups, probes, listings, changes);
+    }
+  }
+
+  /**
+   * what is known about the image files available at a path entry:<br>
+   * - folder: the folder listings (taken when first needed, dropped on change reported by a WatchService)<br>
+   * - jar: the entry table of the jar<br>
+   * - http: the results of the HEAD requests (not found is asked again after Settings.ImagePathHttpRecheck)<br>
+   * contains() returns null, if nothing can be said (the location has to be asked directly)
+   */
+  private static class PathIndex {
+
+    private static final Set<PathIndex> indexes = ConcurrentHashMap.newKeySet();
+    private static WatchService watcher = null;
+    private static boolean watcherFailed = false;
+    // the registered folders: key and number of indexes using it
+    private static final Map<Path, WatchKey> watchKeys = new HashMap<>();
+    private static final Map<Path, Integer> watchUsers = new HashMap<>();
+    private final Set<Path> watched = new HashSet<>();
+
+    private final PathEntry entry;
+    private final boolean ignoreCase = Settings.isWindows() || Settings.isMac();
+    private final Map<String, Set<String>> folders = new ConcurrentHashMap<>();
+    private final Map<String, Long> folderChanges = new ConcurrentHashMap<>();
+    private volatile Set<String> jarEntries = null;
+    private final Set<String> httpFound = ConcurrentHashMap.newKeySet();
+    private final Map<String, Long> httpNotFound = new ConcurrentHashMap<>();
+
+    private PathIndex(PathEntry entry) {
+      this.entry = entry;
+      indexes.add(this);
+    }
+
+    static boolean isIndexable(String name) {
+      String path = "/" + name.replace("\\", "/") + "/";
+      return !path.contains("/../") && !path.contains("/./") && !path.contains("//");
+    }
+
+    Boolean contains(String name) {
+      if (entry.isFile()) {
+        return containsFile(name);
+      } else if (entry.isJar()) {
+        return containsJar(name);
+      } else if (entry.isHTTP()) {
+        return containsHttp(name);
+      }
+      return null;
+    }
+
+    void clear() {
+      folders.clear();
+      jarEntries = null;
+      httpFound.clear();
+      httpNotFound.clear();
+    }
+
+    void close() {
+      indexes.remove(this);
+      unwatch(this);
+      clear();
+    }
+
+    private String asKey(String name) {
+      return ignoreCase ? name.toLowerCase() : name;
+    }
+
+    private Boolean containsFile(String name) {
+      File file = new File(entry.getPath(), name);
+      File folder = file.getParentFile().getAbsoluteFile();
+      Set<String> names = folders.get(folder.getPath());
+      if (names == null) {
+        names = listFolder(folder);
+        if (names == null) {
+          return null;
+        }
+      }
+      return names.contains(asKey(file.getName()));
+    }
+
+    private Set<String> listFolder(File folder) {
+      String key = folder.getPath();
+      if (!folder.isDirectory() || !watch(folder, this)) {
+        return null;
+      }
+      long changes = folderChanges.getOrDefault(key, 0L);
+      String[] files = folder.list();
+      if (files == null) {
+        return null;
+      }
+      indexListings.incrementAndGet();
+      Set<String> names = new HashSet<>();
+      for (String file : files) {
+        names.add(asKey(file));
+      }
+      folders.put(key, names);
+      if (folderChanges.getOrDefault(key, 0L) != changes) {
+        folders.remove(key);
+      }
+      return names;
+    }
+
+    private void changed(String folder) {
+      folderChanges.merge(folder, 1L, Long::sum);
+      if (null != folders.remove(folder)) {
+        indexChanges.incrementAndGet();
+      }
+    }
+
+    private Boolean containsJar(String name) {
+      URL url = Commons.makeURL(entry.getPath(), name);
+      if (url == null || !"jar".equals(url.getProtocol())) {
+        return null;
+      }
+      String inJar = url.getPath();
+      int n = inJar.indexOf("!/");
+      if (n < 0 || inJar.contains("%")) {
+        return null;
+      }
+      inJar = inJar.substring(n + 2);
+      Set<String> names = jarEntries;
+      if (names == null) {
+        names = new HashSet<>();
+        try (JarFile jar = new JarFile(entry.getFile())) {
+          Enumeration<JarEntry> jarItems = jar.entries();
+          while (jarItems.hasMoreElements()) {
+            JarEntry jarItem = jarItems.nextElement();
+            if (!jarItem.isDirectory()) {
+              names.add(jarItem.getName());
+            }
+          }
+        } catch (Exception ex) {
+          log(lvl, "PathIndex: jar not readable: %s (%s)", entry, ex.getMessage());
+          return null;
+        }
+        indexListings.incrementAndGet();
+        jarEntries = names;
+      }
+      return names.contains(inJar);
+    }
+
+    private Boolean containsHttp(String name) {
+      if (httpFound.contains(name)) {
+        return true;
+      }
+      Long checked = httpNotFound.get(name);
+      if (checked != null && System.currentTimeMillis() - checked < Settings.ImagePathHttpRecheck * 1000L) {
+        return false;
+      }
+      URL url = Commons.makeURL(entry.getPath(), name);
+      if (url == null) {
+        return null;
+      }
+      indexProbes.incrementAndGet();
+      int check = FileManager.isUrlUseabel(url);
+      if (check > 0) {
+        httpNotFound.remove(name);
+        httpFound.add(name);
+        return true;
+      }
+      if (check == 0) {
+        httpNotFound.put(name, System.currentTimeMillis());
+      }
+      return false;
+    }
+
+    private static synchronized boolean watch(File folder, PathIndex index) {
+      if (watcherFailed) {
+        return false;
+      }
+      Path path = folder.toPath();
+      if (index.watched.contains(path)) {
+        return true;
+      }
+      try {
+        if (watcher == null) {
+          watcher = FileSystems.getDefault().newWatchService();
+          Thread watching = new Thread(PathIndex::runWatcher, "SikuliX-ImagePathWatcher");
+          watching.setDaemon(true);
+          watching.start();
+        }
+        watchKeys.put(path, path.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_DELETE));
+        watchUsers.merge(path, 1, Integer::sum);
+        index.watched.add(path);
+        return true;
+      } catch (Exception ex) {
+        log(lvl, "PathIndex: folder changes cannot be watched (%s) - not using index", ex.getMessage());
+        watcherFailed = watcher == null;
+        return false;
+      }
+    }
+
+    private static synchronized void unwatch(PathIndex index) {
+      for (Path path : index.watched) {
+        Integer users = watchUsers.merge(path, -1, Integer::sum);
+        if (users != null && users < 1) {
+          watchUsers.remove(path);
+          WatchKey key = watchKeys.remove(path);
+          if (key != null) {
+            key.cancel();
+          }
+        }
+      }
+      index.watched.clear();
+    }
+
+    private static void runWatcher() {
+      while (true) {
+        WatchKey key;
+        try {
+          key = watcher.take();
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+          return;
+        }
+        key.pollEvents();
+        String folder = ((Path) key.watchable()).toFile().getAbsolutePath();
+        for (PathIndex index : indexes) {
+          index.changed(folder);
+        }
+        key.reset();
+      }
+    }
+  }
+  //</editor-fold>
+
   //<editor-fold desc="10 find image">
   public static String check(String name) {
     return "CheckImage: " + name + ": " + Commons.urlToFile(find(Image.getValidImageFilename(name))).getAbsolutePath();
@@ -716,14 +1061,17 @@ public class ImagePath {
   /**
    * try to find the given relative image file name on the image path<br>
    * starting from entry 0, the first found existence is taken<br>
-   * absolute file names are checked for existence
+   * absolute file names are checked for existence<br>
+   * with Settings.ImagePathIndex the path entries are asked via their index (see getIndexStats()):
+   * a folder index is kept up to date by a WatchService, but events might come late (polling, network shares),
+   * so a folder or jar, that is said to not contain the image, is asked again directly,
+   * if no other entry has it (the index is refreshed, if it is there)
    *
    * @param imageFileName relative or absolute filename with extension
    * @return a valid URL or null if not found/exists
    */
   public static URL find(String imageFileName) {
     URL fURL = null;
-    String proto = "";
     File imageFile = new File(imageFileName);
     if (imageFile.isAbsolute()) {
       if (imageFile.exists()) {
@@ -733,40 +1081,74 @@ public class ImagePath {
       }
       return fURL;
     } else {
+      boolean useIndex = Settings.ImagePathIndex && PathIndex.isIndexable(imageFileName);
+      if (useIndex) {
+        indexLookups.incrementAndGet();
+      }
+      List<PathEntry> missed = new ArrayList<>();
       for (PathEntry entry : getPaths()) {
         if (entry == null || !entry.isValid()) {
           continue;
         }
-        proto = entry.pathURL.getProtocol();
-        if ("file".equals(proto)) {
-          if (new File(entry.getPath(), imageFileName).exists()) {
-            return Commons.makeURL(entry.getPath(), imageFileName);
-          }
-        } else if ("jar".equals(proto) || proto.startsWith("http")) {
-          URL url = Commons.makeURL(entry.getPath(), imageFileName);
-          if (url != null) {
-            int check = -1;
-            if (proto.startsWith("http")) {
-              check = FileManager.isUrlUseabel(url);
-            } else {
-              try {
-                InputStream inputStream = url.openStream();
-                check = inputStream.available();
-              } catch (IOException e) {
-              }
+        if (useIndex) {
+          Boolean isThere = entry.getIndex().contains(imageFileName);
+          if (isThere != null) {
+            if (isThere) {
+              return Commons.makeURL(entry.getPath(), imageFileName);
             }
-            if (check > 0) {
-              return url;
+            if (entry.isFile() || entry.isJar()) {
+              missed.add(entry);
             }
+            continue;
           }
         }
+        fURL = probe(entry, imageFileName);
+        if (fURL != null) {
+          return fURL;
+        }
+      }
+      // created just now (watch event not yet seen) or a jar replaced meanwhile (no watcher): last chance to find it
+      for (PathEntry entry : missed) {
+        fURL = probe(entry, imageFileName);
+        if (fURL != null) {
+          log(lvl, "find: %s not yet known in index of %s", imageFileName, entry);
+          entry.refresh();
+          return fURL;
+        }
       }
       log(-1, "find: not there: %s", imageFileName);
       dump(lvl);
-      return fURL;
+      return null;
     }
   }
 
+  private static URL probe(PathEntry entry, String imageFileName) {
+    indexProbes.incrementAndGet();
+    String proto = entry.pathURL.getProtocol();
+    if ("file".equals(proto)) {
+      if (new File(entry.getPath(), imageFileName).exists()) {
+        return Commons.makeURL(entry.getPath(), imageFileName);
+      }
+    } else if ("jar".equals(proto) || proto.startsWith("http")) {
+      URL url = Commons.makeURL(entry.getPath(), imageFileName);
+      if (url != null) {
+        int check = -1;
+        if (proto.startsWith("http")) {
+          check = FileManager.isUrlUseabel(url);
+        } else {
+          try (InputStream inputStream = url.openStream()) {
+            check = inputStream.available();
+          } catch (IOException e) {
+          }
+        }
+        if (check > 0) {
+          return url;
+        }
+      }
+    }
+    return null;
+  }
+
   /**
    * given absolute or relative (searched on image path) file name<br>
    * is tried to open as a BufferedReader<br>
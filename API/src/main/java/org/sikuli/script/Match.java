@@ -27,6 +27,10 @@ public class Match extends Region implements Comparable<Match> {
   private String ocrText = "";
   private long lastSearchTime = -1;
   private long lastFindTime = -1;
+  private int scans = -1;
+  private int scansSkipped = -1;
+  private long scanCpuTime = -1;
+  private int hotspot = -1;
   private int index = -1;
   private boolean onScreen = true;
 
@@ -65,6 +69,59 @@ public class Match extends Region implements Comparable<Match> {
     return lastFindTime;
   }
 
+  /**
+   * INTERNAL USE
+   * set the scan statistics from a wait
+   *
+   * @param executed scans with a search
+   * @param skipped  scans without a search (no change in the region)
+   * @param cpuTime  msec CPU time used by the waiting thread (-1 if not available)
+   */
+  public void setScanStats(int executed, int skipped, long cpuTime) {
+    scans = executed;
+    scansSkipped = skipped;
+    scanCpuTime = cpuTime;
+  }
+
+  /**
+   * @return number of searches done until this Match was found (-1 if not from a wait)
+   */
+  public int getScans() {
+    return scans;
+  }
+
+  /**
+   * @return number of scans without search (region did not change) until this Match was found
+   */
+  public int getScansSkipped() {
+    return scansSkipped;
+  }
+
+  /**
+   * @return msec CPU time used while waiting for this Match (-1 if not available)
+   */
+  public long getScanCpuTime() {
+    return scanCpuTime;
+  }
+
+  /**
+   * INTERNAL USE
+   * set the lastSeen place, where the image was found without searching the whole region
+   *
+   * @param hotspot index in Image.getHotspots() (-1 if the whole region was searched)
+   */
+  public void setHotspot(int hotspot) {
+    this.hotspot = hotspot;
+  }
+
+  /**
+   * @return index of the image's lastSeen place (see Image.getHotspots()), where this Match was found<br>
+   * -1 if the whole region was searched
+   */
+  public int getHotspot() {
+    return hotspot;
+  }
+
   /**
    * create a copy of Match object<br>
    * to e.g. set another TargetOffset for same match
@@ -147,6 +204,10 @@ public class Match extends Region implements Comparable<Match> {
     }
     lastFindTime = m.lastFindTime;
     lastSearchTime = m.lastSearchTime;
+    scans = m.scans;
+    scansSkipped = m.scansSkipped;
+    scanCpuTime = m.scanCpuTime;
+    hotspot = m.hotspot;
   }
 
   /**
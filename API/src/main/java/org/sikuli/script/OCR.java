@@ -19,7 +19,9 @@ import java.util.*;
 /**
  * Static helper class for OCR via Tess4J/Tesseract.
  * <p>
- * The methods in this class are not threadsafe.
+ * Reading text (readText, readLines, readWords, ...) can be done from parallel threads
+ * (each read uses its own Tesseract engine taken from a pool, see Settings.OcrEngines).
+ * Changing Options (especially the global Options) while reading is not threadsafe.
  * @see <a href="https://sikulix-2014.readthedocs.io/en/latest/textandocr.html">SikuliX docs: Text and OCR</a>
  */
 public class OCR {
@@ -203,6 +205,17 @@ public class OCR {
       return msg;
     }
 
+    /**
+     * INTERNAL: identifies the Tesseract engine setup of this Options
+     * (engines with the same fingerprint can be reused).
+     *
+     * @return datapath, language, oem, psm, configs and variables as text
+     */
+    protected String fingerprint() {
+      return String.format("%s|%s|%d|%d|%s|%s", dataPath(), language(), oem(), psm(),
+          configs(), new TreeMap<>(variables()));
+    }
+
     /**
      * INTERNAL: validates this Options before OCR usage.
      */
@@ -668,11 +681,12 @@ public class OCR {
 
   //<editor-fold desc="10 global">
   /**
-   * Resets the global options to the initial defaults.
+   * Resets the global options to the initial defaults (idle Tesseract engines are closed).
    * @see OCR.Options#reset()
    * @return the global Options
    */
   public static Options reset() {
+    TextRecognizer.closeEngines();
     return globalOptions().reset();
   }
 
@@ -764,6 +778,17 @@ public class OCR {
   public static <SFIRBS> List<Match> readLines(SFIRBS from, Options options) {
     return TextRecognizer.get(options).readLines(from);
   }
+
+  /**
+   * INTERNAL: the lines with their words read in one pass (cached for unchanged images).
+   * <p>Uses the global options.
+   * @param <SFIRBS> File name, File, Image, Region, BufferdImage or ScreenImage
+   * @param from     source to read text from
+   * @return the lines with their words
+   */
+  protected static <SFIRBS> TextRecognizer.TextResult readTextResult(SFIRBS from) {
+    return TextRecognizer.get(globalOptions()).readTextResult(from);
+  }
   //</editor-fold>
 
   //<editor-fold desc="22 word">
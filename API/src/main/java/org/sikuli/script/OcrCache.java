@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2010-2021, sikuli.org, sikulix.com - MIT license
+ */
+package org.sikuli.script;
+
+import org.sikuli.basics.Debug;
+import org.sikuli.support.Commons;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * INTERNAL USE: the OCR results of one Region/Image (switched on with Element.setOcrCache(true))<br>
+ * - unchanged pixels (checksum): the last result is returned without OCR<br>
+ * - changed pixels: only horizontal bands around the changes (as found by a ChangeTracker)
+ * are read again and merged into the lines and words of the last result
+ */
+public class OcrCache {
+
+  private static String me = "OcrCache: ";
+  private static int lvl = 3;
+
+  private static void log(int level, String message, Object... args) {
+    Debug.logx(level, me + message, args);
+  }
+
+  // changed bands covering more than this part of the image: read the whole image again
+  private static final double maxChangedPart = 0.5;
+  // changes are extended by this margin before looking for touched lines
+  private static final int bandMargin = 4;
+
+  private String text = null;
+  private long textHash = 0;
+  private String textOptions = null;
+
+  private List<TextRecognizer.TextLine> lines = null;
+  private long linesHash = 0;
+  private String linesOptions = null;
+  private int width = -1;
+  private int height = -1;
+  private ChangeTracker tracker = new ChangeTracker();
+
+  private int hits = 0;
+  private int partialReads = 0;
+  private int fullReads = 0;
+
+  /**
+   * @return number of reads answered from the cache without OCR
+   */
+  public int getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of reads, where only changed parts were read again
+   */
+  public int getPartialReads() {
+    return partialReads;
+  }
+
+  /**
+   * @return number of reads, where the whole image was read
+   */
+  public int getFullReads() {
+    return fullReads;
+  }
+
+  /**
+   * forget the cached results
+   */
+  public synchronized void reset() {
+    text = null;
+    lines = null;
+    tracker.reset();
+  }
+
+  /**
+   * the text of the image (as with OCR.readText) - taken from the cache if the pixels did not change
+   *
+   * @param bimg the current image
+   * @return the text
+   */
+  public synchronized String readText(BufferedImage bimg) {
+    TextRecognizer recognizer = TextRecognizer.get(OCR.globalOptions());
+    long hash = Commons.getImageHash(bimg);
+    String options = recognizer.getOptionsKey();
+    if (text != null && hash == textHash && options.equals(textOptions)) {
+      hits++;
+      return text;
+    }
+    fullReads++;
+    text = recognizer.readText(bimg);
+    textHash = hash;
+    textOptions = options;
+    return text;
+  }
+
+  /**
+   * the lines and words of the image (as with OCR.readLines/readWords)
+   *
+   * @param bimg the current image
+   * @return the lines with their words
+   */
+  public synchronized TextRecognizer.TextResult read(BufferedImage bimg) {
+    TextRecognizer recognizer = TextRecognizer.get(OCR.globalOptions());
+    long hash = Commons.getImageHash(bimg);
+    String options = recognizer.getOptionsKey();
+    boolean sameSetup = lines != null && options.equals(linesOptions)
+        && bimg.getWidth() == width && bimg.getHeight() == height;
+    if (sameSetup && hash == linesHash) {
+      hits++;
+      return new TextRecognizer.TextResult(lines);
+    }
+    // the tracker must see every new image to stay in sync with the cached lines
+    List<Region> changes = tracker.findChanges(bimg);
+    List<Rectangle> bands = null;
+    if (sameSetup && !changes.isEmpty()) {
+      bands = getBands(changes);
+      long bandArea = 0;
+      for (Rectangle band : bands) {
+        bandArea += (long) band.width * band.height;
+      }
+      if (bandArea > maxChangedPart * width * height) {
+        bands = null;
+      }
+    }
+    if (bands == null) {
+      fullReads++;
+      width = bimg.getWidth();
+      height = bimg.getHeight();
+      lines = new ArrayList<>(recognizer.readTextResult(bimg).getTextLines());
+    } else {
+      partialReads++;
+      List<TextRecognizer.TextLine> merged = new ArrayList<>();
+      for (TextRecognizer.TextLine line : lines) {
+        if (!isInBands(line.line.box, bands)) {
+          merged.add(line);
+        }
+      }
+      for (Rectangle band : bands) {
+        BufferedImage bBand = Image.createSubimage(bimg, band);
+        for (TextRecognizer.TextLine bandLine : recognizer.readTextResult(bBand).getTextLines()) {
+          TextRecognizer.TextLine line = new TextRecognizer.TextLine(bandLine.line.moved(band.x, band.y));
+          for (TextRecognizer.TextItem word : bandLine.words) {
+            line.words.add(word.moved(band.x, band.y));
+          }
+          merged.add(line);
+        }
+      }
+      merged.sort((line1, line2) -> line1.line.box.y != line2.line.box.y ?
+          Integer.compare(line1.line.box.y, line2.line.box.y) : Integer.compare(line1.line.box.x, line2.line.box.x));
+      log(lvl + 1, "read: %d changed bands - %d lines", bands.size(), merged.size());
+      lines = merged;
+    }
+    linesHash = hash;
+    linesOptions = options;
+    return new TextRecognizer.TextResult(lines);
+  }
+
+  /**
+   * full width bands around the changes, extended to the cached lines they touch (merged if overlapping)
+   */
+  private List<Rectangle> getBands(List<Region> changes) {
+    Rectangle rImage = new Rectangle(0, 0, width, height);
+    List<Rectangle> bands = new ArrayList<>();
+    for (Region change : changes) {
+      Rectangle band = new Rectangle(0, change.y - bandMargin, width, change.h + 2 * bandMargin);
+      boolean extended = true;
+      while (extended) {
+        extended = false;
+        for (TextRecognizer.TextLine line : lines) {
+          Rectangle lineBand = new Rectangle(0, line.line.box.y, width, line.line.box.height);
+          if (band.intersects(lineBand) && !band.contains(lineBand)) {
+            band = band.union(lineBand);
+            extended = true;
+          }
+        }
+        for (Rectangle other : bands) {
+          if (band.intersects(other)) {
+            bands.remove(other);
+            band = band.union(other);
+            extended = true;
+            break;
+          }
+        }
+      }
+      band = band.intersection(rImage);
+      if (!band.isEmpty()) {
+        bands.add(band);
+      }
+    }
+    return bands;
+  }
+
+  private boolean isInBands(Rectangle box, List<Rectangle> bands) {
+    for (Rectangle band : bands) {
+      if (box.y < band.y + band.height && band.y < box.y + box.height) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -27,6 +27,7 @@ public class Pattern {
   private int waitAfter = 0;
   private boolean imagePattern = false;
   private float resizeFactor = 0;
+  private Boolean searchDownsized = null;
 
   public static Pattern make(Image img, double sim, Location off, float rFactor, String mask) {
     org.sikuli.script.Pattern pattern = new org.sikuli.script.Pattern(img);
@@ -56,6 +57,7 @@ public class Pattern {
     offset.y = p.offset.y;
     imagePattern = image.isPattern();
     resizeFactor = p.getResize();
+    searchDownsized = p.searchDownsized;
   }
 
   /**
@@ -78,6 +80,28 @@ public class Pattern {
     return resizeFactor;
   }
 
+  /**
+   * search downsized first (coarse-to-fine) for this Pattern (overwrites Settings.SearchDownsized)<br>
+   * the candidates are verified in the original (see Settings.SearchDownsized)
+   *
+   * @param state true/false
+   * @return the Pattern object itself
+   */
+  public Pattern downsized(boolean state) {
+    searchDownsized = state;
+    return this;
+  }
+
+  /**
+   * @return true if this Pattern should be searched downsized first (Settings.SearchDownsized if not set)
+   */
+  public boolean isDownsized() {
+    if (searchDownsized == null) {
+      return Settings.SearchDownsized;
+    }
+    return searchDownsized;
+  }
+
   /**
    * true if Pattern was created from Image
    *
@@ -16,7 +16,14 @@ import java.awt.Rectangle;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -247,6 +254,31 @@ public class Region extends Element {
   private float waitScanRateDefault = Settings.WaitScanRate;
   private float waitScanRate = waitScanRateDefault;
 
+  private int lastScans = 0;
+  private int lastScansSkipped = 0;
+  private long lastScanCpuTime = -1;
+
+  /**
+   * @return number of searches done by the last wait, exists, waitVanish
+   */
+  public int getLastScans() {
+    return lastScans;
+  }
+
+  /**
+   * @return number of scans skipped by the last wait, exists, waitVanish (region did not change)
+   */
+  public int getLastScansSkipped() {
+    return lastScansSkipped;
+  }
+
+  /**
+   * @return msec CPU time used by the last wait, exists, waitVanish (-1 if not available)
+   */
+  public long getLastScanCpuTime() {
+    return lastScanCpuTime;
+  }
+
 
   /**
    * @return the regions current ObserveScanRate
@@ -2315,13 +2347,6 @@ public class Region extends Element {
     return doExists(rf, timeout);
   }
 
-  private <PSI> RepeatableFind existsStoppableInit(PSI target) {
-    lastMatch = null;
-    RepeatableFind rf = doExistsInit(target);
-    rf.resetShouldStop();
-    return rf;
-  }
-
   private <PSI> RepeatableFind doExistsInit(PSI target) {
     RepeatableFind rf = new RepeatableFind(target, null);
     Image img = rf._image;
@@ -2782,7 +2807,7 @@ public class Region extends Element {
     }
     if (repeating != null && repeating._finder != null) {
       finder = repeating._finder;
-      simg = getScreen().capture(this);
+      simg = captureFor(repeating);
       finder.setScreenImage(simg);
       finder.setRepeating();
       if (Settings.FindProfiling) {
@@ -2793,6 +2818,7 @@ public class Region extends Element {
       finder.findRepeat();
     } else {
       //screen = getScreen();
+      ScreenImage base = repeating == null ? null : repeating.getCapture();
       lastFindTime = (new Date()).getTime();
       if (ptn instanceof String) {
         if (((String) ptn).startsWith("\t") && ((String) ptn).endsWith("\t")) {
@@ -2801,7 +2827,7 @@ public class Region extends Element {
         } else {
           if (img.isValid()) {
             lastSearchTime = (new Date()).getTime();
-            finder = checkLastSeenAndCreateFinder(img, findTimeout, null);
+            finder = doCheckLastSeenAndCreateFinder(base, img, findTimeout, null);
             if (!finder.hasNext()) {
               runFinder(finder, img);
             }
@@ -2819,7 +2845,7 @@ public class Region extends Element {
       } else if (ptn instanceof Pattern) {
         if (img.isValid()) {
           lastSearchTime = (new Date()).getTime();
-          finder = checkLastSeenAndCreateFinder(img, findTimeout, (Pattern) ptn);
+          finder = doCheckLastSeenAndCreateFinder(base, img, findTimeout, (Pattern) ptn);
           if (!finder.hasNext()) {
             runFinder(finder, ptn);
           }
@@ -2827,7 +2853,7 @@ public class Region extends Element {
       } else if (ptn instanceof Image || ptn instanceof ScreenImage) {
         if (img.isValid()) {
           lastSearchTime = (new Date()).getTime();
-          finder = checkLastSeenAndCreateFinder(img, findTimeout, null);
+          finder = doCheckLastSeenAndCreateFinder(base, img, findTimeout, null);
           if (!finder.hasNext()) {
             runFinder(finder, img);
           }
@@ -2858,6 +2884,14 @@ public class Region extends Element {
     return match;
   }
 
+  /**
+   * @return the capture taken by the repeating scan for its change check or a new one
+   */
+  private ScreenImage captureFor(Repeatable repeating) {
+    ScreenImage capture = repeating == null ? null : repeating.getCapture();
+    return capture != null ? capture : getScreen().capture(this);
+  }
+
   private void runFinder(Finder f, Object target) {
     if (Debug.shouldHighlight()) {
       if (getScreen().getW() > w + 20 && getScreen().getH() > h + 20) {
@@ -2871,44 +2905,43 @@ public class Region extends Element {
     }
   }
 
-  private Finder checkLastSeenAndCreateFinder(Image img, double findTimeout, Pattern ptn) {
-    return doCheckLastSeenAndCreateFinder(null, img, findTimeout, ptn);
-  }
-
   private Finder doCheckLastSeenAndCreateFinder(ScreenImage base, Image img, double findTimeout, Pattern ptn) {
     if (base == null) {
       base = getScreen().capture(this);
     }
-    boolean shouldCheckLastSeen = false;
-    double score = 0;
-    if (Settings.CheckLastSeen && null != img.getLastSeen()) {
-      score = img.getLastSeenScore() - 0.01;
-      if (ptn != null) {
-        if (!(ptn.getSimilar() > score)) {
-          shouldCheckLastSeen = true;
-        }
-      }
-    }
-    if (shouldCheckLastSeen) {
-      Region r = Region.create(img.getLastSeen());
-      if (this.contains(r)) {
-        Finder f = new Finder(base.getSub(r.getRect()), r);
-        if (Debug.shouldHighlight()) {
-          if (getScreen().getW() > w + 10 && getScreen().getH() > h + 10) {
-            highlight(2, "#000255000");
+    ImageFacts.restore(img);
+    if (Settings.CheckLastSeen) {
+      int hotspotIndex = 0;
+      for (Image.Hotspot hotspot : img.getHotspots()) {
+        boolean shouldCheckLastSeen = false;
+        double score = hotspot.getScore() - 0.01;
+        if (ptn != null) {
+          if (!(ptn.getSimilar() > score)) {
+            shouldCheckLastSeen = true;
           }
         }
+        Region r = Region.create(hotspot.getRect(), getScreen());
+        if (shouldCheckLastSeen && this.contains(r)) {
+          Finder f = new Finder(base.getSub(r.getRect()), r);
+          if (Debug.shouldHighlight()) {
+            if (getScreen().getW() > w + 10 && getScreen().getH() > h + 10) {
+              highlight(2, "#000255000");
+            }
+          }
 
-        if (ptn == null) {
-          f.find(new Pattern(img).similar(score));
-        } else {
-          f.find(new Pattern(ptn).similar(score));
-        }
-        if (f.hasNext()) {
-          log(logLevel, "checkLastSeen: still there");
-          return f;
+          if (ptn == null) {
+            f.find(new Pattern(img).similar(score));
+          } else {
+            f.find(new Pattern(ptn).similar(score));
+          }
+          if (f.hasNext()) {
+            log(logLevel, "checkLastSeen: still there (place %d)", hotspotIndex);
+            f.setHotspot(hotspotIndex);
+            return f;
+          }
+          log(logLevel, "checkLastSeen: not there (place %d)", hotspotIndex);
         }
-        log(logLevel, "checkLastSeen: not there");
+        hotspotIndex++;
       }
     }
     return new Finder(base, this);
@@ -2924,7 +2957,7 @@ public class Region extends Element {
     String someText = "";
     if (repeating != null && repeating._finder != null) {
       finder = repeating._finder;
-      finder.setScreenImage(getScreen().capture(x, y, w, h));
+      finder.setScreenImage(captureFor(repeating));
       finder.setRepeating();
       finder.findAllRepeat();
     } else {
@@ -2936,7 +2969,7 @@ public class Region extends Element {
         } else {
           img = repeating._image;//Image.create((String) ptn);
           if (img.isValid()) {
-            finder = new Finder(getScreen().capture(x, y, w, h), this);
+            finder = new Finder(captureFor(repeating), this);
             finder.findAll(img);
           } else if (img.isText()) {
             findingText = true;
@@ -2950,13 +2983,13 @@ public class Region extends Element {
       } else if (ptn instanceof Pattern) {
         if (((Pattern) ptn).isValid()) {
           img = ((Pattern) ptn).getImage();
-          finder = new Finder(getScreen().capture(x, y, w, h), this);
+          finder = new Finder(captureFor(repeating), this);
           finder.findAll((Pattern) ptn);
         }
       } else if (ptn instanceof Image) {
         if (((Image) ptn).isValid()) {
           img = ((Image) ptn);
-          finder = new Finder(getScreen().capture(x, y, w, h), this);
+          finder = new Finder(captureFor(repeating), this);
           finder.findAll((Image) ptn);
         }
       } else {
@@ -2995,42 +3028,109 @@ public class Region extends Element {
       return findTimeout;
     }
 
+    /**
+     * @return false if run() does not search in getCapture() (text search captures itself)
+     */
+    boolean canCheckChange() {
+      return true;
+    }
+
+    private ScreenImage capture = null;
+
+    /**
+     * @return the capture of the current scan (taken for the change check) or null
+     */
+    ScreenImage getCapture() {
+      return capture;
+    }
+
+    int scans = 0;
+    int scansSkipped = 0;
+    long scanCpuTime = -1;
+
     // return TRUE if successful before timeout
     // return FALSE if otherwise
     // throws Exception if any unexpected error occurs
     boolean repeat(double timeout) {
       findTimeout = timeout;
       int MaxTimePerScan = (int) (1000.0 / waitScanRate);
+      int MaxTimeIdle = Math.max(MaxTimePerScan, (int) (Settings.WaitScanIdleMax * 1000));
       int timeoutMilli = (int) (timeout * 1000);
+      boolean shouldCheckChange = Settings.WaitChangeGated && !(timeoutMilli < MaxTimePerScan) && canCheckChange();
+      Long lastHash = null;
+      int timeIdle = MaxTimePerScan;
+      long cpuStart = getThreadCpuTime();
+      scans = 0;
+      scansSkipped = 0;
+      boolean success = false;
       long begin_t = (new Date()).getTime();
-      do {
-        if (null != shouldStop && shouldStop.get()) {
-          break;
-        }
-        long before_find = (new Date()).getTime();
-        run();
-        if (ifSuccessful()) {
-          return true;
-        } else if (timeoutMilli < MaxTimePerScan) {
-          return false;
-        }
-        long after_find = (new Date()).getTime();
-        if (after_find - before_find < MaxTimePerScan) {
-          try {
-            Thread.sleep(MaxTimePerScan - (after_find - before_find));
-          } catch (InterruptedException e) {
-            return false;
+      try {
+        do {
+          if (null != shouldStop && shouldStop.get()) {
+            break;
           }
-        } else {
+          long before_find = (new Date()).getTime();
+          boolean changed = true;
+          Long hash = null;
+          if (shouldCheckChange) {
+            capture = getScreen().capture(Region.this);
+            hash = capture == null ? null : Commons.getImageHash(capture.getImage());
+            changed = hash == null || !hash.equals(lastHash);
+          }
+          int timeToWait = MaxTimePerScan;
+          if (changed) {
+            // changed since last unsuccessful search: search immediately
+            scans++;
+            timeIdle = MaxTimePerScan;
+            run();
+            if (ifSuccessful()) {
+              success = true;
+              break;
+            } else if (timeoutMilli < MaxTimePerScan) {
+              break;
+            }
+            lastHash = hash;
+          } else {
+            // no change: same result as last time - back off
+            scansSkipped++;
+            timeIdle = Math.min(timeIdle * 2, MaxTimeIdle);
+            timeToWait = timeIdle;
+          }
+          long after_find = (new Date()).getTime();
+          long timeLeft = Math.max(0, begin_t + timeoutMilli - after_find);
           try {
-            Thread.sleep(10);
+            Thread.sleep(Math.min(timeLeft, Math.max(10, timeToWait - (after_find - before_find))));
           } catch (InterruptedException e) {
-            return false;
+            break;
           }
+        } while (begin_t + timeout * 1000 > (new Date()).getTime());
+      } finally {
+        capture = null;
+        scanCpuTime = cpuStart < 0 ? -1 : (getThreadCpuTime() - cpuStart) / 1000000;
+        lastScans = scans;
+        lastScansSkipped = scansSkipped;
+        lastScanCpuTime = scanCpuTime;
+        if (scansSkipped > 0) {
+          log(logLevel + 1, "repeat: scans: %d skipped: %d cpu: %d msec", scans, scansSkipped, scanCpuTime);
         }
-      } while (begin_t + timeout * 1000 > (new Date()).getTime());
-      return false;
+      }
+      return success;
+    }
+  }
+
+  private static boolean isTextTarget(Object target, Image img) {
+    if (target instanceof String && ((String) target).startsWith("\t") && ((String) target).endsWith("\t")) {
+      return true;
+    }
+    return img != null && !img.isValid() && img.isText();
+  }
+
+  private static long getThreadCpuTime() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean.isCurrentThreadCpuTimeSupported()) {
+      return threadBean.getCurrentThreadCpuTime();
     }
+    return -1;
   }
 
   private class RepeatableFind extends Repeatable {
@@ -3059,7 +3159,12 @@ public class Region extends Element {
       if (_finder != null) {
         _finder.destroy();
       }
-      return (_match == null) ? _match : new Match(_match);
+      if (_match == null) {
+        return null;
+      }
+      Match match = new Match(_match);
+      match.setScanStats(scans, scansSkipped, scanCpuTime);
+      return match;
     }
 
     @Override
@@ -3067,6 +3172,11 @@ public class Region extends Element {
       _match = doFind(_target, _image, this);
     }
 
+    @Override
+    boolean canCheckChange() {
+      return !isTextTarget(_target, _image);
+    }
+
     @Override
     boolean ifSuccessful() {
       return _match != null;
@@ -3110,6 +3220,11 @@ public class Region extends Element {
       _matches = doFindAll(_target, this);
     }
 
+    @Override
+    boolean canCheckChange() {
+      return !isTextTarget(_target, _image);
+    }
+
     @Override
     boolean ifSuccessful() {
       return _matches != null;
@@ -3118,115 +3233,97 @@ public class Region extends Element {
   //</editor-fold>
 
   //<editor-fold defaultstate="collapsed" desc="023 Find internal support">
-  private class SubFindRun implements Runnable {
-
-    Match[] mArray;
-    RepeatableFind[] rfArray;
-    ScreenImage base;
-    Object target;
-    Region reg;
-    double waitTime;
-    boolean finished = false;
-    int subN;
-
-    public SubFindRun(double pTime, Match[] pMArray, RepeatableFind[] pRfArray, int pSubN,
-                      ScreenImage pBase, Object pTarget, Region pReg) {
-      subN = pSubN;
-      base = pBase;
-      target = pTarget;
-      reg = pReg;
-      mArray = pMArray;
-      rfArray = pRfArray;
-      waitTime = pTime;
-    }
-
-    @Override
-    public void run() {
-      if (waitTime > 0) {
-        rfArray[subN] = reg.existsStoppableInit(target);
-        mArray[subN] = reg.doExists(rfArray[subN], waitTime);
-      } else {
-        try {
-          mArray[subN] = reg.findInImage(base, target);
-        } catch (Exception ex) {
-          log(-1, "findAnyCollect: image file not found:\n", target);
-        }
-      }
-      hasFinished(true);
-    }
-
-    public boolean hasFinished() {
-      return hasFinished(false);
-    }
-
-    public synchronized boolean hasFinished(boolean state) {
-      if (state) {
-        finished = true;
-      }
-      return finished;
-    }
-
-    public void shouldStop() {
-      if (!hasFinished()) {
-        rfArray[subN].setShouldStop();
-      }
-    }
-  }
-
+  /**
+   * find the given targets in parallel (Commons.getFindExecutor()) in one capture of this region per scan.<br>
+   * time = 0: one scan, all matches<br>
+   * time &gt; 0: scan with waitScanRate until at least one target is found or time is over,
+   * then the searches still pending are cancelled
+   */
   private List<Match> findAnyCollect(double time, List<Object> pList) {
     List<Match> mList = new ArrayList<Match>();
     if (pList == null) {
       return mList;
     }
     Match[] mArray = new Match[pList.size()];
-    RepeatableFind[] rfArray = new RepeatableFind[pList.size()];
-    SubFindRun[] theSubs = new SubFindRun[pList.size()];
-    int nobj = 0;
-    ScreenImage base = getScreen().capture(this);
-    for (Object obj : pList) {
-      mArray[nobj] = null;
-
-      if (obj instanceof Pattern || obj instanceof String || obj instanceof Image) {
-        theSubs[nobj] = new SubFindRun(time, mArray, rfArray, nobj, base, obj, this);
-        new Thread(theSubs[nobj]).start();
+    ExecutorService executor = Commons.getFindExecutor();
+    int maxTimePerScan = (int) (1000.0 / waitScanRate);
+    long begin_t = new Date().getTime();
+    boolean shouldWait = time > 0;
+    int scans = 0;
+    Debug.log(logLevel, "findAnyCollect: waiting for searches");
+    do {
+      long before_find = new Date().getTime();
+      ScreenImage base = getScreen().capture(this);
+      scans++;
+      CompletionService<Match> service = new ExecutorCompletionService<>(executor);
+      Map<Future<Match>, Integer> searches = new HashMap<>();
+      int nobj = 0;
+      for (Object obj : pList) {
+        if (obj instanceof Pattern || obj instanceof String || obj instanceof Image) {
+          final Object target = obj;
+          searches.put(service.submit(() -> {
+            try {
+              return findInImage(base, target);
+            } catch (Exception ex) {
+              log(-1, "findAnyCollect: image file not found:\n", target);
+            }
+            return null;
+          }), nobj);
+        }
+        nobj++;
       }
-      nobj++;
-    }
-    Debug.log(logLevel, "findAnyCollect: waiting for SubFindRuns");
-    if (time > 0) {
-      boolean any = false;
-      while (!any) {
-        any = false;
-        for (SubFindRun sub : theSubs) {
-          if (sub.hasFinished()) {
-            any = true;
-            break;
+      boolean anyFound = false;
+      try {
+        for (int n = 0; n < searches.size(); n++) {
+          Future<Match> search = service.take();
+          Match match = search.get();
+          if (match != null) {
+            mArray[searches.get(search)] = match;
+            anyFound = true;
+            if (shouldWait) {
+              break;
+            }
           }
         }
+      } catch (InterruptedException | ExecutionException e) {
+        Debug.log(-1, "findAnyCollect: %s", e.getMessage());
+        shouldWait = false;
       }
-      for (SubFindRun sub : theSubs) {
-        sub.shouldStop();
-      }
-    } else {
-      boolean all = false;
-      while (!all) {
-        all = true;
-        for (SubFindRun sub : theSubs) {
-          all &= sub.hasFinished();
+      if (anyFound && shouldWait) {
+        for (Future<Match> search : searches.keySet()) {
+          if (search.isDone() && !search.isCancelled()) {
+            try {
+              Match match = search.get();
+              if (match != null) {
+                mArray[searches.get(search)] = match;
+              }
+            } catch (InterruptedException | ExecutionException e) {
+            }
+          } else {
+            search.cancel(false);
+          }
         }
       }
+      if (anyFound || !shouldWait) {
+        break;
+      }
+      long after_find = new Date().getTime();
+      try {
+        Thread.sleep(Math.max(10, maxTimePerScan - (after_find - before_find)));
+      } catch (InterruptedException e) {
+        break;
+      }
+    } while (begin_t + time * 1000 > new Date().getTime());
+    if (time > 0) {
+      Debug.log(logLevel, "waitAnyCollect: finished after %d scans", scans);
+    } else {
+      Debug.log(logLevel, "findAnyCollect: all searches finished");
     }
-    if (time > 0)
-      Debug.log(logLevel, "waitAnyCollect: first SubFindRun finished");
-    else {
-      Debug.log(logLevel, "findAnyCollect: all SubFindRuns finished");
-    }
-    nobj = 0;
+    int nobj = 0;
     for (Match match : mArray) {
       if (match != null) {
         match.setIndex(nobj);
         mList.add(match);
-      } else {
       }
       nobj++;
     }
@@ -3256,7 +3353,7 @@ public class Region extends Element {
       }
       if (findingText) {
         log(logLevel, "findInImage: Switching to TextSearch");
-        finder = new Finder(getScreen().capture(x, y, w, h), this);
+        finder = new Finder(base, this);
         finder.findText((String) target);
       }
     } else if (target instanceof Pattern) {
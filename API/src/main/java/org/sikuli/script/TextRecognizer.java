@@ -3,10 +3,10 @@
  */
 package org.sikuli.script;
 
-import net.sourceforge.tess4j.ITesseract;
+import com.sun.jna.Pointer;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
 import net.sourceforge.tess4j.Tesseract1;
-import net.sourceforge.tess4j.TesseractException;
-import net.sourceforge.tess4j.Word;
 import org.opencv.core.Core;
 import org.opencv.core.Mat;
 import org.opencv.core.Size;
@@ -19,10 +19,17 @@ import org.sikuli.support.RunTime;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Intended to be used only internally - still public for being backward compatible
@@ -94,9 +101,13 @@ public class TextRecognizer {
     return textRecognizer;
   }
 
-  private ITesseract getTesseractAPI() {
+  private Engine getTesseractAPI() {
+    return acquireEngine(options);
+  }
+
+  private static Engine createEngine(OCR.Options options, String fingerprint) {
     try {
-      ITesseract tesseract = new Tesseract1();
+      Engine tesseract = new Engine(fingerprint);
       tesseract.setOcrEngineMode(options.oem());
       tesseract.setPageSegMode(options.psm());
       tesseract.setLanguage(options.language());
@@ -150,6 +161,219 @@ public class TextRecognizer {
   }
   //</editor-fold>
 
+  //<editor-fold desc="01 engine pool">
+
+  /**
+   * a Tesseract engine, that is initialized (traineddata loaded) at first use
+   * and kept for later use with the same options (Tess4J would init and dispose on each call)
+   */
+  private static class Engine extends Tesseract1 {
+
+    private final String fingerprint;
+    private boolean initialized = false;
+
+    Engine(String fingerprint) {
+      this.fingerprint = fingerprint;
+    }
+
+    @Override
+    protected void init() {
+      if (!initialized) {
+        super.init();
+        initialized = true;
+      }
+    }
+
+    @Override
+    protected void dispose() {
+      // keep the engine for the next use
+    }
+
+    void close() {
+      if (initialized) {
+        super.dispose();
+        initialized = false;
+      }
+    }
+
+    private ByteBuffer imageBuffer = null;
+    private byte[] imageBytes = null;
+
+    /**
+     * hand the pixels of the gray image directly to Tesseract
+     */
+    private void setImage(Mat img) {
+      int size = (int) (img.total() * img.elemSize());
+      if (imageBytes == null || imageBytes.length != size) {
+        imageBytes = new byte[size];
+      }
+      if (imageBuffer == null || imageBuffer.capacity() < size) {
+        imageBuffer = ByteBuffer.allocateDirect(size);
+      }
+      img.get(0, 0, imageBytes);
+      imageBuffer.clear();
+      imageBuffer.put(imageBytes);
+      imageBuffer.flip();
+      TessAPI1.TessBaseAPISetImage(getHandle(), imageBuffer, img.cols(), img.rows(),
+          (int) img.elemSize(), img.cols() * (int) img.elemSize());
+    }
+
+    /**
+     * @param img the image (8 bit gray)
+     * @return the text
+     */
+    String getText(Mat img) {
+      init();
+      setTessVariables();
+      setImage(img);
+      Pointer ptr = TessAPI1.TessBaseAPIGetUTF8Text(getHandle());
+      if (ptr == null) {
+        return "";
+      }
+      String text = ptr.getString(0, "UTF-8");
+      TessAPI1.TessDeleteText(ptr);
+      return text;
+    }
+
+    /**
+     * one recognition, iterated at word level: the lines with their words
+     *
+     * @param img the image (8 bit gray)
+     * @return the lines (boxes relative to the image)
+     */
+    List<TextLine> getLinesAndWords(Mat img) {
+      List<TextLine> lines = new ArrayList<>();
+      init();
+      setTessVariables();
+      setImage(img);
+      TessAPI1.TessBaseAPIRecognize(getHandle(), null);
+      ITessAPI.TessResultIterator ri = TessAPI1.TessBaseAPIGetIterator(getHandle());
+      if (ri == null) {
+        return lines;
+      }
+      ITessAPI.TessPageIterator pi = TessAPI1.TessResultIteratorGetPageIterator(ri);
+      TessAPI1.TessPageIteratorBegin(pi);
+      TextLine line = null;
+      do {
+        if (lines.isEmpty()
+            || TessAPI1.TessPageIteratorIsAtBeginningOf(pi, OCR.PAGE_ITERATOR_LEVEL_LINE) == ITessAPI.TRUE) {
+          TextItem lineItem = getTextItem(ri, pi, OCR.PAGE_ITERATOR_LEVEL_LINE);
+          line = lineItem == null ? null : new TextLine(lineItem);
+          if (line != null) {
+            lines.add(line);
+          }
+        }
+        if (line != null) {
+          TextItem word = getTextItem(ri, pi, OCR.PAGE_ITERATOR_LEVEL_WORD);
+          if (word != null) {
+            line.words.add(word);
+          }
+        }
+      } while (TessAPI1.TessPageIteratorNext(pi, OCR.PAGE_ITERATOR_LEVEL_WORD) == ITessAPI.TRUE);
+      TessAPI1.TessResultIteratorDelete(ri);
+      return lines;
+    }
+
+    private TextItem getTextItem(ITessAPI.TessResultIterator ri, ITessAPI.TessPageIterator pi, int level) {
+      Pointer ptr = TessAPI1.TessResultIteratorGetUTF8Text(ri, level);
+      if (ptr == null) {
+        return null;
+      }
+      String text = ptr.getString(0, "UTF-8");
+      TessAPI1.TessDeleteText(ptr);
+      float confidence = TessAPI1.TessResultIteratorConfidence(ri, level);
+      IntBuffer left = IntBuffer.allocate(1);
+      IntBuffer top = IntBuffer.allocate(1);
+      IntBuffer right = IntBuffer.allocate(1);
+      IntBuffer bottom = IntBuffer.allocate(1);
+      TessAPI1.TessPageIteratorBoundingBox(pi, level, left, top, right, bottom);
+      return new TextItem(new Rectangle(left.get(0), top.get(0),
+          right.get(0) - left.get(0), bottom.get(0) - top.get(0)), confidence, text.trim());
+    }
+  }
+
+  // released engines - least recently used first
+  private static final LinkedList<Engine> idleEngines = new LinkedList<>();
+  private static int engineCount = 0;
+
+  /**
+   * get an engine for the given options for exclusive use by the current thread (must be released after use)<br>
+   * an idle engine with the same options fingerprint is reused, otherwise a new one is created
+   * (at most Settings.OcrEngines engines - the least recently used idle one is dropped if needed)<br>
+   * if all engines are in use, waits for one to be released
+   *
+   * @param options the options
+   * @return the engine
+   */
+  private static Engine acquireEngine(OCR.Options options) {
+    String fingerprint = options.fingerprint();
+    Engine dropped = null;
+    synchronized (idleEngines) {
+      while (true) {
+        Iterator<Engine> it = idleEngines.descendingIterator();
+        while (it.hasNext()) {
+          Engine engine = it.next();
+          if (engine.fingerprint.equals(fingerprint)) {
+            it.remove();
+            return engine;
+          }
+        }
+        if (engineCount < Math.max(1, Settings.OcrEngines)) {
+          engineCount++;
+          break;
+        }
+        if (!idleEngines.isEmpty()) {
+          dropped = idleEngines.removeFirst();
+          break;
+        }
+        try {
+          idleEngines.wait();
+        } catch (InterruptedException e) {
+          throw new SikuliXception("OCR: waiting for a Tesseract engine was interrupted");
+        }
+      }
+    }
+    if (dropped != null) {
+      Debug.log(lvl, "OCR: engine dropped: %s", dropped.fingerprint);
+      dropped.close();
+    }
+    try {
+      Engine engine = createEngine(options, fingerprint);
+      Debug.log(lvl, "OCR: engine created: %s", fingerprint);
+      return engine;
+    } catch (RuntimeException e) {
+      synchronized (idleEngines) {
+        engineCount--;
+        idleEngines.notifyAll();
+      }
+      throw e;
+    }
+  }
+
+  private static void releaseEngine(Engine engine) {
+    synchronized (idleEngines) {
+      idleEngines.addLast(engine);
+      idleEngines.notifyAll();
+    }
+  }
+
+  /**
+   * INTERNAL: closes all idle Tesseract engines (engines in use are kept)
+   */
+  protected static void closeEngines() {
+    List<Engine> engines;
+    synchronized (idleEngines) {
+      engines = new ArrayList<>(idleEngines);
+      idleEngines.clear();
+      engineCount -= engines.size();
+      idleEngines.notifyAll();
+    }
+    for (Engine engine : engines) {
+      engine.close();
+    }
+  }
+  //</editor-fold>
+
   //<editor-fold desc="02 set OEM, PSM">
 
   /**
@@ -288,41 +512,199 @@ public class TextRecognizer {
     return this;
   }
 
-  private BufferedImage optimize(BufferedImage bimg) {
-    Mat mimg = Commons.makeMat(bimg);
+  /**
+   * a step of the image optimization before OCR (see {@link #getOptimizeStages()})
+   */
+  public static abstract class OptimizeStage {
+    private final String name;
 
-    Imgproc.cvtColor(mimg, mimg, Imgproc.COLOR_BGR2GRAY);
+    public OptimizeStage(String name) {
+      this.name = name;
+    }
 
-    // sharpen original image to primarily get rid of sub pixel rendering artifacts
-    mimg = unsharpMask(mimg, 3);
+    public String getName() {
+      return name;
+    }
 
-    float rFactor = options.factor();
+    /**
+     * @param img     the current image (8 bit gray after stage gray)
+     * @param options the OCR options
+     * @param context the reusable Mats of the current thread
+     * @return the resulting image (might be img itself, if changed in place)
+     */
+    public abstract Mat apply(Mat img, OCR.Options options, StageContext context);
+
+    @Override
+    public String toString() {
+      return "OptimizeStage: " + name;
+    }
+  }
 
-    if (rFactor > 0 && rFactor != 1) {
-      Commons.resize(mimg, rFactor, options.resizeInterpolation());
+  /**
+   * the Mats used by the optimize stages of the current thread - reused with each OCR on this thread
+   */
+  public static class StageContext {
+    private final Map<String, Mat> mats = new HashMap<>();
+
+    /**
+     * @param name identifies the Mat (use the stage name as prefix)
+     * @return the Mat for this name (created at first use)
+     */
+    public Mat getMat(String name) {
+      return mats.computeIfAbsent(name, key -> new Mat());
     }
+  }
+
+  private static final ThreadLocal<StageContext> stageContext = ThreadLocal.withInitial(StageContext::new);
+
+  private static final List<OptimizeStage> optimizeStages = new CopyOnWriteArrayList<>(Arrays.asList(
+      new OptimizeStage("gray") {
+        @Override
+        public Mat apply(Mat img, OCR.Options options, StageContext context) {
+          if (img.channels() == 1) {
+            return img;
+          }
+          Mat gray = context.getMat("gray");
+          Imgproc.cvtColor(img, gray, img.channels() == 4 ? Imgproc.COLOR_BGRA2GRAY : Imgproc.COLOR_BGR2GRAY);
+          return gray;
+        }
+      },
+      // sharpen original image to primarily get rid of sub pixel rendering artifacts
+      new OptimizeStage("sharpen") {
+        @Override
+        public Mat apply(Mat img, OCR.Options options, StageContext context) {
+          return unsharpMask(img, 3, context);
+        }
+      },
+      new OptimizeStage("resize") {
+        @Override
+        public Mat apply(Mat img, OCR.Options options, StageContext context) {
+          float rFactor = options.factor();
+          if (rFactor > 0 && rFactor != 1) {
+            Mat resized = context.getMat("resize");
+            Commons.resize(img, resized, rFactor, options.resizeInterpolation());
+            return resized;
+          }
+          return img;
+        }
+      },
+      // sharpen the enlarged image again
+      new OptimizeStage("sharpenResized") {
+        @Override
+        public Mat apply(Mat img, OCR.Options options, StageContext context) {
+          return unsharpMask(img, 5, context);
+        }
+      },
+      // invert if font color is said to be light
+      new OptimizeStage("invert") {
+        @Override
+        public Mat apply(Mat img, OCR.Options options, StageContext context) {
+          if (options.isLightFont()) {
+            Core.bitwise_not(img, img);
+          }
+          //TODO does it really make sense? invert in case of mainly dark background
+//          else if (Core.mean(img).val[0] < 127) {
+//            Core.bitwise_not(img, img);
+//          }
+          return img;
+        }
+      }
+  ));
 
-    // sharpen the enlarged image again
-    mimg = unsharpMask(mimg, 5);
+  /**
+   * the stages run in this order on every image before OCR (gray, sharpen, resize, sharpenResized, invert)<br>
+   * the list can be changed (e.g. add a binarization or deskew stage) - used by all threads
+   *
+   * @return the modifiable list of stages
+   */
+  public static List<OptimizeStage> getOptimizeStages() {
+    return optimizeStages;
+  }
 
-    // invert if font color is said to be light
-    if (options.isLightFont()) {
-      Core.bitwise_not(mimg, mimg);
+  /**
+   * add a stage after the stage with the given name (at the end, if not found)
+   *
+   * @param after the name of an existing stage
+   * @param stage the stage to add
+   */
+  public static void addOptimizeStage(String after, OptimizeStage stage) {
+    int index = optimizeStages.size();
+    for (int n = 0; n < optimizeStages.size(); n++) {
+      if (optimizeStages.get(n).getName().equals(after)) {
+        index = n + 1;
+        break;
+      }
     }
-    //TODO does it really make sense? invert in case of mainly dark background
-//    else if (Core.mean(mimg).val[0] < 127) {
-//      Core.bitwise_not(mimg, mimg);
-//    }
+    optimizeStages.add(index, stage);
+  }
 
-    BufferedImage optImg = Commons.getBufferedImage(mimg);
-    return optImg;
+  /**
+   * @param name the name of the stage to remove
+   * @return true if removed
+   */
+  public static boolean removeOptimizeStage(String name) {
+    return optimizeStages.removeIf(stage -> stage.getName().equals(name));
+  }
+
+  // per stage: count, nanos
+  private static final Map<String, long[]> stageTimings = new LinkedHashMap<>();
+
+  /**
+   * @return per stage name: number of runs and the sum of their durations in nanoseconds
+   */
+  public static Map<String, long[]> getOptimizeTimings() {
+    Map<String, long[]> timings = new LinkedHashMap<>();
+    synchronized (stageTimings) {
+      for (Map.Entry<String, long[]> entry : stageTimings.entrySet()) {
+        timings.put(entry.getKey(), entry.getValue().clone());
+      }
+    }
+    return timings;
+  }
+
+  public static void resetOptimizeTimings() {
+    synchronized (stageTimings) {
+      stageTimings.clear();
+    }
+  }
+
+  /**
+   * log the optimize timings (count and mean msec per stage)
+   */
+  public static void dumpOptimizeTimings() {
+    for (Map.Entry<String, long[]> entry : getOptimizeTimings().entrySet()) {
+      long[] timing = entry.getValue();
+      Debug.logp("OCR: optimize: %s: %d runs %.2f msec", entry.getKey(), timing[0],
+          timing[0] == 0 ? 0 : timing[1] / 1e6 / timing[0]);
+    }
+  }
+
+  /**
+   * runs the optimize stages on the image
+   *
+   * @return the optimized gray image (reused with the next OCR on this thread)
+   */
+  private Mat optimize(BufferedImage bimg) {
+    StageContext context = stageContext.get();
+    Mat mimg = Commons.makeMat(bimg, true, context.getMat("source"));
+    for (OptimizeStage stage : optimizeStages) {
+      long start = System.nanoTime();
+      mimg = stage.apply(mimg, options, context);
+      long duration = System.nanoTime() - start;
+      synchronized (stageTimings) {
+        long[] timing = stageTimings.computeIfAbsent(stage.getName(), key -> new long[2]);
+        timing[0]++;
+        timing[1] += duration;
+      }
+    }
+    return mimg;
   }
 
   /*
    * sharpens the image using an unsharp mask
    */
-  private Mat unsharpMask(Mat img, double sigma) {
-    Mat blurred = new Mat();
+  private static Mat unsharpMask(Mat img, double sigma, StageContext context) {
+    Mat blurred = context.getMat("blurred");
     Imgproc.GaussianBlur(img, blurred, new Size(), sigma, sigma);
     Core.addWeighted(img, 1.5, blurred, -0.5, 0, img);
     return img;
@@ -371,32 +753,205 @@ public class TextRecognizer {
   protected <SFIRBS> String doRead(SFIRBS from) {
     String text = "";
     BufferedImage bimg = Element.getBufferedImage(from);
+    Mat optimized = optimize(bimg);
+    Engine tesseract = getTesseractAPI();
     try {
-      text = getTesseractAPI().doOCR(optimize(bimg)).trim().replace("\n\n", "\n");
-    } catch (TesseractException e) {
-      Debug.error("OCR: read: Tess4J: doOCR: %s", e.getMessage());
+      text = tesseract.getText(optimized).trim().replace("\n\n", "\n");
+    } catch (RuntimeException e) {
+      Debug.error("OCR: read: Tesseract: %s", e.getMessage());
       return "";
+    } finally {
+      releaseEngine(tesseract);
     }
     return text;
   }
 
   protected <SFIRBS> List<Match> readTextItems(SFIRBS from, int level) {
-    List<Match> lines = new ArrayList<>();
+    TextResult result = readTextResult(from);
+    if (level == OCR.PAGE_ITERATOR_LEVEL_LINE) {
+      return result.getLines();
+    }
+    return result.getWords();
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="40 lines and words">
+
+  /**
+   * INTERNAL: a text item (line or word) as read by Tesseract
+   */
+  protected static class TextItem {
+    final Rectangle box;
+    final double score;
+    final String text;
+
+    TextItem(Rectangle box, double score, String text) {
+      this.box = box;
+      this.score = score;
+      this.text = text;
+    }
+
+    /**
+     * @return a new Match for this item
+     */
+    public Match toMatch() {
+      return new Match(new Rectangle(box), score, text);
+    }
+
+    /**
+     * @return a new TextItem with the box moved by the given offset
+     */
+    TextItem moved(int dx, int dy) {
+      Rectangle movedBox = new Rectangle(box);
+      movedBox.translate(dx, dy);
+      return new TextItem(movedBox, score, text);
+    }
+  }
+
+  /**
+   * INTERNAL: a line with its words
+   */
+  protected static class TextLine {
+    final TextItem line;
+    final List<TextItem> words = new ArrayList<>();
+
+    TextLine(TextItem line) {
+      this.line = line;
+    }
+
+    public Match getLine() {
+      return line.toMatch();
+    }
+
+    public List<Match> getWords() {
+      List<Match> matches = new ArrayList<>();
+      for (TextItem word : words) {
+        matches.add(word.toMatch());
+      }
+      return matches;
+    }
+  }
+
+  /**
+   * INTERNAL: the lines and words of an image read in one pass (boxes relative to the image)<br>
+   * the items are kept unchanged - each getter returns new Matches
+   */
+  protected static class TextResult {
+    private final List<TextLine> lines;
+
+    TextResult(List<TextLine> lines) {
+      this.lines = lines;
+    }
+
+    public List<TextLine> getTextLines() {
+      return lines;
+    }
+
+    public List<Match> getLines() {
+      List<Match> matches = new ArrayList<>();
+      for (TextLine line : lines) {
+        matches.add(line.getLine());
+      }
+      return matches;
+    }
+
+    public List<Match> getWords() {
+      List<Match> matches = new ArrayList<>();
+      for (TextLine line : lines) {
+        matches.addAll(line.getWords());
+      }
+      return matches;
+    }
+  }
+
+  // recently read images: key is image content and options - least recently used first
+  private static final Map<String, TextResult> textResults = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * INTERNAL: the lines and words of the given image - read in one pass with Tesseract<br>
+   * the result is cached (Settings.OcrCacheSize) with a key made from the image content and the options,
+   * so reading the same unchanged image again does not need OCR.
+   *
+   * @param from     source to read text from
+   * @param <SFIRBS> File name, File, Image, Region, BufferdImage or ScreenImage
+   * @return the lines with their words
+   */
+  protected <SFIRBS> TextResult readTextResult(SFIRBS from) {
     BufferedImage bimg = Element.getBufferedImage(from);
-    BufferedImage bimgResized = optimize(bimg);
-    List<Word> textItems = getTesseractAPI().getWords(bimgResized, level);
-    double wFactor = (double) bimg.getWidth() / bimgResized.getWidth();
-    double hFactor = (double) bimg.getHeight() / bimgResized.getHeight();
-    for (Word textItem : textItems) {
-      Rectangle boundingBox = textItem.getBoundingBox();
-      Rectangle realBox = new Rectangle(
-              (int) (boundingBox.x * wFactor) - 1,
-              (int) (boundingBox.y * hFactor) - 1,
-              1 + (int) (boundingBox.width * wFactor) + 2,
-              1 + (int) (boundingBox.height * hFactor) + 2);
-      lines.add(new Match(realBox, textItem.getConfidence(), textItem.getText().trim()));
-    }
-    return lines;
+    String key = null;
+    if (Settings.OcrCacheSize > 0) {
+      key = String.format("%d|%d|%d|%s", Commons.getImageHash(bimg), bimg.getWidth(), bimg.getHeight(),
+          getOptionsKey());
+      synchronized (textResults) {
+        TextResult result = textResults.get(key);
+        if (result != null) {
+          Debug.log(lvl + 1, "OCR: read: from cache: %d lines", result.getTextLines().size());
+          return result;
+        }
+      }
+    }
+    Mat optimized = optimize(bimg);
+    List<TextLine> textLines;
+    Engine tesseract = getTesseractAPI();
+    try {
+      textLines = tesseract.getLinesAndWords(optimized);
+    } catch (RuntimeException e) {
+      Debug.error("OCR: read: Tesseract: lines and words: %s", e.getMessage());
+      textLines = new ArrayList<>();
+    } finally {
+      releaseEngine(tesseract);
+    }
+    double wFactor = (double) bimg.getWidth() / optimized.cols();
+    double hFactor = (double) bimg.getHeight() / optimized.rows();
+    List<TextLine> lines = new ArrayList<>();
+    for (TextLine textLine : textLines) {
+      TextLine line = new TextLine(scaleTextItem(textLine.line, wFactor, hFactor));
+      for (TextItem word : textLine.words) {
+        line.words.add(scaleTextItem(word, wFactor, hFactor));
+      }
+      lines.add(line);
+    }
+    TextResult result = new TextResult(lines);
+    if (key != null) {
+      synchronized (textResults) {
+        textResults.put(key, result);
+        Iterator<String> it = textResults.keySet().iterator();
+        while (textResults.size() > Settings.OcrCacheSize && it.hasNext()) {
+          it.next();
+          it.remove();
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * INTERNAL: identifies the options, that influence the OCR result
+   *
+   * @return engine fingerprint and optimize parameters as text
+   */
+  protected String getOptionsKey() {
+    return String.format("%s|%.3f|%s|%s",
+        options.fingerprint(), options.factor(), options.isLightFont(), options.resizeInterpolation());
+  }
+
+  private static TextItem scaleTextItem(TextItem item, double wFactor, double hFactor) {
+    Rectangle boundingBox = item.box;
+    Rectangle realBox = new Rectangle(
+            (int) (boundingBox.x * wFactor) - 1,
+            (int) (boundingBox.y * hFactor) - 1,
+            1 + (int) (boundingBox.width * wFactor) + 2,
+            1 + (int) (boundingBox.height * hFactor) + 2);
+    return new TextItem(realBox, item.score, item.text);
+  }
+
+  /**
+   * INTERNAL: forget all cached OCR results
+   */
+  protected static void clearTextResults() {
+    synchronized (textResults) {
+      textResults.clear();
+    }
   }
   //</editor-fold>
 
@@ -11,6 +11,7 @@ import org.opencv.core.*;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 import org.sikuli.basics.Debug;
+import org.sikuli.basics.Settings;
 import org.sikuli.script.*;
 import org.sikuli.util.CommandArgs;
 import org.sikuli.util.CommandArgsEnum;
@@ -20,17 +21,22 @@ import java.awt.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
 import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
 import java.io.*;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.*;
-import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
 import java.security.CodeSource;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -71,6 +77,8 @@ public class Commons {
       }
       isRunning.delete();
     }
+    ImageFacts.saveAll();
+    Debug.flush();
   }
 
   public static void setIsRunning(File token, FileOutputStream tokenStream) {
@@ -282,13 +290,37 @@ public class Commons {
   }
 
   public static String[] getUserArgs() {
-    return userArgs;
+    String[] args = threadUserArgs.get();
+    return args != null ? args : userArgs;
   }
 
   public static void setUserArgs(String[] args) {
     userArgs = args;
   }
 
+  private static final ThreadLocal<String[]> threadUserArgs = new ThreadLocal<>();
+
+  /**
+   * user args only for the current thread (e.g. a server task running a script)<br>
+   * not inherited by new threads: a runner passes them to its worker thread
+   *
+   * @param args null: back to the global user args
+   */
+  public static void setThreadUserArgs(String[] args) {
+    if (args == null) {
+      threadUserArgs.remove();
+    } else {
+      threadUserArgs.set(args);
+    }
+  }
+
+  /**
+   * @return the user args set for the current thread (null: none, the global ones are used)
+   */
+  public static String[] getThreadUserArgs() {
+    return threadUserArgs.get();
+  }
+
   public static void printHelp() {
     cmdArgs.printHelp();
   }
@@ -416,6 +448,10 @@ public class Commons {
   private static File userHome = null;
 
   public static File getWorkDir() {
+    File threadDir = threadWorkDir.get();
+    if (threadDir != null) {
+      return threadDir;
+    }
     String workDirPath = "Env not valid";
     if (workDir == null) {
       workDirPath = System.getProperty("user.dir");
@@ -451,6 +487,42 @@ public class Commons {
     return workDir;
   }
 
+  private static final ThreadLocal<File> threadWorkDir = new ThreadLocal<>();
+
+  /**
+   * work dir only for the current thread (e.g. a server task running a script)<br>
+   * not inherited by new threads: a runner passes it to its worker thread
+   *
+   * @param path as with setWorkDir - null: back to the global work dir
+   * @return the work dir now valid for the current thread
+   */
+  public static File setThreadWorkDir(Object path) {
+    threadWorkDir.remove();
+    if (path == null) {
+      return getWorkDir();
+    }
+    File file = getWorkDir();
+    if (path instanceof String) {
+      file = new File((String) path);
+      if (!file.exists()) {
+        file = new File(getWorkDir(), (String) path);
+      }
+    } else if (path instanceof File) {
+      file = (File) path;
+    }
+    if (file.exists()) {
+      threadWorkDir.set(file);
+    }
+    return getWorkDir();
+  }
+
+  /**
+   * @return the work dir set for the current thread (null: none, the global one is used)
+   */
+  public static File getThreadWorkDir() {
+    return threadWorkDir.get();
+  }
+
   private static File workDir = null;
 
   public static String getJarLibsPath() {
@@ -1411,6 +1483,20 @@ public class Commons {
     cvResize(mat, factor, interpolation);
   }
 
+  /**
+   * resize the given image into the given target cvMat (reused if it has the needed size and type)
+   *
+   * @param mat           given image as cvMat
+   * @param target        the resized image
+   * @param factor        resize factor
+   * @param interpolation algorithm used for pixel interpolation.
+   */
+  public static void resize(Mat mat, Mat target, float factor, Interpolation interpolation) {
+    int newW = (int) (factor * mat.width());
+    int newH = (int) (factor * mat.height());
+    Imgproc.resize(mat, target, new Size(newW, newH), 0, 0, interpolation.value);
+  }
+
   private static Mat cvResize(BufferedImage bimg, double rFactor, Interpolation interpolation) {
     Mat mat = makeMat(bimg);
     cvResize(mat, rFactor, interpolation);
@@ -1467,43 +1553,59 @@ public class Commons {
   }
 
   public static Mat makeMat(BufferedImage bImg, boolean asBGR) {
-    if (bImg.getType() == BufferedImage.TYPE_INT_RGB) {
+    return makeMat(bImg, asBGR, null);
+  }
+
+  /**
+   * convert the given image to a cvMat by copying the pixels of the raster directly
+   * (INT_RGB, 3BYTE_BGR, 4BYTE_ABGR, BYTE_GRAY: no intermediate Mats)
+   *
+   * @param bImg  given image
+   * @param asBGR for TYPE_CUSTOM: drop the alpha channel
+   * @param reuse if not null: filled and returned (reallocated only if size/type differ)
+   * @return the cvMat (BGR, BGRA or GRAY)
+   */
+  public static Mat makeMat(BufferedImage bImg, boolean asBGR, Mat reuse) {
+    int type = bImg.getType();
+    if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_3BYTE_BGR
+        || type == BufferedImage.TYPE_4BYTE_ABGR || type == BufferedImage.TYPE_BYTE_GRAY)
+        && !isCompactRaster(bImg)) {
+      bImg = copyToType(bImg, type);
+    }
+    if (type == BufferedImage.TYPE_INT_RGB) {
+      //0RGB -> BGR
       int[] data = ((DataBufferInt) bImg.getRaster().getDataBuffer()).getData();
-      ByteBuffer byteBuffer = ByteBuffer.allocate(data.length * 4);
-      IntBuffer intBuffer = byteBuffer.asIntBuffer();
-      intBuffer.put(data);
-      Mat aMat = new Mat(bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC4);
-      aMat.put(0, 0, byteBuffer.array());
-      Mat oMatBGR = new Mat(bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC3);
-      Mat oMatA = new Mat(bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC1);
-      List<Mat> mixIn = new ArrayList<Mat>(Arrays.asList(new Mat[]{aMat}));
-      List<Mat> mixOut = new ArrayList<Mat>(Arrays.asList(new Mat[]{oMatA, oMatBGR}));
-      //A 0 - R 1 - G 2 - B 3 -> A 0 - B 1 - G 2 - R 3
-      Core.mixChannels(mixIn, mixOut, new MatOfInt(0, 0, 1, 3, 2, 2, 3, 1));
-      return oMatBGR;
-    } else if (bImg.getType() == BufferedImage.TYPE_3BYTE_BGR) {
+      byte[] bytes = getPooledBytes(data.length * 3);
+      int n = 0;
+      for (int pixel : data) {
+        bytes[n++] = (byte) pixel;
+        bytes[n++] = (byte) (pixel >> 8);
+        bytes[n++] = (byte) (pixel >> 16);
+      }
+      return putMat(reuse, bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC3, bytes);
+    } else if (type == BufferedImage.TYPE_3BYTE_BGR) {
       byte[] data = ((DataBufferByte) bImg.getRaster().getDataBuffer()).getData();
-      Mat aMatBGR = new Mat(bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC3);
-      aMatBGR.put(0, 0, data);
-      return aMatBGR;
-    } else if (bImg.getType() == BufferedImage.TYPE_BYTE_INDEXED
-        || bImg.getType() == BufferedImage.TYPE_BYTE_BINARY) {
-      String bImgType = "BYTE_BINARY";
-      if (bImg.getType() == BufferedImage.TYPE_BYTE_INDEXED) {
-        bImgType = "BYTE_INDEXED";
-      }
-      BufferedImage bimg3b = new BufferedImage(bImg.getWidth(), bImg.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-      Graphics graphics = bimg3b.getGraphics();
-      graphics.drawImage(bImg, 0, 0, null);
+      return putMat(reuse, bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC3, data);
+    } else if (type == BufferedImage.TYPE_BYTE_INDEXED
+        || type == BufferedImage.TYPE_BYTE_BINARY) {
+      BufferedImage bimg3b = copyToType(bImg, BufferedImage.TYPE_3BYTE_BGR);
       byte[] data = ((DataBufferByte) bimg3b.getRaster().getDataBuffer()).getData();
-      Mat aMatBGR = new Mat(bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC3);
-      aMatBGR.put(0, 0, data);
-      return aMatBGR;
-    } else if (bImg.getType() == BufferedImage.TYPE_4BYTE_ABGR
-        || bImg.getType() == BufferedImage.TYPE_CUSTOM) {
+      return putMat(reuse, bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC3, data);
+    } else if (type == BufferedImage.TYPE_4BYTE_ABGR) {
+      //ABGR -> BGRA
+      byte[] data = ((DataBufferByte) bImg.getRaster().getDataBuffer()).getData();
+      byte[] bytes = getPooledBytes(data.length);
+      for (int n = 0; n < data.length; n += 4) {
+        bytes[n] = data[n + 1];
+        bytes[n + 1] = data[n + 2];
+        bytes[n + 2] = data[n + 3];
+        bytes[n + 3] = data[n];
+      }
+      return putMat(reuse, bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC4, bytes);
+    } else if (type == BufferedImage.TYPE_CUSTOM) {
       List<Mat> mats = getMatList(bImg);
       Size size = mats.get(0).size();
-      if (!asBGR || bImg.getType() == BufferedImage.TYPE_4BYTE_ABGR) {
+      if (!asBGR) {
         Mat mBGRA = getNewMat(size, 4, -1);
         mats.add(mats.remove(0));
         Core.merge(mats, mBGRA);
@@ -1514,25 +1616,122 @@ public class Commons {
         Core.merge(mats, mBGR);
         return mBGR;
       }
-    } else if (bImg.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+    } else if (type == BufferedImage.TYPE_BYTE_GRAY) {
       byte[] data = ((DataBufferByte) bImg.getRaster().getDataBuffer()).getData();
-      Mat aMat = new Mat(bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC1);
-      aMat.put(0, 0, data);
-      return aMat;
-    } else if (bImg.getType() == BufferedImage.TYPE_BYTE_BINARY) {
-      BufferedImage bimg3b = new BufferedImage(bImg.getWidth(), bImg.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
-      Graphics graphics = bimg3b.getGraphics();
-      graphics.drawImage(bImg, 0, 0, null);
-      byte[] data = ((DataBufferByte) bimg3b.getRaster().getDataBuffer()).getData();
-      Mat aMatBGR = new Mat(bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC3);
-      aMatBGR.put(0, 0, data);
-      return aMatBGR;
+      return putMat(reuse, bImg.getHeight(), bImg.getWidth(), CvType.CV_8UC1, data);
     } else {
-      error("makeMat: BufferedImage: type not supported: %d --- please report this problem", bImg.getType());
+      error("makeMat: BufferedImage: type not supported: %d --- please report this problem", type);
     }
     return getNewMat();
   }
 
+  private static ThreadLocal<byte[]> pooledBytes = new ThreadLocal<>();
+  private static final int pooledBytesMax = 1920 * 1080 * 4;
+
+  /**
+   * a per thread conversion buffer, only reallocated if it is too small
+   * (content is copied into the Mat/DataBuffer, so it can be reused with the next conversion)<br>
+   * the buffer might be larger than size - only the first size bytes are valid<br>
+   * sizes above pooledBytesMax (a full HD BGRA image) get a new buffer, that is not kept
+   */
+  private static byte[] getPooledBytes(int size) {
+    if (size > pooledBytesMax) {
+      return new byte[size];
+    }
+    byte[] bytes = pooledBytes.get();
+    if (bytes == null || bytes.length < size) {
+      bytes = new byte[size];
+      pooledBytes.set(bytes);
+    }
+    return bytes;
+  }
+
+  private static Mat putMat(Mat reuse, int rows, int cols, int type, byte[] data) {
+    Mat mat = reuse;
+    if (SX.isNull(mat)) {
+      mat = new Mat(rows, cols, type);
+    } else {
+      mat.create(rows, cols, type);
+    }
+    mat.put(0, 0, data, 0, (int) (mat.total() * mat.elemSize()));
+    return mat;
+  }
+
+  /**
+   * true if the pixels are the complete and only content of the DataBuffer
+   * (not the case for example with BufferedImage.getSubimage())
+   */
+  public static boolean isCompactRaster(BufferedImage bImg) {
+    WritableRaster raster = bImg.getRaster();
+    DataBuffer buffer = raster.getDataBuffer();
+    return raster.getParent() == null
+        && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+        && buffer.getNumBanks() == 1
+        && buffer.getSize() == bImg.getWidth() * bImg.getHeight() * raster.getNumDataElements();
+  }
+
+  /**
+   * a 64 bit checksum of the pixels (and the size) to identify equal image content
+   *
+   * @param bImg the image
+   * @return the checksum
+   */
+  public static long getImageHash(BufferedImage bImg) {
+    return getImageHash(bImg, new Rectangle(0, 0, bImg.getWidth(), bImg.getHeight()));
+  }
+
+  /**
+   * a 64 bit checksum of the pixels (and the size) of an area of the image
+   * (taken directly from the DataBuffer if possible)
+   *
+   * @param bImg the image
+   * @param area the area (must be inside the image)
+   * @return the checksum
+   */
+  public static long getImageHash(BufferedImage bImg, Rectangle area) {
+    long hash = 31L * area.width + area.height;
+    if (isCompactRaster(bImg)) {
+      DataBuffer buffer = bImg.getRaster().getDataBuffer();
+      int elements = bImg.getRaster().getNumDataElements();
+      int stride = bImg.getWidth() * elements;
+      int start = area.x * elements;
+      int end = (area.x + area.width) * elements;
+      if (buffer instanceof DataBufferInt) {
+        int[] data = ((DataBufferInt) buffer).getData();
+        for (int y = area.y; y < area.y + area.height; y++) {
+          for (int n = y * stride + start; n < y * stride + end; n++) {
+            hash = 31L * hash + data[n];
+          }
+        }
+        return hash;
+      } else if (buffer instanceof DataBufferByte) {
+        byte[] data = ((DataBufferByte) buffer).getData();
+        for (int y = area.y; y < area.y + area.height; y++) {
+          for (int n = y * stride + start; n < y * stride + end; n++) {
+            hash = 31L * hash + data[n];
+          }
+        }
+        return hash;
+      }
+    }
+    int[] row = new int[area.width];
+    for (int y = area.y; y < area.y + area.height; y++) {
+      bImg.getRGB(area.x, y, row.length, 1, row, 0, row.length);
+      for (int value : row) {
+        hash = 31L * hash + value;
+      }
+    }
+    return hash;
+  }
+
+  private static BufferedImage copyToType(BufferedImage bImg, int type) {
+    BufferedImage bImgCopy = new BufferedImage(bImg.getWidth(), bImg.getHeight(), type);
+    Graphics graphics = bImgCopy.getGraphics();
+    graphics.drawImage(bImg, 0, 0, null);
+    graphics.dispose();
+    return bImgCopy;
+  }
+
   public final static String PNG = "png";
   public final static String dotPNG = "." + PNG;
 
@@ -1542,10 +1741,14 @@ public class Commons {
 
   public static BufferedImage getBufferedImage(Mat mat, String type) {
     BufferedImage bImg = null;
-    MatOfByte bytemat = new MatOfByte();
     if (SX.isNull(mat)) {
       mat = getNewMat();
     }
+    bImg = getBufferedImage(mat, (BufferedImage) null);
+    if (SX.isNotNull(bImg)) {
+      return bImg;
+    }
+    MatOfByte bytemat = new MatOfByte();
     Imgcodecs.imencode(type, mat, bytemat);
     byte[] bytes = bytemat.toArray();
     InputStream in = new ByteArrayInputStream(bytes);
@@ -1556,6 +1759,101 @@ public class Commons {
     }
     return bImg;
   }
+
+  /**
+   * convert the given cvMat (8 bit: GRAY, BGR, BGRA) to a BufferedImage
+   * by copying the pixels directly into the image's DataBuffer
+   *
+   * @param mat   given cvMat
+   * @param reuse if not null and same size and type: filled and returned
+   * @return the BufferedImage (BYTE_GRAY, 3BYTE_BGR, 4BYTE_ABGR) or null if the Mat is empty or not supported
+   */
+  public static BufferedImage getBufferedImage(Mat mat, BufferedImage reuse) {
+    if (mat.empty() || mat.depth() != CvType.CV_8U) {
+      return null;
+    }
+    int type;
+    switch (mat.channels()) {
+      case 1:
+        type = BufferedImage.TYPE_BYTE_GRAY;
+        break;
+      case 3:
+        type = BufferedImage.TYPE_3BYTE_BGR;
+        break;
+      case 4:
+        type = BufferedImage.TYPE_4BYTE_ABGR;
+        break;
+      default:
+        return null;
+    }
+    BufferedImage bImg = reuse;
+    if (SX.isNull(bImg) || bImg.getType() != type
+        || bImg.getWidth() != mat.cols() || bImg.getHeight() != mat.rows() || !isCompactRaster(bImg)) {
+      bImg = new BufferedImage(mat.cols(), mat.rows(), type);
+    }
+    byte[] data = ((DataBufferByte) bImg.getRaster().getDataBuffer()).getData();
+    if (type == BufferedImage.TYPE_4BYTE_ABGR) {
+      //BGRA -> ABGR (in place: Mat.get needs a buffer of the exact size)
+      mat.get(0, 0, data);
+      for (int n = 0; n < data.length; n += 4) {
+        byte alpha = data[n + 3];
+        data[n + 3] = data[n + 2];
+        data[n + 2] = data[n + 1];
+        data[n + 1] = data[n];
+        data[n] = alpha;
+      }
+    } else {
+      mat.get(0, 0, data);
+    }
+    return bImg;
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="85 thread pools">
+  private static ExecutorService findExecutor = null;
+  private static AtomicInteger findThreadCount = new AtomicInteger();
+
+  /**
+   * the shared pool for parallel find operations (daemon threads)<br>
+   * size: Settings.FindThreads (0 = number of processors)
+   *
+   * @return the pool
+   */
+  public static synchronized ExecutorService getFindExecutor() {
+    if (findExecutor == null) {
+      int nThreads = Settings.FindThreads > 0 ? Settings.FindThreads : Runtime.getRuntime().availableProcessors();
+      findExecutor = Executors.newFixedThreadPool(nThreads, runnable -> {
+        Thread thread = new Thread(runnable, "SikuliX-Find-" + findThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      debug("getFindExecutor: %d threads", nThreads);
+    }
+    return findExecutor;
+  }
+
+  private static ForkJoinPool matchPool = null;
+
+  /**
+   * the shared fork-join pool for tiled template matching (Settings.FindTiled)<br>
+   * parallelism: Settings.FindTiledParallelism (0 = number of processors)
+   *
+   * @return the pool
+   */
+  public static synchronized ForkJoinPool getMatchPool() {
+    if (matchPool == null) {
+      int parallelism = Settings.FindTiledParallelism > 0 ?
+          Settings.FindTiledParallelism : Runtime.getRuntime().availableProcessors();
+      matchPool = new ForkJoinPool(parallelism, pool -> {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("SikuliX-Match-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+      }, null, false);
+      debug("getMatchPool: parallelism %d", parallelism);
+    }
+    return matchPool;
+  }
   //</editor-fold>
 
   //<editor-fold desc="90 reflections">
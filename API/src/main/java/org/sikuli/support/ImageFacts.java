@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2010-2021, sikuli.org, sikulix.com - MIT license
+ */
+package org.sikuli.support;
+
+import org.sikuli.basics.Debug;
+import org.sikuli.basics.Settings;
+import org.sikuli.script.Image;
+import org.sikuli.script.Screen;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * INTERNAL USE: keeps the lastSeen facts of images across runs (switch on: Settings.PersistLastSeen)<br>
+ * - one store per image folder (file, jar or http) in the SikulixStore/ImageFacts folder<br>
+ * - a fact is: where the image was last seen, the score, how often it was seen and the screen it was seen on<br>
+ * - a fact is only used, if the image content (hash) did not change and the screen still has the same geometry<br>
+ * - the stores are read at first use of an image and written in the background (and at exit)
+ */
+public class ImageFacts {
+
+  private static String me = "ImageFacts: ";
+  private static int lvl = 3;
+
+  private static void log(int level, String message, Object... args) {
+    Debug.logx(level, me + message, args);
+  }
+
+  private static final int MAGIC = 0x53584631;
+  private static final int VERSION = 1;
+  private static final long saveDelay = 2000;
+
+  private static final Map<String, ImageFacts> stores = new ConcurrentHashMap<>();
+  private static final Set<String> restored = ConcurrentHashMap.newKeySet();
+  private static final Map<String, Long> hashes = new ConcurrentHashMap<>();
+  private static ScheduledExecutorService saver = null;
+
+  private final String folder;
+  private final File file;
+  private final Map<String, Fact> facts = new ConcurrentHashMap<>();
+  private boolean loaded = false;
+  private boolean dirty = false;
+  private boolean saveScheduled = false;
+
+  /**
+   * what is known about an image from earlier finds
+   */
+  public static class Fact {
+    private long hash;
+    private Rectangle seen;
+    private double score;
+    private int hits;
+    private Rectangle screen;
+    private long time;
+
+    private Fact(long hash, Rectangle seen, double score, int hits, Rectangle screen, long time) {
+      this.hash = hash;
+      this.seen = seen;
+      this.score = score;
+      this.hits = hits;
+      this.screen = screen;
+      this.time = time;
+    }
+
+    public long getHash() {
+      return hash;
+    }
+
+    public Rectangle getSeen() {
+      return new Rectangle(seen);
+    }
+
+    public double getScore() {
+      return score;
+    }
+
+    public int getHits() {
+      return hits;
+    }
+
+    public Rectangle getScreen() {
+      return new Rectangle(screen);
+    }
+
+    public long getTime() {
+      return time;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("[%d,%d %dx%d] %.2f hits: %d screen: [%d,%d %dx%d]",
+          seen.x, seen.y, seen.width, seen.height, score, hits, screen.x, screen.y, screen.width, screen.height);
+    }
+  }
+
+  private ImageFacts(String folder) {
+    this.folder = folder;
+    file = new File(new File(Commons.getAppDataStore(), "ImageFacts"), getFileName(folder));
+  }
+
+  //<editor-fold desc="01 image level">
+
+  /**
+   * sets the image's lastSeen from the store (only once per image and only if not yet set)
+   *
+   * @param img the image
+   */
+  public static void restore(Image img) {
+    if (!Settings.PersistLastSeen || null == img.getURL() || null != img.getLastSeen()) {
+      return;
+    }
+    String url = img.getURL().toExternalForm();
+    if (!restored.add(url)) {
+      return;
+    }
+    ImageFacts store = get(getFolder(url));
+    Fact fact = store.facts.get(getName(url));
+    if (fact == null) {
+      return;
+    }
+    Long hash = getHash(img);
+    if (hash == null || hash != fact.hash) {
+      log(lvl, "restore: %s: image changed - fact dropped", img.getName());
+      store.remove(getName(url));
+      return;
+    }
+    if (!isScreen(fact.screen)) {
+      log(lvl, "restore: %s: screen not available: %s", img.getName(), fact);
+      return;
+    }
+    img.restoreLastSeen(fact.getSeen(), fact.score);
+    log(lvl + 1, "restore: %s: %s", img.getName(), fact);
+  }
+
+  /**
+   * records the image's lastSeen (the store is saved in the background)
+   *
+   * @param img   the image
+   * @param seen  where it was found
+   * @param score with this score
+   */
+  public static void update(Image img, Rectangle seen, double score) {
+    if (!Settings.PersistLastSeen || null == img.getURL() || null == seen) {
+      return;
+    }
+    String url = img.getURL().toExternalForm();
+    Long hash = getHash(img);
+    if (hash == null) {
+      return;
+    }
+    restored.add(url);
+    ImageFacts store = get(getFolder(url));
+    store.put(getName(url), hash, seen, score, getScreen(seen));
+  }
+
+  /**
+   * the image content has changed: the known facts are no longer valid
+   *
+   * @param url the image's URL
+   */
+  public static void forget(URL url) {
+    if (url == null) {
+      return;
+    }
+    String sUrl = url.toExternalForm();
+    hashes.remove(sUrl);
+    restored.remove(sUrl);
+    ImageFacts store = stores.get(getFolder(sUrl));
+    if (store != null) {
+      store.remove(getName(sUrl));
+    }
+  }
+
+  private static Long getHash(Image img) {
+    String url = img.getURL().toExternalForm();
+    Long hash = hashes.get(url);
+    if (hash == null) {
+      BufferedImage bimg = img.get();
+      if (bimg == null) {
+        return null;
+      }
+      hash = Commons.getImageHash(bimg);
+      hashes.put(url, hash);
+    }
+    return hash;
+  }
+
+  private static Rectangle getScreen(Rectangle seen) {
+    int cx = seen.x + seen.width / 2;
+    int cy = seen.y + seen.height / 2;
+    for (int n = 0; n < Screen.getNumberScreens(); n++) {
+      Rectangle bounds = Screen.getBounds(n);
+      if (bounds.contains(cx, cy)) {
+        return bounds;
+      }
+    }
+    return new Rectangle();
+  }
+
+  private static boolean isScreen(Rectangle screen) {
+    for (int n = 0; n < Screen.getNumberScreens(); n++) {
+      if (Screen.getBounds(n).equals(screen)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String getFolder(String url) {
+    return url.substring(0, url.lastIndexOf("/") + 1);
+  }
+
+  private static String getName(String url) {
+    return url.substring(url.lastIndexOf("/") + 1);
+  }
+
+  private static String getFileName(String folder) {
+    long hash = 0xcbf29ce484222325L;
+    for (char c : folder.toCharArray()) {
+      hash ^= c;
+      hash *= 0x100000001b3L;
+    }
+    return String.format("%016x.facts", hash);
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="02 store level">
+
+  /**
+   * the store for the given image folder (loaded at first use)
+   *
+   * @param folderURL the folder (as URL string ending with /)
+   * @return the store
+   */
+  public static ImageFacts get(String folderURL) {
+    ImageFacts store = stores.computeIfAbsent(folderURL, ImageFacts::new);
+    synchronized (store) {
+      if (!store.loaded) {
+        store.load();
+      }
+    }
+    return store;
+  }
+
+  public static ImageFacts get(URL folderURL) {
+    String folder = folderURL.toExternalForm();
+    return get(folder.endsWith("/") ? folder : folder + "/");
+  }
+
+  /**
+   * @param name the image file name
+   * @return the fact or null
+   */
+  public Fact getFact(String name) {
+    return facts.get(name);
+  }
+
+  public int size() {
+    return facts.size();
+  }
+
+  private void put(String name, long hash, Rectangle seen, double score, Rectangle screen) {
+    Fact fact = facts.get(name);
+    if (fact != null && fact.hash == hash && fact.seen.equals(seen) && fact.screen.equals(screen)) {
+      fact.score = score;
+      fact.hits++;
+      fact.time = System.currentTimeMillis();
+    } else {
+      facts.put(name, new Fact(hash, new Rectangle(seen), score, 1, screen, System.currentTimeMillis()));
+    }
+    changed();
+  }
+
+  private void remove(String name) {
+    if (null != facts.remove(name)) {
+      changed();
+    }
+  }
+
+  private synchronized void changed() {
+    dirty = true;
+    if (!saveScheduled) {
+      saveScheduled = true;
+      getSaver().schedule(() -> {
+        synchronized (this) {
+          saveScheduled = false;
+        }
+        save();
+      }, saveDelay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static synchronized ScheduledExecutorService getSaver() {
+    if (saver == null) {
+      saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SikuliX-ImageFacts");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return saver;
+  }
+
+  /**
+   * reads the store file (facts already known are replaced)
+   *
+   * @return success
+   */
+  public synchronized boolean load() {
+    loaded = true;
+    if (!file.exists()) {
+      return true;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION || !folder.equals(in.readUTF())) {
+        log(-1, "load: not valid: %s", file);
+        return false;
+      }
+      int count = in.readInt();
+      for (int n = 0; n < count; n++) {
+        String name = in.readUTF();
+        long hash = in.readLong();
+        Rectangle seen = new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        double score = in.readFloat();
+        int hits = in.readInt();
+        Rectangle screen = new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        long time = in.readLong();
+        facts.put(name, new Fact(hash, seen, score, hits, screen, time));
+      }
+      log(lvl, "load: %d facts for %s", count, folder);
+      return true;
+    } catch (IOException ex) {
+      log(-1, "load: %s (%s)", file, ex.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * writes the store file, if something has changed
+   *
+   * @return success
+   */
+  public synchronized boolean save() {
+    if (!dirty) {
+      return true;
+    }
+    File folderFile = file.getParentFile();
+    if (!folderFile.exists() && !folderFile.mkdirs()) {
+      log(-1, "save: not possible: %s", folderFile);
+      return false;
+    }
+    File temp = new File(folderFile, file.getName() + ".tmp");
+    List<Map.Entry<String, Fact>> entries = new ArrayList<>(facts.entrySet());
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(folder);
+      out.writeInt(entries.size());
+      for (Map.Entry<String, Fact> entry : entries) {
+        Fact fact = entry.getValue();
+        out.writeUTF(entry.getKey());
+        out.writeLong(fact.hash);
+        out.writeInt(fact.seen.x);
+        out.writeInt(fact.seen.y);
+        out.writeInt(fact.seen.width);
+        out.writeInt(fact.seen.height);
+        out.writeFloat((float) fact.score);
+        out.writeInt(fact.hits);
+        out.writeInt(fact.screen.x);
+        out.writeInt(fact.screen.y);
+        out.writeInt(fact.screen.width);
+        out.writeInt(fact.screen.height);
+        out.writeLong(fact.time);
+      }
+    } catch (IOException ex) {
+      log(-1, "save: %s (%s)", temp, ex.getMessage());
+      return false;
+    }
+    try {
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException ex) {
+      try {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException ex1) {
+        log(-1, "save: %s (%s)", file, ex1.getMessage());
+        return false;
+      }
+    }
+    dirty = false;
+    log(lvl + 1, "save: %d facts for %s", entries.size(), folder);
+    return true;
+  }
+
+  /**
+   * writes all changed stores (used at exit)
+   */
+  public static void saveAll() {
+    for (ImageFacts store : stores.values()) {
+      store.save();
+    }
+  }
+
+  /**
+   * forget all facts in memory (the store files are not touched)
+   */
+  public static void reset() {
+    saveAll();
+    stores.clear();
+    restored.clear();
+    hashes.clear();
+  }
+  //</editor-fold>
+}
@@ -104,14 +104,21 @@ public class ImageGroup {
     facts[3] = r.height;
     facts[4] = (int) (score*100);
     images.put(img.getName(), facts);
+    ImageFacts.update(img, r, score);
     return facts;
   }
 
   public boolean loadImageFacts() {
-    return true;
+    if (url == null) {
+      return false;
+    }
+    return ImageFacts.get(url).load();
   }
 
   public boolean saveImageFacts() {
-    return true;
+    if (url == null) {
+      return false;
+    }
+    return ImageFacts.get(url).save();
   }
 }
@@ -3,11 +3,19 @@
  */
 package org.sikuli.support;
 
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
 import org.sikuli.basics.Debug;
 import org.sikuli.basics.Settings;
 import org.sikuli.script.*;
 
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * INTERNAL USE implements the observe action for a region and calls the ObserverCallBacks
@@ -173,24 +181,61 @@ public class Observer {
     }
   }
 
+  /**
+   * the frame of one observe tick: converted to cvMat once (gray only if needed),
+   * shared by all pattern searches of this tick (lastSeen checks use submats)
+   */
+  private static class ObserveFrame {
+    private Region region;
+    private Mat bgr;
+    private Mat gray = null;
+
+    ObserveFrame(ScreenImage simg, Region region) {
+      this.region = region;
+      bgr = Commons.makeMat(simg.getImage());
+    }
+
+    synchronized Mat getGray() {
+      if (gray == null) {
+        gray = Commons.getNewMat();
+        Imgproc.cvtColor(bgr, gray, Imgproc.COLOR_BGR2GRAY);
+      }
+      return gray;
+    }
+
+    Mat getBase(Image img) {
+      if (img.get().getType() == BufferedImage.TYPE_BYTE_GRAY) {
+        return getGray();
+      }
+      return bgr;
+    }
+
+    Mat getSub(Mat base, Rectangle rect) {
+      return base.submat(new Rect(rect.x - region.x, rect.y - region.y, rect.width, rect.height));
+    }
+  }
+
   private boolean checkPatterns(ScreenImage simg) {
     log(lvl + 1, "update: checking patterns");
     if (!observedRegion.isObserving()) {
       return false;
     }
-    Finder finder = null;
-    for (String name : eventStates.keySet()) {
-      if (!patternsToCheck()) {
+    long now = (new Date()).getTime();
+    List<String> names = new ArrayList<>();
+    List<Image> images = new ArrayList<>();
+    for (String name : new ArrayList<>(eventStates.keySet())) {
+      if (eventTypes.get(name) == ObserveEvent.Type.CHANGE) {
         continue;
       }
       if (eventStates.get(name) == State.REPEAT) {
-        if ((new Date()).getTime() < eventRepeatWaitTimes.get(name)) {
+        if (now < eventRepeatWaitTimes.get(name)) {
           continue;
         } else {
           eventStates.put(name, State.UNKNOWN);
         }
       }
-      if (eventStates.get(name) == State.INACTIVE || eventStates.get(name) == State.MISSING) {
+      if (eventStates.get(name) == State.INACTIVE || eventStates.get(name) == State.MISSING
+          || eventStates.get(name) == State.HAPPENED) {
         continue;
       }
       Object ptn = eventNames.get(name);
@@ -200,62 +245,45 @@ public class Observer {
         eventStates.put(name, State.MISSING);
         continue;
       }
+      names.add(name);
+      images.add(img);
+    }
+    if (names.isEmpty()) {
+      return patternsToCheck();
+    }
+    ObserveFrame frame = new ObserveFrame(simg, observedRegion);
+    List<Callable<Match>> searches = new ArrayList<>();
+    for (int n = 0; n < names.size(); n++) {
+      Object ptn = eventNames.get(names.get(n));
+      Image img = images.get(n);
+      searches.add(() -> checkPattern(frame, ptn, img));
+    }
+    List<Future<Match>> results;
+    try {
+      results = Commons.getFindExecutor().invokeAll(searches);
+    } catch (InterruptedException e) {
+      return false;
+    }
+    for (int n = 0; n < names.size(); n++) {
+      String name = names.get(n);
+      Object ptn = eventNames.get(name);
       Match match = null;
-      boolean hasMatch = false;
-      long lastSearchTime;
-      long now = 0;
-//      if (!Settings.UseImageFinder && Settings.CheckLastSeen && null != img.getLastSeen()) {
-      if (Settings.CheckLastSeen && null != img.getLastSeen()) {
-        Region r = Region.create(img.getLastSeen());
-        if (observedRegion.contains(r)) {
-          lastSearchTime = (new Date()).getTime();
-          Finder f = new Finder(new Screen().capture(r), r);
-          f.find(new Pattern(img).similar(Settings.CheckLastSeenSimilar));
-          if (f.hasNext()) {
-            log(lvl + 1, "checkLastSeen: still there");
-            match = new Match(new Region(img.getLastSeen()), img.getLastSeenScore());
-            match.setTimes(0, (new Date()).getTime() - lastSearchTime);
-            hasMatch = true;
-          } else {
-            log(lvl + 1, "checkLastSeen: not there");
-          }
-        }
-      }
-      if (match == null) {
-        if (finder == null) {
-//          if (Settings.UseImageFinder) {
-//            finder = new ImageFinder(observedRegion);
-//            ((ImageFinder) finder).setIsMultiFinder();
-//          } else {
-//            finder = new Finder(simg, observedRegion);
-//          }
-          finder = new Finder(simg, observedRegion);
-        }
-        lastSearchTime = (new Date()).getTime();
-        now = (new Date()).getTime();
-        finder.find(img);
-        if (finder.hasNext()) {
-          match = finder.next();
-          match.setTimes(0, now - lastSearchTime);
-          if (match.getScore() >= getSimiliarity(ptn)) {
-            hasMatch = true;
-            img.setLastSeen(match.getRect(), match.getScore());
-          }
-        }
+      try {
+        match = results.get(n).get();
+      } catch (InterruptedException | ExecutionException e) {
+        Debug.error("EventMgr: checkPatterns: %s: %s", ptn, e.getMessage());
       }
+      boolean hasMatch = match != null;
       if (hasMatch) {
         eventMatches.put(name, match);
         log(lvl + 1, "(%s): %s match: %s in:%s", eventTypes.get(name), ptn.toString(),
                 match.toStringShort(), observedRegion.toStringShort());
-      } else if (eventStates.get(ptn) == State.FIRST) {
-        log(lvl + 1, "(%s): %s match: %s in:%s", eventTypes.get(name), ptn.toString(),
-                match.toStringShort(), observedRegion.toStringShort());
+      } else if (eventStates.get(name) == State.FIRST) {
+        log(lvl + 1, "(%s): %s not there in:%s", eventTypes.get(name), ptn.toString(),
+                observedRegion.toStringShort());
         eventStates.put(name, State.UNKNOWN);
       }
       if (eventStates.get(name) != State.HAPPENED) {
-        if (hasMatch && eventTypes.get(name) == ObserveEvent.Type.VANISH) {
-          eventMatches.put(name, match);
-        }
         if ((hasMatch && eventTypes.get(name) == ObserveEvent.Type.APPEAR)
                 || (!hasMatch && eventTypes.get(name) == ObserveEvent.Type.VANISH)) {
           eventStates.put(name, State.HAPPENED);
@@ -273,6 +301,46 @@ public class Observer {
     return patternsToCheck();
   }
 
+  private Match checkPattern(ObserveFrame frame, Object ptn, Image img) {
+    Mat base = frame.getBase(img);
+    long lastSearchTime;
+    ImageFacts.restore(img);
+    if (Settings.CheckLastSeen) {
+      int hotspotIndex = 0;
+      for (Image.Hotspot hotspot : img.getHotspots()) {
+        Rectangle place = hotspot.getRect();
+        Region r = Region.create(place.x, place.y, place.width, place.height, observedRegion.getScreen());
+        if (observedRegion.contains(r)) {
+          lastSearchTime = (new Date()).getTime();
+          Finder f = new Finder(frame.getSub(base, r.getRect()), r);
+          f.find(new Pattern(img).similar(Settings.CheckLastSeenSimilar));
+          if (f.hasNext()) {
+            log(lvl + 1, "checkLastSeen: still there (place %d)", hotspotIndex);
+            Match match = new Match(new Region(hotspot.getRect()), hotspot.getScore());
+            match.setTimes(0, (new Date()).getTime() - lastSearchTime);
+            match.setHotspot(hotspotIndex);
+            // not recorded again (as in Region): a tick would add a hit to the place while it stays there
+            return match;
+          }
+          log(lvl + 1, "checkLastSeen: not there (place %d)", hotspotIndex);
+        }
+        hotspotIndex++;
+      }
+    }
+    lastSearchTime = (new Date()).getTime();
+    Finder finder = new Finder(base, observedRegion);
+    finder.find(img);
+    if (finder.hasNext()) {
+      Match match = finder.next();
+      match.setTimes(0, (new Date()).getTime() - lastSearchTime);
+      if (match.getScore() >= getSimiliarity(ptn)) {
+        img.setLastSeen(match.getRect(), match.getScore());
+        return match;
+      }
+    }
+    return null;
+  }
+
   private boolean patternsToCheck() {
     for (String name : eventNames.keySet()) {
       if (eventTypes.get(name) == ObserveEvent.Type.CHANGE) {
@@ -295,15 +363,16 @@ public class Observer {
     log(lvl, "repeat (%s): %s after %d seconds", eventTypes.get(name), name, secs);
   }
 
-  private ScreenImage lastImage = null;
+  private ChangeTracker changeTracker = null;
 
   private boolean checkChanges(ScreenImage img) {
     if (changeEventName == null) {
       return false;
     }
     //boolean leftToDo = false;
-    if (lastImage == null) {
-      lastImage = img;
+    if (changeTracker == null) {
+      changeTracker = new ChangeTracker();
+      changeTracker.findChanges(img);
       return true;
     }
 //    for (String name : eventNames.keySet()) {
@@ -323,15 +392,13 @@ public class Observer {
       }
     }
     log(lvl + 1, "update: checking changes");
-    Finder finder = new Finder(lastImage);
-    List<Region> result = finder.findChanges(img);
+    List<Region> result = changeTracker.findChanges(img);
     if (result.size() > 0) {
       callChangeObserver(result);
       if (shouldStopOnFirstEvent) {
         observedRegion.stopObserver();
       }
     }
-    lastImage = img;
     return true;
   }
 
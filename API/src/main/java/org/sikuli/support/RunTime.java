@@ -104,6 +104,7 @@ public class RunTime {
   public static void cleanUp() {
     HotkeyManager.reset(true);
     HelpDevice.stopAll();
+    Debug.flush();
   }
 
   public static void cleanUpAfterScript() {
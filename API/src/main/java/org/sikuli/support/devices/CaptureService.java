@@ -0,0 +1,347 @@
+package org.sikuli.support.devices;
+
+import org.sikuli.basics.Debug;
+import org.sikuli.basics.Settings;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * INTERNAL USE: all screen captures (Screen.capture, ScreenDevice.capture) go through here<br>
+ * - the pixels come from a pluggable Source (default: the java.awt.Robot of the screen device)<br>
+ * - with Settings.CaptureShareTime &gt; 0 the latest frames are kept in a small ring (Settings.CaptureFrames)
+ * and a capture is served from a frame, that covers the area and
+ * is not older than that (msec), or it waits for a running grab that covers the area<br>
+ * - every caller gets its own image (a frame kept in the ring is copied when served), so it might be changed<br>
+ * - the frames are dropped with every mouse or keyboard action of RobotDesktop (invalidate())
+ */
+public class CaptureService {
+
+  private static String me = "CaptureService: ";
+  private static int lvl = 3;
+
+  private static void log(int level, String message, Object... args) {
+    if (Debug.is(level)) {
+      Debug.logx(level, me + message, args);
+    }
+  }
+
+  /**
+   * delivers the pixels of a screen area
+   */
+  public interface Source {
+
+    String getName();
+
+    /**
+     * @param rect  the area in global screen coordinates
+     * @param reuse the buffer of a dropped frame with the same size (might be null), that might be filled
+     * @return the pixels of the area (null if not possible)
+     */
+    BufferedImage grab(Rectangle rect, BufferedImage reuse);
+
+    /**
+     * @return true if grab() fills given buffers (frames are then copied when served)
+     */
+    default boolean reusesBuffers() {
+      return false;
+    }
+  }
+
+  /**
+   * the standard: java.awt.Robot of the screen device containing the area (a new image with each grab)
+   */
+  public static class RobotSource implements Source {
+
+    @Override
+    public String getName() {
+      return "Robot";
+    }
+
+    @Override
+    public BufferedImage grab(Rectangle rect, BufferedImage reuse) {
+      ScreenDevice screen = ScreenDevice.getScreenDeviceForPoint(rect.getLocation());
+      if (screen != null) {
+        rect = screen.asRectangle().intersection(rect);
+      } else {
+        screen = ScreenDevice.primary();
+        rect = new Rectangle(0, 0, 1, 1);
+      }
+      return screen.getRobot().createScreenCapture(rect);
+    }
+  }
+
+  private static class Frame {
+    Rectangle rect;
+    BufferedImage image;
+    long time;
+    boolean done = false;
+
+    Frame(Rectangle rect, long time) {
+      this.rect = new Rectangle(rect);
+      this.time = time;
+    }
+  }
+
+  private static final Object lock = new Object();
+  private static Source source = new RobotSource();
+  private static final List<Frame> frames = new ArrayList<>();
+  private static final List<Frame> grabbing = new ArrayList<>();
+  private static final List<BufferedImage> spareBuffers = new ArrayList<>();
+
+  private static long invalidated = 0;
+
+  private static long grabs = 0;
+  private static long shared = 0;
+  private static long joined = 0;
+  private static long grabNanos = 0;
+  private static long grabNanosMax = 0;
+
+  //<editor-fold desc="01 source">
+  /**
+   * replace the source of the pixels (the frame ring is dropped)
+   *
+   * @param newSource the source - null: back to the standard RobotSource
+   */
+  public static void setSource(Source newSource) {
+    synchronized (lock) {
+      source = newSource == null ? new RobotSource() : newSource;
+      frames.clear();
+      spareBuffers.clear();
+    }
+    log(lvl, "source: %s", source.getName());
+  }
+
+  public static Source getSource() {
+    return source;
+  }
+
+  /**
+   * drop all frames (the screen content is expected to change)
+   */
+  public static void invalidate() {
+    synchronized (lock) {
+      invalidated = System.nanoTime();
+      if (frames.isEmpty()) {
+        return;
+      }
+      if (source.reusesBuffers()) {
+        for (Frame frame : frames) {
+          keepBuffer(frame.image);
+        }
+      }
+      frames.clear();
+    }
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="02 capture">
+  /**
+   * the pixels of the given area (might be a shared recent frame, see class description)
+   *
+   * @param rect area in global screen coordinates
+   * @return the image
+   */
+  public static BufferedImage capture(Rectangle rect) {
+    long shareNanos = Settings.CaptureShareTime * 1000000L;
+    long start = System.nanoTime();
+    Frame frame = null;
+    Source grabSource;
+    synchronized (lock) {
+      boolean interrupted = false;
+      while (shareNanos > 0 && !interrupted) {
+        Frame known = getFrame(frames, rect, start - shareNanos);
+        if (known != null) {
+          shared++;
+          return serve(known, rect);
+        }
+        Frame running = getFrame(grabbing, rect, start - shareNanos);
+        if (running == null) {
+          break;
+        }
+        joined++;
+        while (!running.done) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            interrupted = true;
+            break;
+          }
+        }
+        if (running.image != null && frames.contains(running)) {
+          shared++;
+          return serve(running, rect);
+        }
+      }
+      frame = new Frame(rect, start);
+      grabbing.add(frame);
+      grabSource = source;
+    }
+    BufferedImage image = null;
+    boolean kept = false;
+    try {
+      image = grabSource.grab(rect, takeBuffer(rect));
+    } finally {
+      long nanos = System.nanoTime() - start;
+      synchronized (lock) {
+        grabs++;
+        grabNanos += nanos;
+        grabNanosMax = Math.max(grabNanosMax, nanos);
+        frame.image = image;
+        frame.done = true;
+        grabbing.remove(frame);
+        if (image != null && image.getWidth() == rect.width && image.getHeight() == rect.height
+            && grabSource == source && frame.time > invalidated && Settings.CaptureFrames > 0 && shareNanos > 0) {
+          kept = true;
+          frames.add(0, frame);
+          while (frames.size() > Settings.CaptureFrames) {
+            Frame dropped = frames.remove(frames.size() - 1);
+            if (source.reusesBuffers()) {
+              keepBuffer(dropped.image);
+            }
+          }
+        }
+        lock.notifyAll();
+      }
+    }
+    if (image == null) {
+      return null;
+    }
+    if (kept || grabSource.reusesBuffers()) {
+      synchronized (lock) {
+        return copy(image, 0, 0, image.getWidth(), image.getHeight());
+      }
+    }
+    return image;
+  }
+
+  private static Frame getFrame(List<Frame> candidates, Rectangle rect, long notBefore) {
+    for (Frame frame : candidates) {
+      if (frame.time >= notBefore && frame.time > invalidated && frame.rect.contains(rect)) {
+        return frame;
+      }
+    }
+    return null;
+  }
+
+  private static BufferedImage serve(Frame frame, Rectangle rect) {
+    return copy(frame.image, rect.x - frame.rect.x, rect.y - frame.rect.y, rect.width, rect.height);
+  }
+
+  private static BufferedImage copy(BufferedImage image, int x, int y, int w, int h) {
+    BufferedImage copy;
+    if (image.getType() != BufferedImage.TYPE_CUSTOM) {
+      copy = new BufferedImage(w, h, image.getType());
+      copy.getRaster().setDataElements(0, 0, w, h, image.getRaster().getDataElements(x, y, w, h, null));
+    } else {
+      copy = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+      Graphics graphics = copy.getGraphics();
+      graphics.drawImage(image, -x, -y, null);
+      graphics.dispose();
+    }
+    return copy;
+  }
+
+  private static BufferedImage takeBuffer(Rectangle rect) {
+    synchronized (lock) {
+      for (BufferedImage buffer : spareBuffers) {
+        if (buffer.getWidth() == rect.width && buffer.getHeight() == rect.height) {
+          spareBuffers.remove(buffer);
+          return buffer;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static void keepBuffer(BufferedImage buffer) {
+    if (buffer != null && spareBuffers.size() < Math.max(1, Settings.CaptureFrames)) {
+      spareBuffers.add(buffer);
+    }
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="03 stats">
+  /**
+   * @return a snapshot of the counters
+   */
+  public static Stats getStats() {
+    synchronized (lock) {
+      return new Stats(grabs, shared, joined, grabNanos, grabNanosMax);
+    }
+  }
+
+  public static void resetStats() {
+    synchronized (lock) {
+      grabs = 0;
+      shared = 0;
+      joined = 0;
+      grabNanos = 0;
+      grabNanosMax = 0;
+    }
+  }
+
+  /**
+   * a snapshot of the capture counters
+   */
+  public static class Stats {
+    private long grabs;
+    private long shared;
+    private long joined;
+    private long grabNanos;
+    private long grabNanosMax;
+
+    private Stats(long grabs, long shared, long joined, long grabNanos, long grabNanosMax) {
+      this.grabs = grabs;
+      this.shared = shared;
+      this.joined = joined;
+      this.grabNanos = grabNanos;
+      this.grabNanosMax = grabNanosMax;
+    }
+
+    /**
+     * @return number of grabs from the source
+     */
+    public long getGrabs() {
+      return grabs;
+    }
+
+    /**
+     * @return number of captures served from a frame (no grab)
+     */
+    public long getShared() {
+      return shared;
+    }
+
+    /**
+     * @return number of captures, that waited for a running grab
+     */
+    public long getJoined() {
+      return joined;
+    }
+
+    /**
+     * @return average msec of a grab
+     */
+    public double getGrabTime() {
+      return grabs == 0 ? 0 : grabNanos / 1000000.0 / grabs;
+    }
+
+    /**
+     * @return longest msec of a grab
+     */
+    public double getGrabTimeMax() {
+      return grabNanosMax / 1000000.0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Capture: grabs: %d (avg %.1f max %.1f msec)  shared: %d (joined %d)",
+          grabs, getGrabTime(), getGrabTimeMax(), shared, joined);
+    }
+  }
+  //</editor-fold>
+}
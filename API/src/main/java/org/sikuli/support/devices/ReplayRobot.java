@@ -0,0 +1,303 @@
+package org.sikuli.support.devices;
+
+import org.sikuli.basics.Debug;
+import org.sikuli.script.Location;
+import org.sikuli.script.ScreenImage;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EXPERIMENTAL: the robot of a ReplayScreen<br>
+ * mouse and keyboard actions only are recorded as events (time since start, frame index, action, details)
+ */
+public class ReplayRobot implements IRobot {
+
+  private static String me = "ReplayRobot: ";
+  private static int lvl = 4;
+
+  private static void log(int level, String message, Object... args) {
+    if (Debug.is(level)) {
+      Debug.logx(level, me + message, args);
+    }
+  }
+
+  /**
+   * a recorded mouse or keyboard action
+   */
+  public static class Event {
+    private long time;
+    private int frame;
+    private String action;
+    private String details;
+
+    private Event(long time, int frame, String action, String details) {
+      this.time = time;
+      this.frame = frame;
+      this.action = action;
+      this.details = details;
+    }
+
+    /**
+     * @return msec since the start of the replay
+     */
+    public long getTime() {
+      return time;
+    }
+
+    /**
+     * @return the frame index of the last capture before the action
+     */
+    public int getFrame() {
+      return frame;
+    }
+
+    public String getAction() {
+      return action;
+    }
+
+    public String getDetails() {
+      return details;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d %d %s %s", time, frame, action, details);
+    }
+  }
+
+  private final ReplayScreen screen;
+  private final List<Event> events = new ArrayList<>();
+  private int mouseX = 0;
+  private int mouseY = 0;
+  private int heldButtons = 0;
+  private final List<Integer> heldKeys = new ArrayList<>();
+  private int autoDelay = 0;
+
+  ReplayRobot(ReplayScreen screen) {
+    this.screen = screen;
+  }
+
+  //<editor-fold desc="01 events">
+  private void record(String action, String details, Object... args) {
+    if (args.length > 0) {
+      details = String.format(details, args);
+    }
+    Event event = new Event(screen.getTime(), screen.getFrameIndex(), action, details);
+    synchronized (events) {
+      events.add(event);
+    }
+    log(lvl, "%s", event);
+    // as java.awt.Robot: wait after each event (matters for Mode.TIME)
+    delay(autoDelay);
+  }
+
+  /**
+   * @return a copy of the recorded events
+   */
+  public List<Event> getEvents() {
+    synchronized (events) {
+      return new ArrayList<>(events);
+    }
+  }
+
+  public void clearEvents() {
+    synchronized (events) {
+      events.clear();
+    }
+  }
+
+  /**
+   * writes the events as text lines: msec frame action details
+   *
+   * @param file where to write
+   * @return success
+   */
+  public boolean saveEvents(File file) {
+    try (PrintWriter writer = new PrintWriter(file, "UTF-8")) {
+      for (Event event : getEvents()) {
+        writer.println(event);
+      }
+      return true;
+    } catch (IOException e) {
+      log(-1, "saveEvents: %s: %s", file, e.getMessage());
+      return false;
+    }
+  }
+
+  public Location getMouseLocation() {
+    return screen.newLocation(mouseX, mouseY);
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="02 IRobot">
+  @Override
+  public void keyDown(String keys) {
+    record("keyDown", "%s", keys);
+  }
+
+  @Override
+  public void keyUp(String keys) {
+    record("keyUp", "%s", keys);
+  }
+
+  @Override
+  public void keyDown(int code) {
+    if (!heldKeys.contains(code)) {
+      heldKeys.add(code);
+      record("keyDown", "%d", code);
+    }
+  }
+
+  @Override
+  public void keyUp(int code) {
+    if (heldKeys.remove((Integer) code)) {
+      record("keyUp", "%d", code);
+    }
+  }
+
+  @Override
+  public void keyUp() {
+    for (int code : new ArrayList<>(heldKeys)) {
+      keyUp(code);
+    }
+  }
+
+  @Override
+  public void pressModifiers(int modifiers) {
+    record("pressModifiers", "%d", modifiers);
+  }
+
+  @Override
+  public void releaseModifiers(int modifiers) {
+    record("releaseModifiers", "%d", modifiers);
+  }
+
+  @Override
+  public void typeChar(char character, KeyMode mode) {
+    record("typeChar", "%s %s", character, mode);
+  }
+
+  @Override
+  public void typeKey(int key) {
+    record("typeKey", "%d", key);
+  }
+
+  @Override
+  public void typeStarts() {
+  }
+
+  @Override
+  public void typeEnds() {
+  }
+
+  @Override
+  public void mouseMove(int x, int y) {
+    mouseX = x;
+    mouseY = y;
+    record("mouseMove", "%d %d", x, y);
+  }
+
+  @Override
+  public void mouseDown(int buttons) {
+    heldButtons |= buttons;
+    record("mouseDown", "%d %d %d", buttons, mouseX, mouseY);
+  }
+
+  @Override
+  public int mouseUp(int buttons) {
+    if (buttons == 0) {
+      buttons = heldButtons;
+    }
+    heldButtons &= ~buttons;
+    record("mouseUp", "%d %d %d", buttons, mouseX, mouseY);
+    return heldButtons;
+  }
+
+  @Override
+  public void mouseReset() {
+    if (heldButtons != 0) {
+      mouseUp(heldButtons);
+    }
+    keyUp();
+  }
+
+  @Override
+  public void clickStarts() {
+  }
+
+  @Override
+  public void clickEnds() {
+  }
+
+  @Override
+  public void smoothMove(Location dest) {
+    mouseMove(dest.x, dest.y);
+  }
+
+  @Override
+  public void smoothMove(Location src, Location dest, long ms) {
+    mouseMove(dest.x, dest.y);
+  }
+
+  @Override
+  public void mouseWheel(int wheelAmt) {
+    record("mouseWheel", "%d %d %d", wheelAmt, mouseX, mouseY);
+  }
+
+  @Override
+  public ScreenImage captureScreen(Rectangle screenRect) {
+    return screen.capture(screenRect);
+  }
+
+  @Override
+  public void waitForIdle() {
+  }
+
+  @Override
+  public void delay(int ms) {
+    if (ms > 0) {
+      try {
+        Thread.sleep(ms);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  @Override
+  public void setAutoDelay(int ms) {
+    autoDelay = ms;
+  }
+
+  @Override
+  public Color getColorAt(int x, int y) {
+    BufferedImage frame = screen.currentFrame();
+    if (frame == null || x < 0 || y < 0 || x >= frame.getWidth() || y >= frame.getHeight()) {
+      return null;
+    }
+    return new Color(frame.getRGB(x, y));
+  }
+
+  @Override
+  public void cleanup() {
+    mouseReset();
+  }
+
+  @Override
+  public boolean isRemote() {
+    return true;
+  }
+
+  @Override
+  public IScreen getScreen() {
+    return screen;
+  }
+  //</editor-fold>
+}
@@ -0,0 +1,442 @@
+package org.sikuli.support.devices;
+
+import org.sikuli.basics.Debug;
+import org.sikuli.script.Location;
+import org.sikuli.script.Region;
+import org.sikuli.script.ScreenImage;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * EXPERIMENTAL: a screen fed from recorded frames (PNG files) instead of the desktop<br>
+ * - usage: ReplayScreen scr = new ReplayScreen(folder); Region reg = scr.newRegion(...); reg.find(...)<br>
+ * - the frames are the PNG files of the folder (sorted by leading number, then by name) or a given list of files<br>
+ * - frame times (msec from start): from the file frames.txt in the folder (lines: msec filename),
+ * from a leading number in the file names (e.g. 001250.png or 1250_dialog.png)
+ * or frameInterval apart<br>
+ * - Mode.TIME: a capture gets the frame valid at the time elapsed since start()<br>
+ * - Mode.STEP: each capture gets the next frame (the last frame stays)<br>
+ * - mouse and keyboard actions go to the ReplayRobot, which records them as events
+ */
+public class ReplayScreen implements IScreen {
+
+  private static String me = "ReplayScreen: ";
+  private static int lvl = 3;
+
+  private static void log(int level, String message, Object... args) {
+    if (Debug.is(level)) {
+      Debug.logx(level, me + message, args);
+    }
+  }
+
+  public enum Mode {
+    TIME, STEP
+  }
+
+  public static final String FRAMES_FILE = "frames.txt";
+  public static final long FRAME_INTERVAL_DEFAULT = 100;
+
+  private static final Pattern leadingNumber = Pattern.compile("^(\\d+)");
+
+  private final String name;
+  private final List<File> frameFiles = new ArrayList<>();
+  private final List<Long> frameTimes = new ArrayList<>();
+  private Mode mode = Mode.TIME;
+  private Rectangle bounds;
+  private ReplayRobot robot;
+
+  private long startTime = -1;
+  private int frameIndex = -1;
+  private int loadedIndex = -1;
+  private BufferedImage loadedFrame = null;
+  private int framesServed = 0;
+  private ScreenImage lastScreenImage = null;
+
+  //<editor-fold desc="01 create">
+  /**
+   * frames are the PNG files in the folder
+   *
+   * @param folder the folder
+   */
+  public ReplayScreen(File folder) {
+    this(folder, FRAME_INTERVAL_DEFAULT);
+  }
+
+  /**
+   * frames are the PNG files in the folder
+   *
+   * @param folder        the folder
+   * @param frameInterval msec between frames, if the times are not given otherwise
+   */
+  public ReplayScreen(File folder, long frameInterval) {
+    name = folder.getName();
+    File framesFile = new File(folder, FRAMES_FILE);
+    if (framesFile.exists()) {
+      readFramesFile(folder, framesFile);
+    } else {
+      File[] files = folder.listFiles((dir, fileName) -> fileName.toLowerCase().endsWith(".png"));
+      if (files != null) {
+        Arrays.sort(files, ReplayScreen::compareFrameFiles);
+        addFrames(Arrays.asList(files), frameInterval);
+      }
+    }
+    init();
+  }
+
+  /**
+   * frames are the given PNG files in this order
+   *
+   * @param files         the frames
+   * @param frameInterval msec between frames, if the times are not given in the file names
+   */
+  public ReplayScreen(List<File> files, long frameInterval) {
+    name = files.isEmpty() ? "empty" : files.get(0).getParentFile().getName();
+    addFrames(files, frameInterval);
+    init();
+  }
+
+  private void readFramesFile(File folder, File framesFile) {
+    try (BufferedReader reader = new BufferedReader(new FileReader(framesFile))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] parts = line.split("\\s+", 2);
+        if (parts.length < 2) {
+          continue;
+        }
+        try {
+          frameTimes.add(Long.parseLong(parts[0]));
+          frameFiles.add(new File(folder, parts[1]));
+        } catch (NumberFormatException e) {
+          log(-1, "%s: invalid line: %s", framesFile, line);
+        }
+      }
+    } catch (IOException e) {
+      log(-1, "%s: not readable: %s", framesFile, e.getMessage());
+    }
+  }
+
+  /**
+   * by the leading number (900.png before 1250.png), then by name
+   */
+  private static int compareFrameFiles(File file1, File file2) {
+    Matcher matcher1 = leadingNumber.matcher(file1.getName());
+    Matcher matcher2 = leadingNumber.matcher(file2.getName());
+    if (matcher1.find() && matcher2.find()) {
+      int result = new BigInteger(matcher1.group(1)).compareTo(new BigInteger(matcher2.group(1)));
+      if (result != 0) {
+        return result;
+      }
+    }
+    return file1.getName().compareTo(file2.getName());
+  }
+
+  private void addFrames(List<File> files, long frameInterval) {
+    boolean timed = !files.isEmpty();
+    List<Long> times = new ArrayList<>();
+    for (File file : files) {
+      Matcher matcher = leadingNumber.matcher(file.getName());
+      if (!matcher.find()) {
+        timed = false;
+        break;
+      }
+      times.add(Long.parseLong(matcher.group(1)));
+    }
+    for (int n = 0; n < files.size(); n++) {
+      frameFiles.add(files.get(n));
+      frameTimes.add(timed ? times.get(n) - times.get(0) : n * frameInterval);
+    }
+  }
+
+  private void init() {
+    if (frameFiles.isEmpty()) {
+      log(-1, "%s: no frames", name);
+      bounds = new Rectangle(0, 0, 1, 1);
+    } else {
+      BufferedImage first = getFrame(0);
+      bounds = first == null ? new Rectangle(0, 0, 1, 1) : new Rectangle(0, 0, first.getWidth(), first.getHeight());
+      log(lvl, "%s: %d frames (%d x %d) %d msec", name, frameFiles.size(), bounds.width, bounds.height,
+          frameTimes.get(frameTimes.size() - 1));
+    }
+    robot = new ReplayRobot(this);
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="02 replay">
+  public ReplayScreen setMode(Mode mode) {
+    this.mode = mode;
+    return this;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * (re)start the replay with the first frame (the event log is cleared)
+   *
+   * @return this
+   */
+  public synchronized ReplayScreen start() {
+    startTime = System.nanoTime();
+    frameIndex = -1;
+    framesServed = 0;
+    robot.clearEvents();
+    return this;
+  }
+
+  /**
+   * @return msec since start() (starts with the first use)
+   */
+  public synchronized long getTime() {
+    if (startTime < 0) {
+      start();
+    }
+    return (System.nanoTime() - startTime) / 1000000;
+  }
+
+  public int getFrameCount() {
+    return frameFiles.size();
+  }
+
+  /**
+   * @return index of the frame served with the last capture (-1 none yet)
+   */
+  public synchronized int getFrameIndex() {
+    return frameIndex;
+  }
+
+  /**
+   * @return number of captures served
+   */
+  public synchronized int getFramesServed() {
+    return framesServed;
+  }
+
+  /**
+   * @return true, if the last frame was reached
+   */
+  public synchronized boolean isAtEnd() {
+    return frameIndex >= frameFiles.size() - 1;
+  }
+
+  private synchronized BufferedImage nextFrame() {
+    if (frameFiles.isEmpty()) {
+      return null;
+    }
+    if (mode == Mode.STEP) {
+      if (startTime < 0) {
+        start();
+      }
+      frameIndex = Math.min(frameIndex + 1, frameFiles.size() - 1);
+    } else {
+      long now = getTime();
+      int index = Math.max(0, frameIndex);
+      while (index + 1 < frameTimes.size() && frameTimes.get(index + 1) <= now) {
+        index++;
+      }
+      frameIndex = index;
+    }
+    framesServed++;
+    return getFrame(frameIndex);
+  }
+
+  /**
+   * @return the frame of the last capture (without advancing)
+   */
+  synchronized BufferedImage currentFrame() {
+    return getFrame(Math.max(0, frameIndex));
+  }
+
+  private synchronized BufferedImage getFrame(int index) {
+    if (index != loadedIndex) {
+      try {
+        loadedFrame = ImageIO.read(frameFiles.get(index));
+        loadedIndex = index;
+      } catch (IOException e) {
+        log(-1, "frame %d: %s: %s", index, frameFiles.get(index), e.getMessage());
+        return loadedFrame;
+      }
+    }
+    return loadedFrame;
+  }
+  //</editor-fold>
+
+  //<editor-fold desc="03 IScreen">
+  @Override
+  public int getID() {
+    return 0;
+  }
+
+  @Override
+  public String getIDString() {
+    return "replay:" + name;
+  }
+
+  @Override
+  public IRobot getRobot() {
+    return robot;
+  }
+
+  public ReplayRobot getReplayRobot() {
+    return robot;
+  }
+
+  @Override
+  public ScreenImage capture() {
+    return capture(bounds);
+  }
+
+  @Override
+  public ScreenImage capture(int x, int y, int w, int h) {
+    return capture(new Rectangle(x, y, w, h));
+  }
+
+  @Override
+  public ScreenImage capture(Rectangle rect) {
+    BufferedImage frame = nextFrame();
+    Rectangle area = rect.intersection(bounds);
+    if (frame == null || area.isEmpty()) {
+      log(-1, "capture: not possible: %s", rect);
+      return null;
+    }
+    BufferedImage bimg = new BufferedImage(area.width, area.height, BufferedImage.TYPE_3BYTE_BGR);
+    Graphics graphics = bimg.getGraphics();
+    graphics.drawImage(frame, -area.x, -area.y, null);
+    graphics.dispose();
+    lastScreenImage = new ScreenImage(area, bimg);
+    return lastScreenImage;
+  }
+
+  @Override
+  public ScreenImage capture(Region reg) {
+    return capture(reg.getRect());
+  }
+
+  @Override
+  public ScreenImage userCapture(String string) {
+    log(-1, "userCapture: not possible");
+    return null;
+  }
+
+  @Override
+  public ScreenImage getLastScreenImageFromScreen() {
+    return lastScreenImage;
+  }
+
+  @Override
+  public String getLastScreenImageFile(String path, String name) throws IOException {
+    if (null == lastScreenImage || path == null) {
+      return null;
+    }
+    return lastScreenImage.getFile(path, name);
+  }
+
+  @Override
+  public int getX() {
+    return bounds.x;
+  }
+
+  @Override
+  public int getW() {
+    return bounds.width;
+  }
+
+  @Override
+  public int getY() {
+    return bounds.y;
+  }
+
+  @Override
+  public int getH() {
+    return bounds.height;
+  }
+
+  @Override
+  public Rectangle getBounds() {
+    return new Rectangle(bounds);
+  }
+
+  @Override
+  public Rectangle getRect() {
+    return new Rectangle(bounds);
+  }
+
+  @Override
+  public boolean isOtherScreen() {
+    return true;
+  }
+
+  @Override
+  public Region setOther(Region element) {
+    return element.setOtherScreen(this);
+  }
+
+  @Override
+  public Location setOther(Location element) {
+    return element.setOtherScreen(this);
+  }
+
+  @Override
+  public Location newLocation(int x, int y) {
+    return new Location(x, y).setOtherScreen(this);
+  }
+
+  @Override
+  public Location newLocation(Location loc) {
+    return new Location(loc).setOtherScreen(this);
+  }
+
+  @Override
+  public Region newRegion(int x, int y, int w, int h) {
+    return Region.create(x, y, w, h, this);
+  }
+
+  @Override
+  public Region newRegion(Location loc, int w, int h) {
+    return Region.create(loc.x, loc.y, w, h, this);
+  }
+
+  @Override
+  public Region newRegion(Region reg) {
+    return Region.create(reg.x, reg.y, reg.w, reg.h, this);
+  }
+
+  /**
+   * @return the whole screen as Region
+   */
+  public Region asRegion() {
+    return newRegion(bounds.x, bounds.y, bounds.width, bounds.height);
+  }
+
+  @Override
+  public void waitAfterAction() {
+  }
+
+  @Override
+  public Object action(String action, Object... args) {
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ReplayScreen(%s) %d frames %s [%d x %d]", name, frameFiles.size(), mode,
+        bounds.width, bounds.height);
+  }
+  //</editor-fold>
+}
@@ -136,6 +136,8 @@ public class RobotDesktop extends Robot implements IRobot {
 
   private void doMouseMove(int x, int y) {
     mouseMove(x, y);
+    // after the action: a capture started meanwhile must not be taken as fresh
+    CaptureService.invalidate();
   }
 
   private void checkMousePosition(int x, int y) {
@@ -193,6 +195,7 @@ public class RobotDesktop extends Robot implements IRobot {
       delay(20);
     }
     mousePress(buttons);
+    CaptureService.invalidate();
     if (stdAutoDelay == 0) {
       delay(stdDelay);
     }
@@ -215,6 +218,7 @@ public class RobotDesktop extends Robot implements IRobot {
     logRobot(stdAutoDelay, "MouseUp: WaitForIdle: %s - Delay: %d");
     setAutoDelay(stdAutoDelay);
     mouseRelease(buttons);
+    CaptureService.invalidate();
     if (stdAutoDelay == 0) {
       delay(stdDelay);
     }
@@ -338,6 +342,7 @@ public class RobotDesktop extends Robot implements IRobot {
     }else{
       keyPress(keyCode);
     }
+    CaptureService.invalidate();
 
 
     if (stdAutoDelay == 0) {
@@ -401,6 +406,7 @@ public class RobotDesktop extends Robot implements IRobot {
     }else{
       keyRelease(keyCode);
     }
+    CaptureService.invalidate();
 
     if (stdAutoDelay == 0) {
       delay(stdDelay);
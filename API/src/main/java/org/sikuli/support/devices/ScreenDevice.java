@@ -220,18 +220,11 @@ public class ScreenDevice extends Devices {
 
 
   public BufferedImage capture() {
-    return getRobot().createScreenCapture(asRectangle());
+    return CaptureService.capture(asRectangle());
   }
 
   public static BufferedImage capture(Rectangle rect) {
-    ScreenDevice screen = getScreenDeviceForPoint(rect.getLocation());
-    if (screen != null) {
-      rect = screen.bounds.intersection(rect);
-    } else {
-      screen = primary();
-      rect = new Rectangle(0, 0, 1, 1);
-    }
-    return screen.getRobot().createScreenCapture(rect);
+    return CaptureService.capture(rect);
   }
 
   private static AtomicBoolean capturePromptActive = new AtomicBoolean(false);
@@ -4,9 +4,12 @@
 
 package org.sikuli.support.runner;
 
+import java.io.File;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -15,6 +18,7 @@ import java.util.function.IntSupplier;
 
 import org.sikuli.basics.Debug;
 import org.sikuli.script.SikuliXception;
+import org.sikuli.support.Commons;
 
 import com.sun.jna.ptr.IntByReference;
 
@@ -49,6 +53,9 @@ public abstract class AbstractRunner implements IRunner {
   private static final Object WORKER_LOCK = new Object();
   private boolean aborted = false;
 
+  private final Set<Thread> concurrentWorkers = ConcurrentHashMap.newKeySet();
+  private final Set<Thread> abortedWorkers = ConcurrentHashMap.newKeySet();
+
   protected void log(int level, String message, Object... args) {
     Debug.logx(level, getName() + "Runner: " + message, args);
   }
@@ -141,7 +148,7 @@ public abstract class AbstractRunner implements IRunner {
   public final int runScript(String script, String[] scriptArgs, IRunner.Options maybeOptions) {
     IRunner.Options options = null != maybeOptions ? maybeOptions : new IRunner.Options();
 
-    return runSynchronized(options, () -> {
+    IntSupplier run = () -> {
       int savedLevel = Debug.getDebugLevel();
       if (!Debug.isGlobalDebug()) {
         Debug.off();
@@ -163,7 +170,32 @@ public abstract class AbstractRunner implements IRunner {
 
       Debug.setDebugLevel(savedLevel);
       return exitCode;
-    });
+    };
+
+    if (isConcurrent(script, options)) {
+      return runConcurrent(options, run);
+    }
+    return runSynchronized(options, run);
+  }
+
+  /**
+   * a script, that does not share state with other runs (e.g. has an own interpreter),
+   * is run in the calling thread beside others - otherwise scripts are run one at a time<br>
+   * (a concurrent run has an own abort state and adjustBundlePath/resetBundlePath have to take care for other runs)
+   *
+   * @param script  the script to run
+   * @param options the run options
+   * @return true if the script can be run concurrently (default: false)
+   */
+  protected boolean isConcurrent(String script, IRunner.Options options) {
+    return false;
+  }
+
+  /**
+   * @return true if the current thread runs a script concurrently (see isConcurrent)
+   */
+  protected final boolean isConcurrentRun() {
+    return concurrentWorkers.contains(Thread.currentThread());
   }
 
   private Object console = null;
@@ -276,7 +308,7 @@ public abstract class AbstractRunner implements IRunner {
   static ArrayList<String> codeAfter = null;
 
   public final boolean isRunning() {
-    return running;
+    return running || !concurrentWorkers.isEmpty();
   }
 
   public boolean isAbortSupported() {
@@ -289,6 +321,18 @@ public abstract class AbstractRunner implements IRunner {
         aborted = true;
         doAbort();
       }
+      for (Thread concurrentWorker : concurrentWorkers) {
+        abortConcurrent(concurrentWorker);
+      }
+    }
+  }
+
+  private void abortConcurrent(Thread concurrentWorker) {
+    synchronized (WORKER_LOCK) {
+      if (concurrentWorkers.contains(concurrentWorker) && isAbortSupported()) {
+        abortedWorkers.add(concurrentWorker);
+        concurrentWorker.interrupt();
+      }
     }
   }
 
@@ -305,6 +349,10 @@ public abstract class AbstractRunner implements IRunner {
   @Override
   public final boolean isAborted() {
     synchronized (WORKER_LOCK) {
+      Thread current = Thread.currentThread();
+      if (concurrentWorkers.contains(current)) {
+        return abortedWorkers.contains(current);
+      }
       return aborted;
     }
   }
@@ -318,7 +366,12 @@ public abstract class AbstractRunner implements IRunner {
       newWorker = worker == null;
 
       if (newWorker) {
+        // the caller's work dir and user args (see Commons.setThreadWorkDir) are valid for the script
+        File workDir = Commons.getThreadWorkDir();
+        String[] userArgs = Commons.getThreadUserArgs();
         worker = new Thread(() -> {
+          Commons.setThreadWorkDir(workDir);
+          Commons.setThreadUserArgs(userArgs);
           synchronized (AbstractRunner.class) {
             try {
               exitCode.setValue(block.getAsInt());
@@ -376,6 +429,48 @@ public abstract class AbstractRunner implements IRunner {
     }
   }
 
+  private int runConcurrent(IRunner.Options options, IntSupplier block) {
+    Thread current = Thread.currentThread();
+    if (concurrentWorkers.contains(current)) {
+      return block.getAsInt();
+    }
+
+    if (!ready) {
+      synchronized (AbstractRunner.class) {
+        init(null);
+      }
+    }
+
+    synchronized (WORKER_LOCK) {
+      abortedWorkers.remove(current);
+      concurrentWorkers.add(current);
+    }
+    ScheduledFuture<?> timeoutFuture = null;
+    try {
+      if (options.getTimeout() > 0) {
+        final long timeout = options.getTimeout();
+
+        timeoutFuture = TIMEOUT_EXECUTOR.schedule(() -> {
+          Debug.info("%s script timed out after %d ms", getName(), timeout);
+          abortConcurrent(current);
+        }, timeout, TimeUnit.MILLISECONDS);
+      }
+
+      return block.getAsInt();
+
+    } finally {
+      if (timeoutFuture != null) {
+        timeoutFuture.cancel(false);
+      }
+      synchronized (WORKER_LOCK) {
+        concurrentWorkers.remove(current);
+        abortedWorkers.remove(current);
+      }
+      // an abort must not hit the caller after the run
+      Thread.interrupted();
+    }
+  }
+
   public final boolean canHandleFileEnding(String identifier) {
     for (String suf : getFileEndings()) {
       if (identifier.toLowerCase().endsWith(suf.toLowerCase())) {
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2010-2021, sikuli.org, sikulix.com - MIT license
+ */
+package org.sikuli.natives;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sikuli.basics.Settings;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * X11Windows and the xdotool fallback of LinuxUtil against an own window<br>
+ * skipped without an X server with an EWMH window manager (e.g. run under Xvfb with a light-weight one)
+ */
+public class X11WindowsTest {
+
+	private static final long WAIT = 5000;
+
+	private boolean useXdotool;
+	private JFrame frame = null;
+	private String title;
+
+	@Before
+	public void setUp() throws Exception {
+		assumeTrue(Settings.isLinux());
+		assumeNotNull(System.getenv("DISPLAY"));
+		assumeTrue(!GraphicsEnvironment.isHeadless());
+		useXdotool = Settings.LinuxUseXdotool;
+		Settings.LinuxUseXdotool = false;
+		assumeNotNull(X11Windows.get());
+		title = "SikuliX-X11WindowsTest-" + System.nanoTime();
+		SwingUtilities.invokeAndWait(() -> {
+			frame = new JFrame(title);
+			frame.setBounds(100, 120, 320, 200);
+			frame.setVisible(true);
+		});
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Settings.LinuxUseXdotool = useXdotool;
+		if (frame != null) {
+			SwingUtilities.invokeAndWait(() -> frame.dispose());
+		}
+	}
+
+	private long waitForClient(X11Windows x11) throws InterruptedException {
+		long end = System.currentTimeMillis() + WAIT;
+		while (System.currentTimeMillis() < end) {
+			List<Long> clients = x11.getClients();
+			for (long id : clients == null ? new ArrayList<Long>() : clients) {
+				if (title.equals(x11.getTitle(id)) && x11.isViewable(id)) {
+					return id;
+				}
+			}
+			Thread.sleep(100);
+		}
+		return -1;
+	}
+
+	private Point contentOnScreen() throws Exception {
+		Point[] location = new Point[1];
+		SwingUtilities.invokeAndWait(() -> location[0] = frame.getContentPane().getLocationOnScreen());
+		return location[0];
+	}
+
+	@Test
+	public void ownWindowIsKnown() throws Exception {
+		X11Windows x11 = X11Windows.get();
+		long id = waitForClient(x11);
+		assertTrue("window not reported: " + title, id > 0);
+		assertEquals(ProcessHandle.current().pid(), x11.getPid(id));
+		Rectangle bounds = x11.getBounds(id);
+		assertNotNull(bounds);
+		assertTrue(bounds + " should contain the content pane", bounds.contains(contentOnScreen()));
+	}
+
+	@Test
+	public void xdotoolGivesTheSameWindow() throws Exception {
+		assumeTrue(new File("/usr/bin/xdotool").exists());
+		long id = waitForClient(X11Windows.get());
+		assertTrue("window not reported: " + title, id > 0);
+		LinuxUtil util = new LinuxUtil();
+		List<OSUtil.OsWindow> windows = util.findWindows(title);
+		Settings.LinuxUseXdotool = true;
+		List<OSUtil.OsWindow> windowsXdotool = util.findWindows(title);
+		assertEquals(1, windows.size());
+		assertEquals(windows, windowsXdotool);
+		OSUtil.OsWindow window = windowsXdotool.get(0);
+		assertEquals(title, window.getTitle());
+		assertEquals(ProcessHandle.current().pid(), window.getProcess().getPid());
+		Settings.LinuxUseXdotool = false;
+		assertEquals(windows.get(0).getBounds(), window.getBounds());
+	}
+}
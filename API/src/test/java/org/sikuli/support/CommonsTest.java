@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2010-2021, sikuli.org, sikulix.com - MIT license
+ */
+package org.sikuli.support;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.*;
+
+/**
+ * the direct conversions between BufferedImage and Mat (the per thread buffer is shared by them)
+ */
+public class CommonsTest {
+
+  @BeforeClass
+  public static void setUpClass() {
+    Commons.loadOpenCV();
+  }
+
+  @Test
+  public void bgraMatAfterOddSizedIntRgb() {
+    BufferedImage rgb = new BufferedImage(7, 5, BufferedImage.TYPE_INT_RGB);
+    rgb.setRGB(6, 4, 0x123456);
+    Mat bgr = Commons.makeMat(rgb, true, null);
+    byte[] pixel = new byte[3];
+    bgr.get(4, 6, pixel);
+    assertArrayEquals(new byte[]{0x56, 0x34, 0x12}, pixel);
+
+    Mat bgra = new Mat(3, 3, CvType.CV_8UC4);
+    byte[] bytes = new byte[3 * 3 * 4];
+    for (int n = 0; n < bytes.length; n += 4) {
+      bytes[n] = 0x11;
+      bytes[n + 1] = 0x22;
+      bytes[n + 2] = 0x33;
+      bytes[n + 3] = (byte) 0x80;
+    }
+    bgra.put(0, 0, bytes);
+    BufferedImage abgr = Commons.getBufferedImage(bgra, null);
+    assertNotNull(abgr);
+    assertEquals(BufferedImage.TYPE_4BYTE_ABGR, abgr.getType());
+    assertEquals(0x80332211, abgr.getRGB(2, 2));
+  }
+}
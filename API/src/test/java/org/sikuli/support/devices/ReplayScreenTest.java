@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2010-2021, sikuli.org, sikulix.com - MIT license
+ */
+package org.sikuli.support.devices;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sikuli.basics.Settings;
+import org.sikuli.script.Image;
+import org.sikuli.script.Match;
+import org.sikuli.script.Pattern;
+import org.sikuli.script.Region;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * find, wait and the lastSeen places driven headless by a ReplayScreen (Mode.STEP: one frame per capture)
+ */
+public class ReplayScreenTest {
+
+  private static final int W = 640;
+  private static final int H = 480;
+  private static final int TW = 80;
+  private static final int TH = 60;
+  private static final Point A = new Point(96, 104);
+  private static final Point B = new Point(440, 320);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private boolean checkLastSeen;
+  private boolean waitChangeGated;
+  private float waitScanIdleMax;
+
+  @Before
+  public void setUp() {
+    checkLastSeen = Settings.CheckLastSeen;
+    waitChangeGated = Settings.WaitChangeGated;
+    waitScanIdleMax = Settings.WaitScanIdleMax;
+  }
+
+  @After
+  public void tearDown() {
+    Settings.CheckLastSeen = checkLastSeen;
+    Settings.WaitChangeGated = waitChangeGated;
+    Settings.WaitScanIdleMax = waitScanIdleMax;
+  }
+
+  //<editor-fold desc="frames">
+  private static BufferedImage blocks(int w, int h, long seed) {
+    BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_3BYTE_BGR);
+    Graphics graphics = img.getGraphics();
+    Random random = new Random(seed);
+    for (int y = 0; y < h; y += 8) {
+      for (int x = 0; x < w; x += 8) {
+        graphics.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+        graphics.fillRect(x, y, 8, 8);
+      }
+    }
+    graphics.dispose();
+    return img;
+  }
+
+  private static BufferedImage frame(BufferedImage target, Point... places) {
+    BufferedImage img = blocks(W, H, 1);
+    Graphics graphics = img.getGraphics();
+    for (Point place : places) {
+      graphics.drawImage(target, place.x, place.y, null);
+    }
+    graphics.dispose();
+    return img;
+  }
+
+  private static File save(BufferedImage img, File file) throws IOException {
+    ImageIO.write(img, "png", file);
+    return file;
+  }
+
+  private Image target(BufferedImage target) throws IOException {
+    File file = save(target, new File(folder.newFolder(), "target.png"));
+    return Image.create(file.getAbsolutePath());
+  }
+
+  private static Rectangle at(Point place) {
+    return new Rectangle(place.x, place.y, TW, TH);
+  }
+  //</editor-fold>
+
+  @Test
+  public void framesAreOrderedByLeadingNumber() throws IOException {
+    File frames = folder.newFolder();
+    save(blocks(W, H, 900), new File(frames, "900.png"));
+    save(blocks(W, H, 1250), new File(frames, "1250.png"));
+    save(blocks(W, H, 100), new File(frames, "100.png"));
+    ReplayScreen screen = new ReplayScreen(frames).setMode(ReplayScreen.Mode.STEP);
+    assertEquals(3, screen.getFrameCount());
+    for (long seed : new long[]{100, 900, 1250}) {
+      BufferedImage expected = blocks(W, H, seed);
+      BufferedImage captured = screen.capture().getImage();
+      assertEquals(expected.getRGB(4, 4), captured.getRGB(4, 4));
+    }
+  }
+
+  @Test
+  public void downsizedFindGivesTheSameMatch() throws Exception {
+    Settings.CheckLastSeen = false;
+    BufferedImage bTarget = blocks(TW, TH, 2);
+    Image img = target(bTarget);
+    File frames = folder.newFolder();
+    save(frame(bTarget, B), new File(frames, "0.png"));
+    ReplayScreen screen = new ReplayScreen(frames).setMode(ReplayScreen.Mode.STEP);
+    Region region = screen.asRegion();
+
+    Match full = region.find(new Pattern(img).downsized(false));
+    Match down = region.find(new Pattern(img).downsized(true));
+
+    assertEquals(at(B), full.getRect());
+    assertEquals(full.getRect(), down.getRect());
+    assertTrue(down.getScore() > 0.99);
+  }
+
+  @Test
+  public void waitSkipsScansWhileNothingChanges() throws Exception {
+    Settings.CheckLastSeen = false;
+    Settings.WaitChangeGated = true;
+    Settings.WaitScanIdleMax = 0.2f;
+    BufferedImage bTarget = blocks(TW, TH, 3);
+    Image img = target(bTarget);
+    File frames = folder.newFolder();
+    BufferedImage without = frame(bTarget);
+    for (int n = 0; n < 6; n++) {
+      save(without, new File(frames, n + ".png"));
+    }
+    save(frame(bTarget, A), new File(frames, "6.png"));
+    ReplayScreen screen = new ReplayScreen(frames).setMode(ReplayScreen.Mode.STEP);
+    Region region = screen.asRegion();
+    region.setWaitScanRate(20);
+
+    Match match = region.wait(img, 10);
+
+    assertEquals(at(A), match.getRect());
+    assertEquals(6, screen.getFrameIndex());
+    assertEquals(2, match.getScans());
+    assertEquals(5, match.getScansSkipped());
+  }
+
+  @Test
+  public void bestRankedPlaceIsCheckedFirst() throws Exception {
+    Settings.CheckLastSeen = true;
+    BufferedImage bTarget = blocks(TW, TH, 4);
+    Image img = target(bTarget);
+    File frames = folder.newFolder();
+    save(frame(bTarget, A, B), new File(frames, "0.png"));
+    ReplayScreen screen = new ReplayScreen(frames).setMode(ReplayScreen.Mode.STEP);
+    Region region = screen.asRegion();
+
+    img.setLastSeen(at(B), 0.99);
+    img.setLastSeen(at(A), 0.99);
+    img.setLastSeen(at(A), 0.99);
+    assertEquals(at(A), img.getHotspots().get(0).getRect());
+    Match match = region.find(new Pattern(img).similar(0.9));
+    assertEquals(at(A), match.getRect());
+    assertEquals(0, match.getHotspot());
+
+    img.setLastSeen(at(B), 0.99);
+    img.setLastSeen(at(B), 0.99);
+    assertEquals(at(B), img.getHotspots().get(0).getRect());
+    match = region.find(new Pattern(img).similar(0.9));
+    assertEquals(at(B), match.getRect());
+    assertEquals(0, match.getHotspot());
+  }
+}
@@ -5,10 +5,13 @@ package org.sikuli.support.ide;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
+import org.python.Version;
 import org.python.core.BytecodeLoader;
 import org.python.core.PyCode;
 import org.python.core.PyList;
+import org.python.core.PyObject;
 import org.python.core.PySystemState;
+import org.python.core.imp;
 import org.python.util.PythonInterpreter;
 import org.sikuli.basics.Debug;
 import org.sikuli.support.FileManager;
@@ -19,16 +22,29 @@ import org.sikuli.script.SikulixForJython;
 import org.sikuli.support.Commons;
 import org.sikuli.support.RunTime;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -121,8 +137,8 @@ public class JythonSupport implements IRunnerSupport {
   }
 
   public void interpreterCleanup() {
-    if (null != interpreter) {
-      interpreter.cleanup();
+    if (null != interpreter()) {
+      interpreter().cleanup();
     }
   }
 
@@ -132,18 +148,26 @@ public class JythonSupport implements IRunnerSupport {
     }
   }
 
+  /**
+   * @return the interpreter leased to the current thread (see interpreterAcquire) or the shared one
+   */
+  private static PythonInterpreter interpreter() {
+    PythonInterpreter pyInterpreter = leased.get();
+    return pyInterpreter == null ? interpreter : pyInterpreter;
+  }
+
   public boolean interpreterRedirect(PrintStream stdout, PrintStream stderr) {
-    if (interpreter == null) {
+    if (interpreter() == null) {
       return false;
     }
     try {
-      interpreter.setOut(stdout);
+      interpreter().setOut(stdout);
     } catch (Exception e) {
       log(-1, "Jython: redirect STDOUT: %s", e.getMessage());
       return false;
     }
     try {
-      interpreter.setErr(stderr);
+      interpreter().setErr(stderr);
     } catch (Exception e) {
       log(-1, "Jython: redirect STDERR: %s", e.getMessage());
       return false;
@@ -152,6 +176,222 @@ public class JythonSupport implements IRunnerSupport {
   }
   //</editor-fold>
 
+  //<editor-fold desc="02 interpreter pool">
+  /**
+   * the lines executed in a new pooled interpreter (before its state is saved for the reset after each run)
+   */
+  private static final String[] POOL_WARMUP = new String[]{
+      "import sys",
+      "import org.sikuli.support.ide.Runner as Runner",
+      "from sikuli import *",
+      "resetBeforeScriptStart()",
+      "def _sx_pool_reset(modules, path):\n"
+          + "  sys.settrace(None)\n"
+          + "  for name in [name for name in sys.modules.keys() if name not in modules]:\n"
+          + "    del sys.modules[name]\n"
+          + "  sys.path[:] = path\n"
+          + "  del sys.argv[:]\n",
+  };
+
+  /**
+   * an interpreter with its own sys (modules, path, argv) and the state after the warmup
+   */
+  private static class PooledInterpreter {
+    PythonInterpreter interpreter;
+    PyObject locals;
+    PyObject modules;
+    PyObject path;
+    PyObject reset;
+    int runs = 0;
+
+    PooledInterpreter(PythonInterpreter interpreter) {
+      this.interpreter = interpreter;
+      locals = interpreter.getLocals().invoke("copy");
+      modules = interpreter.eval("set(sys.modules.keys())");
+      path = interpreter.eval("list(sys.path)");
+      reset = interpreter.get("_sx_pool_reset");
+    }
+
+    void reset() {
+      reset.__call__(modules, path);
+      interpreter.setLocals(locals.invoke("copy"));
+    }
+  }
+
+  private static final ThreadLocal<PythonInterpreter> leased = new ThreadLocal<>();
+  private static final ThreadLocal<PooledInterpreter> leasedPooled = new ThreadLocal<>();
+  private static final LinkedBlockingDeque<PooledInterpreter> pool = new LinkedBlockingDeque<>();
+  private static Semaphore poolLeases = null;
+  private static ExecutorService poolWarmer = null;
+  private static int poolCreated = 0;
+  private static int poolRecycled = 0;
+
+  /**
+   * @return true if scripts run in pooled interpreters (Settings.JythonPoolSize &gt; 0)
+   */
+  public static boolean isPoolEnabled() {
+    return Settings.JythonPoolSize > 0 && isReady();
+  }
+
+  /**
+   * creates the pooled interpreters in the background (up to Settings.JythonPoolSize)
+   */
+  public void interpreterPoolPrewarm() {
+    if (!isPoolEnabled()) {
+      return;
+    }
+    synchronized (pool) {
+      if (poolLeases == null) {
+        poolLeases = new Semaphore(Settings.JythonPoolSize);
+        poolWarmer = Executors.newSingleThreadExecutor(runnable -> {
+          Thread thread = new Thread(runnable, "SikuliX-JythonPool");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+    }
+    poolWarmer.execute(() -> {
+      while (isPoolMissing()) {
+        PooledInterpreter pooled = createPooled();
+        if (pooled == null) {
+          return;
+        }
+        synchronized (pool) {
+          if (!isPoolMissing()) {
+            pooled.interpreter.close();
+            return;
+          }
+          pool.offer(pooled);
+        }
+      }
+    });
+  }
+
+  private static boolean isPoolMissing() {
+    int leasedCount = Settings.JythonPoolSize - poolLeases.availablePermits();
+    return pool.size() + leasedCount < Settings.JythonPoolSize;
+  }
+
+  private PooledInterpreter createPooled() {
+    long start = new Date().getTime();
+    List<String> mainPath;
+    synchronized (sysPath) {
+      getSysPath();
+      mainPath = new ArrayList<>(sysPath);
+    }
+    PythonInterpreter pyInterpreter = null;
+    try {
+      pyInterpreter = new PythonInterpreter(null, new PySystemState());
+      PyList pyPath = pyInterpreter.getSystemState().path;
+      pyPath.clear();
+      for (String entry : mainPath) {
+        pyPath.add(entry);
+      }
+      for (String line : POOL_WARMUP) {
+        pyInterpreter.exec(line);
+      }
+      PooledInterpreter pooled = new PooledInterpreter(pyInterpreter);
+      synchronized (pool) {
+        poolCreated++;
+      }
+      log(lvl, "pool: interpreter ready (%d msec)", new Date().getTime() - start);
+      return pooled;
+    } catch (Exception ex) {
+      log(-1, "pool: interpreter not possible: %s", ex);
+      if (pyInterpreter != null) {
+        pyInterpreter.close();
+      }
+      return null;
+    }
+  }
+
+  /**
+   * leases a pooled interpreter to the current thread (waits, if all are in use)<br>
+   * until interpreterRelease() the interpreter methods of this class use it
+   *
+   * @return false if the pool is not enabled or not usable (the shared interpreter has to be used)
+   */
+  public boolean interpreterAcquire() {
+    if (!isPoolEnabled()) {
+      return false;
+    }
+    if (poolLeases == null) {
+      interpreterPoolPrewarm();
+    }
+    try {
+      poolLeases.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    PooledInterpreter pooled = pool.poll();
+    if (pooled == null) {
+      pooled = createPooled();
+      if (pooled == null) {
+        poolLeases.release();
+        return false;
+      }
+    }
+    pooled.runs++;
+    leased.set(pooled.interpreter);
+    leasedPooled.set(pooled);
+    return true;
+  }
+
+  /**
+   * @return true if the current thread has leased a pooled interpreter (see interpreterAcquire)
+   */
+  public boolean interpreterIsLeased() {
+    return leasedPooled.get() != null;
+  }
+
+  /**
+   * gives the leased interpreter back: it is reset to the state after its warmup<br>
+   * it is replaced by a new one after Settings.JythonPoolRecycle runs or if its state might be broken
+   *
+   * @param clean false: the run failed or was aborted (the interpreter is replaced)
+   */
+  public void interpreterRelease(boolean clean) {
+    PooledInterpreter pooled = leasedPooled.get();
+    leased.remove();
+    leasedPooled.remove();
+    if (pooled == null) {
+      return;
+    }
+    boolean reuse = clean && pooled.runs < Settings.JythonPoolRecycle;
+    if (reuse) {
+      try {
+        pooled.reset();
+      } catch (Exception ex) {
+        log(lvl, "pool: reset failed: %s", ex);
+        reuse = false;
+      }
+    }
+    if (reuse) {
+      pool.offerFirst(pooled);
+      poolLeases.release();
+    } else {
+      synchronized (pool) {
+        poolRecycled++;
+      }
+      log(lvl + 1, "pool: interpreter replaced after %d runs%s", pooled.runs, clean ? "" : " (not clean)");
+      poolLeases.release();
+      poolWarmer.execute(pooled.interpreter::close);
+      interpreterPoolPrewarm();
+    }
+  }
+
+  /**
+   * @return interpreters created and replaced by the pool so far
+   */
+  public static String getPoolStats() {
+    synchronized (pool) {
+      return String.format("JythonPool: size: %d idle: %d created: %d replaced: %d",
+          Settings.JythonPoolSize, pool.size(), poolCreated, poolRecycled);
+    }
+  }
+  //</editor-fold>
+
   public void exportLib() {
     File fLib = Commons.getLibFolder();
     FilenameFilter filterSitePackages = null;
@@ -329,16 +569,148 @@ public class JythonSupport implements IRunnerSupport {
   }
   //</editor-fold>
 
+  //<editor-fold desc="16 compile cache">
+  private static final int CODE_CACHE_MEMORY = 100;
+  private static final long CODE_CACHE_DAYS = 30;
+
+  private static final Map<String, PyCode> codeCache = new LinkedHashMap<String, PyCode>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, PyCode> eldest) {
+      return size() > CODE_CACHE_MEMORY;
+    }
+  };
+  private static File codeCacheFolder = null;
+  private static int codeCompiled = 0;
+  private static int codeLoaded = 0;
+  private static int codeReused = 0;
+
+  /**
+   * the compiled code of a Python source file (used for script runs and imports of .sikuli bundles)<br>
+   * - the key is a hash of the Jython version, the file path and the file content<br>
+   * - the bytecode is kept in the folder JythonCache in the SikuliX app data folder (unused files are
+   * deleted after 30 days) and the last used code objects in memory
+   *
+   * @param pyFile path of the source file
+   * @return the code object or null (Settings.JythonCompileCache off or not possible - use the source)
+   */
+  public PyCode getCompiledCode(String pyFile) {
+    if (!Settings.JythonCompileCache || !pyFile.endsWith(".py")) {
+      return null;
+    }
+    File fSource = new File(pyFile).getAbsoluteFile();
+    byte[] source;
+    String key;
+    try {
+      source = FileUtils.readFileToByteArray(fSource);
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(Version.PY_VERSION.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(fSource.getPath().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(source);
+      key = String.format("%064x", new BigInteger(1, digest.digest()));
+    } catch (IOException | NoSuchAlgorithmException ex) {
+      log(-1, "compile cache: %s: %s", fSource, ex.getMessage());
+      return null;
+    }
+    synchronized (codeCache) {
+      PyCode code = codeCache.get(key);
+      if (code != null) {
+        codeReused++;
+        return code;
+      }
+    }
+    String name = FilenameUtils.getBaseName(fSource.getName());
+    File fCompiled = new File(getCodeCacheFolder(), key + ".class");
+    byte[] bytes = null;
+    if (fCompiled.exists()) {
+      try {
+        bytes = FileUtils.readFileToByteArray(fCompiled);
+        fCompiled.setLastModified(new Date().getTime());
+        synchronized (codeCache) {
+          codeLoaded++;
+        }
+      } catch (IOException ex) {
+        log(-1, "compile cache: %s: %s", fCompiled, ex.getMessage());
+      }
+    }
+    if (bytes == null) {
+      try {
+        bytes = imp.compileSource(name, new ByteArrayInputStream(source), fSource.getPath());
+      } catch (Exception ex) {
+        // e.g. a syntax error: reported when running the source
+        log(lvl + 1, "compile cache: not compiled: %s: %s", fSource, ex);
+        return null;
+      }
+      saveCompiled(fCompiled, bytes);
+      synchronized (codeCache) {
+        codeCompiled++;
+      }
+    }
+    PyCode code;
+    try {
+      code = BytecodeLoader.makeCode(name + "$py", bytes, fSource.getPath());
+    } catch (Exception ex) {
+      log(-1, "compile cache: not usable: %s: %s", fCompiled, ex);
+      fCompiled.delete();
+      return null;
+    }
+    synchronized (codeCache) {
+      codeCache.put(key, code);
+    }
+    log(lvl + 1, "compile cache: %s (%s)", fSource, key.substring(0, 12));
+    return code;
+  }
+
+  private void saveCompiled(File fCompiled, byte[] bytes) {
+    File fTemp = new File(fCompiled.getPath() + "." + Thread.currentThread().getId() + ".tmp");
+    try {
+      FileUtils.writeByteArrayToFile(fTemp, bytes);
+      Files.move(fTemp.toPath(), fCompiled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException ex) {
+      log(-1, "compile cache: not saved: %s: %s", fCompiled, ex.getMessage());
+      fTemp.delete();
+    }
+  }
+
+  private static synchronized File getCodeCacheFolder() {
+    if (codeCacheFolder == null) {
+      codeCacheFolder = new File(Commons.getAppDataPath(), "JythonCache");
+      codeCacheFolder.mkdirs();
+      long outdated = new Date().getTime() - CODE_CACHE_DAYS * 24 * 3600 * 1000;
+      File[] files = codeCacheFolder.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          if (file.lastModified() < outdated) {
+            file.delete();
+          }
+        }
+      }
+    }
+    return codeCacheFolder;
+  }
+
+  /**
+   * @return compiled, loaded from disk and reused from memory so far
+   */
+  public static String getCompileCacheStats() {
+    synchronized (codeCache) {
+      return String.format("JythonCache: compiled: %d loaded: %d reused: %d",
+          codeCompiled, codeLoaded, codeReused);
+    }
+  }
+  //</editor-fold>
+
   //<editor-fold desc="17 exec/eval">
   public Object interpreterEval(String expression) {
-    if (interpreter == null) {
+    if (interpreter() == null) {
       return "";
     }
-    return interpreter.eval(expression);
+    return interpreter().eval(expression);
   }
 
   public boolean interpreterExecString(String script) {
-    interpreter.exec(script);
+    interpreter().exec(script);
     return true;
   }
 
@@ -351,16 +723,22 @@ public class JythonSupport implements IRunnerSupport {
       log(-1, "exec compiled script: %s", e.getMessage());
     }
     PyCode pyCode = BytecodeLoader.makeCode(FilenameUtils.getBaseName(scriptFile), data, scriptFile);
-    interpreter.exec(pyCode);
+    interpreter().exec(pyCode);
   }
 
   public void interpreterExecFile(String script) {
-    interpreter.execfile(script);
+    PyCode code = getCompiledCode(script);
+    if (code != null) {
+      interpreter().exec(code);
+    } else {
+      interpreter().execfile(script);
+    }
   }
 
   public void executeScriptHeader(List<String> codeBefore) {
 //    Debug.on(4);
-    for (String line : SCRIPT_HEADER) {
+    String[] header = leasedPooled.get() == null ? SCRIPT_HEADER : POOL_SCRIPT_HEADER;
+    for (String line : header) {
       log(lvl + 1, "executeScriptHeader: %s", line);
       interpreterExecString(line);
     }
@@ -381,6 +759,13 @@ public class JythonSupport implements IRunnerSupport {
           "resetBeforeScriptStart()",
           "Debug.log(3, 'Jython: BeforeScript: %s (%f)',  SCREEN, time.time()-start)",
   };
+
+  /**
+   * The header commands for a pooled interpreter: the imports are done in its warmup
+   */
+  private static String[] POOL_SCRIPT_HEADER = new String[]{
+          "SCREEN.reset()",
+  };
   //</editor-fold>
 
   //<editor-fold desc="10 sys.path handling">
@@ -393,12 +778,12 @@ public class JythonSupport implements IRunnerSupport {
 
   public void getSysPath() {
     synchronized (sysPath) {
-      if (null == interpreter) {
+      if (null == interpreter()) {
         return;
       }
       sysPath.clear();
       try {
-        PySystemState pyState = interpreter.getSystemState();
+        PySystemState pyState = interpreter().getSystemState();
         PyList pyPath = pyState.path;
         int pathLen = pyPath.__len__();
         for (int i = 0; i < pathLen; i++) {
@@ -414,11 +799,11 @@ public class JythonSupport implements IRunnerSupport {
 
   public void setSysPath() {
     synchronized (sysPath) {
-      if (null == interpreter || null == sysPath) {
+      if (null == interpreter() || null == sysPath) {
         return;
       }
       try {
-        PySystemState pyState = interpreter.getSystemState();
+        PySystemState pyState = interpreter().getSystemState();
         PyList pyPath = pyState.path;
         int pathLen = pyPath.__len__();
         for (int i = 0; i < pathLen && i < sysPath.size(); i++) {
@@ -710,12 +1095,12 @@ public class JythonSupport implements IRunnerSupport {
 
   public List<String> getSysArgv() {
     sysArgv = new ArrayList<String>();
-    if (null == interpreter) {
+    if (null == interpreter()) {
       sysArgv = null;
       return null;
     }
     try {
-      PyList pyArgv = interpreter.getSystemState().argv;
+      PyList pyArgv = interpreter().getSystemState().argv;
       Integer argvLen = pyArgv.__len__();
       for (int i = 0; i < argvLen; i++) {
         String entry = (String) pyArgv.get(i);
@@ -729,11 +1114,11 @@ public class JythonSupport implements IRunnerSupport {
   }
 
   public void setSysArgv(List<String> args) {
-    if (null == interpreter) {
+    if (null == interpreter()) {
       return;
     }
     try {
-      PyList pyArgv = interpreter.getSystemState().argv;
+      PyList pyArgv = interpreter().getSystemState().argv;
       pyArgv.clear();
       for (String arg : args) {
         pyArgv.add(arg);
@@ -6,6 +6,10 @@ package org.sikuli.support.runner;
 
 import java.io.File;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
 
 import org.sikuli.ide.EditorConsolePane;
@@ -16,11 +20,26 @@ public abstract class AbstractLocalFileScriptRunner extends AbstractRunner {
 
 	private static final Deque<String> PREVIOUS_BUNDLE_PATHS = new ConcurrentLinkedDeque<>();
 
+	// concurrent runs do not switch the bundle path: their folders are added to the image path while running
+	private static final Map<String, Integer> CONCURRENT_FOLDERS = new HashMap<>();
+	private static final Set<String> CONCURRENT_FOLDERS_ADDED = new HashSet<>();
+
 	@Override
 	protected void adjustBundlePath(String script, IRunner.Options options) {
 		File file = new File(script);
 
 		if (file.exists()) {
+			if (isConcurrentRun()) {
+				String folder = file.getAbsoluteFile().getParent();
+				synchronized (CONCURRENT_FOLDERS) {
+					Integer count = CONCURRENT_FOLDERS.get(folder);
+					if (count == null && !ImagePath.has(folder) && ImagePath.add(folder)) {
+						CONCURRENT_FOLDERS_ADDED.add(folder);
+					}
+					CONCURRENT_FOLDERS.put(folder, count == null ? 1 : count + 1);
+				}
+				return;
+			}
 			String currentBundlePath = ImagePath.getBundlePath();
 			if(currentBundlePath != null) {
 			  PREVIOUS_BUNDLE_PATHS.push(currentBundlePath);
@@ -31,7 +50,20 @@ public abstract class AbstractLocalFileScriptRunner extends AbstractRunner {
 
 	@Override
 	protected void resetBundlePath(String script, IRunner.Options options) {
-		if (new File(script).exists() && !PREVIOUS_BUNDLE_PATHS.isEmpty()) {
+		File file = new File(script);
+		if (file.exists() && isConcurrentRun()) {
+			String folder = file.getAbsoluteFile().getParent();
+			synchronized (CONCURRENT_FOLDERS) {
+				Integer count = CONCURRENT_FOLDERS.remove(folder);
+				if (count != null && count > 1) {
+					CONCURRENT_FOLDERS.put(folder, count - 1);
+				} else if (CONCURRENT_FOLDERS_ADDED.remove(folder)) {
+					ImagePath.remove(folder);
+				}
+			}
+			return;
+		}
+		if (file.exists() && !PREVIOUS_BUNDLE_PATHS.isEmpty()) {
 		    ImagePath.setBundlePath(PREVIOUS_BUNDLE_PATHS.pop());
 		}
 	}
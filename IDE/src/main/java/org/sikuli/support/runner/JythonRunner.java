@@ -4,6 +4,7 @@
 package org.sikuli.support.runner;
 
 import org.sikuli.basics.Debug;
+import org.sikuli.basics.Settings;
 import org.sikuli.ide.SikulixIDE;
 import org.sikuli.support.ide.JythonSupport;
 import org.sikuli.script.Sikulix;
@@ -68,6 +69,14 @@ public class JythonRunner extends AbstractLocalFileScriptRunner {
     return true;
   }
 
+  /**
+   * with pooled interpreters (Settings.JythonPoolSize &gt; 0) scripts run concurrently, each in its own interpreter
+   */
+  @Override
+  protected boolean isConcurrent(String script, IRunner.Options options) {
+    return Settings.JythonPoolSize > 0;
+  }
+
   @Override
   public String[] getFileEndings() {
     String[] endings = super.getFileEndings();
@@ -97,6 +106,7 @@ public class JythonRunner extends AbstractLocalFileScriptRunner {
       }
       Commons.startLog(3, "Jython ready: version %s (%4.1f sec)", interpreterVersion, Commons.getSinceStart());
       SikulixIDE.showAfterStart();
+      jythonSupport.interpreterPoolPrewarm();
     }
   }
 
@@ -133,7 +143,9 @@ public class JythonRunner extends AbstractLocalFileScriptRunner {
   }
 
   /**
-   * Executes the jythonscript
+   * Executes the jythonscript<br>
+   * in a pooled interpreter (see JythonSupport.interpreterAcquire) or in the shared one (one script at a time)<br>
+   * a script run from a script running in a pooled interpreter uses that interpreter
    *
    * @param scriptFile
    * @param argv       arguments to be populated into sys.argv
@@ -142,52 +154,68 @@ public class JythonRunner extends AbstractLocalFileScriptRunner {
    */
   @Override
   protected int doRunScript(String scriptFile, String[] argv, IRunner.Options options) {
+    if (jythonSupport.interpreterIsLeased()) {
+      return runScriptInInterpreter(scriptFile, argv, options);
+    }
+    if (jythonSupport.interpreterAcquire()) {
+      int exitCode = 1;
+      try {
+        exitCode = runScriptInInterpreter(scriptFile, argv, options);
+      } finally {
+        jythonSupport.interpreterRelease(exitCode == 0 && !isAborted());
+      }
+      return exitCode;
+    }
 
     // Since we have a static interpreter, we have to synchronize class wide
     synchronized (JythonRunner.class) {
-      initAbort();
+      return runScriptInInterpreter(scriptFile, argv, options);
+    }
+  }
 
-      File pyFile = new File(scriptFile);
+  private int runScriptInInterpreter(String scriptFile, String[] argv, IRunner.Options options) {
+    initAbort();
 
-      jythonSupport.interpreterFillSysArgv(pyFile, argv);
-      jythonSupport.executeScriptHeader(codeBefore);
+    File pyFile = new File(scriptFile);
 
-      int exitCode = 0;
+    jythonSupport.interpreterFillSysArgv(pyFile, argv);
+    jythonSupport.executeScriptHeader(codeBefore);
 
-      try {
-        if (scriptFile.endsWith("$py.class")) {
-          jythonSupport.interpreterExecCode(new File(scriptFile));
+    int exitCode = 0;
+
+    try {
+      if (scriptFile.endsWith("$py.class")) {
+        jythonSupport.interpreterExecCode(new File(scriptFile));
+      } else {
+        jythonSupport.interpreterExecFile(pyFile.getAbsolutePath());
+      }
+    } catch (Throwable scriptException) {
+      if(!isAborted()) {
+        exitCode = 1;
+        java.util.regex.Pattern p = java.util.regex.Pattern.compile("SystemExit: (-?[0-9]+)");
+        String exception = scriptException.toString();
+
+        Matcher matcher = p.matcher(exception);
+        if (matcher.find()) {
+          exitCode = Integer.parseInt(matcher.group(1));
+          Debug.info("Exit code: " + exitCode);
         } else {
-          jythonSupport.interpreterExecFile(pyFile.getAbsolutePath());
-        }
-      } catch (Throwable scriptException) {
-        if(!isAborted()) {
-          exitCode = 1;
-          java.util.regex.Pattern p = java.util.regex.Pattern.compile("SystemExit: (-?[0-9]+)");
-          String exception = scriptException.toString();
-
-          Matcher matcher = p.matcher(exception);
-          if (matcher.find()) {
-            exitCode = Integer.parseInt(matcher.group(1));
-            Debug.info("Exit code: " + exitCode);
-          } else {
-            int errorExit = jythonSupport.findErrorSource(scriptException, pyFile.getAbsolutePath());
-            if (null != options) {
-              options.setErrorLine(errorExit);
-            }
+          int errorExit = jythonSupport.findErrorSource(scriptException, pyFile.getAbsolutePath());
+          if (null != options) {
+            options.setErrorLine(errorExit);
           }
         }
-      } finally {
-        jythonSupport.interpreterCleanup();
-      }
-
-      if (System.out.checkError()) {
-        Sikulix.popError("System.out is broken (console output)!" + "\nYou will not see any messages anymore!"
-                + "\nSave your work and restart the IDE!", "Fatal Error");
       }
+    } finally {
+      jythonSupport.interpreterCleanup();
+    }
 
-      return exitCode;
+    if (System.out.checkError()) {
+      Sikulix.popError("System.out is broken (console output)!" + "\nYou will not see any messages anymore!"
+              + "\nSave your work and restart the IDE!", "Fatal Error");
     }
+
+    return exitCode;
   }
 
   @Override
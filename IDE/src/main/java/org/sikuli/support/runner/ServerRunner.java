@@ -3,25 +3,42 @@
  */
 package org.sikuli.support.runner;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.regex.Matcher;
 import javax.script.ScriptEngine;
 
 import org.sikuli.basics.Debug;
+import org.sikuli.basics.Settings;
 import org.sikuli.script.ImagePath;
 import org.sikuli.support.Commons;
 import org.sikuli.support.ide.Runner;
 
 /**
  * EXPERIMENTAL --- NOT official API<br>
- *   not as is in version 2
+ *   not as is in version 2<br>
+ * one selector thread reads the requests of all connections (non-blocking),
+ * the commands are processed by Settings.RunServerWorkers threads<br>
+ * - the requests of a connection are processed in order (pipelining: send the next before the answer)<br>
+ * - at most Settings.RunServerConnections connections at a time
  */
 public class ServerRunner extends AbstractRunner {
 
@@ -44,11 +61,13 @@ public class ServerRunner extends AbstractRunner {
     return TYPE;
   }
 
-  private static ServerSocket server = null;
-  private static PrintWriter out = null;
-  private static Scanner in = null;
+  private static ServerSocketChannel server = null;
+  private static Selector selector = null;
+  private static ExecutorService workers = null;
   private static boolean isHandling = false;
-  private static boolean shouldStop = false;
+  private static volatile boolean shouldStop = false;
+  private static final Set<Connection> connections = new HashSet<>();
+  private static final Queue<Connection> writable = new ConcurrentLinkedQueue<>();
 
 //TODO set loglevel at runtime
   private static int logLevel = 0;
@@ -82,12 +101,16 @@ public class ServerRunner extends AbstractRunner {
       try {
         if (port > 0) {
 					dolog(3, "Starting: trying port: %d %s", port, userArgs);
-          server = new ServerSocket(port);
+          server = ServerSocketChannel.open();
+          server.bind(new InetSocketAddress(port));
+          server.configureBlocking(false);
+          selector = Selector.open();
+          server.register(selector, SelectionKey.OP_ACCEPT);
         }
       } catch (Exception ex) {
         dolog(-1, "Starting: " + ex.getMessage());
       }
-      if (server == null) {
+      if (selector == null) {
         dolog(-1, "could not be started");
         return false;
       }
@@ -119,28 +142,15 @@ public class ServerRunner extends AbstractRunner {
           }
         }
       });
-      while (true) {
-        dolog("now waiting on port: %d at %s", port, theIP);
-        Socket socket = server.accept();
-        out = new PrintWriter(socket.getOutputStream());
-        in = new Scanner(socket.getInputStream());
-        HandleClient client = new HandleClient(socket);
-        isHandling = true;
-        while (true) {
-          if (socket.isClosed()) {
-            shouldStop = client.getShouldStop();
-            break;
-          }
-          try {
-            Thread.sleep(1000);
-          } catch (InterruptedException ex) {
-          }
-        }
-        if (shouldStop) {
-          break;
-        }
-      }
+      AtomicInteger workerCount = new AtomicInteger();
+      workers = Executors.newFixedThreadPool(Math.max(1, Settings.RunServerWorkers),
+          r -> new Thread(r, "HandleClient-" + workerCount.incrementAndGet()));
+      dolog("now waiting on port: %d at %s", port, theIP);
+      select();
     } catch (Exception e) {
+      dolog(-1, "while serving: Exception:\n" + e.getMessage());
+    } finally {
+      stopServing();
     }
     if (!isHandling) {
       dolog(-1, "start handling not possible: " + port);
@@ -150,6 +160,306 @@ public class ServerRunner extends AbstractRunner {
     return true;
   }
 
+  //<editor-fold desc="10 event loop">
+  private static void select() throws IOException {
+    while (!shouldStop) {
+      selector.select();
+      Connection toWrite;
+      while (null != (toWrite = writable.poll())) {
+        toWrite.updateInterest();
+      }
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        if (!key.isValid()) {
+          continue;
+        }
+        if (key.isAcceptable()) {
+          accept();
+          continue;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+          if (key.isReadable()) {
+            connection.read();
+          }
+          if (key.isValid() && key.isWritable()) {
+            connection.write();
+          }
+        } catch (IOException ex) {
+          ServerRunner.dolog(-1, "connection: %s: %s", connection, ex.getMessage());
+          connection.close();
+        }
+      }
+    }
+  }
+
+  private static void accept() throws IOException {
+    SocketChannel channel = server.accept();
+    if (channel == null) {
+      return;
+    }
+    channel.configureBlocking(false);
+    Connection connection = new Connection(channel);
+    if (connections.size() >= Settings.RunServerConnections) {
+      dolog(-1, "connection refused (limit %d): %s", Settings.RunServerConnections, connection);
+      connection.respond("fail:\nconnection limit reached\n###+++###", false);
+      return;
+    }
+    connections.add(connection);
+    isHandling = true;
+    Debug.on(3);
+    ServerRunner.dolog("now handling client: " + connection);
+  }
+
+  private static void stopServing() {
+    for (Connection connection : new ArrayList<>(connections)) {
+      connection.close();
+    }
+    if (workers != null) {
+      workers.shutdown();
+      try {
+        workers.awaitTermination(60, TimeUnit.SECONDS);
+      } catch (InterruptedException ex) {
+      }
+    }
+    try {
+      if (selector != null) {
+        selector.close();
+      }
+      if (server != null) {
+        server.close();
+      }
+    } catch (IOException ex) {
+    }
+  }
+
+  /**
+   * a client connection: the lines are collected by the selector thread,
+   * the requests are processed one after the other by the workers,
+   * the answers are written by the selector thread
+   */
+  private static class Connection {
+    private static final int LINE_MAX = 64 * 1024;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final String name;
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private final Queue<ByteBuffer> answers = new ArrayDeque<>();
+    private final Deque<String> requests = new ArrayDeque<>();
+    private final HandleClient client = new HandleClient();
+    private boolean isHTTP = false;
+    private String request;
+    private boolean busy = false;
+    private boolean closeAfterWrite = false;
+    private boolean inputEnded = false;
+    private volatile boolean stopAfterWrite = false;
+
+    Connection(SocketChannel channel) throws ClosedChannelException {
+      this.channel = channel;
+      name = String.valueOf(channel.socket());
+      key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    // selector thread
+    void read() throws IOException {
+      readBuffer.clear();
+      int count = channel.read(readBuffer);
+      if (count < 0) {
+        // a last request might come without a line end: answered before closing
+        if (line.size() > 0) {
+          addLine(takeLine());
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        synchronized (this) {
+          inputEnded = true;
+          if (!busy) {
+            closeAfterWrite = true;
+          }
+        }
+        updateInterest();
+        return;
+      }
+      for (int n = 0; n < count; n++) {
+        byte b = readBuffer.get(n);
+        if (b == '\n') {
+          addLine(takeLine());
+        } else if (line.size() < LINE_MAX) {
+          line.write(b);
+        } else {
+          throw new IOException("request line too long");
+        }
+      }
+    }
+
+    private String takeLine() {
+      String inLine = new String(line.toByteArray(), Charset.defaultCharset());
+      line.reset();
+      if (inLine.endsWith("\r")) {
+        inLine = inLine.substring(0, inLine.length() - 1);
+      }
+      return inLine;
+    }
+
+    private void addLine(String inLine) {
+      if (!isHTTP) {
+        ServerRunner.dolog("processing: <%s>", inLine);
+      }
+      if (inLine.startsWith("GET /") && inLine.contains("HTTP/")) {
+        isHTTP = true;
+        request = inLine;
+        return;
+      }
+      if (isHTTP) {
+        if (!inLine.isEmpty()) {
+          return;
+        }
+      }
+      if (!isHTTP) {
+        request = "GET /" + inLine + " HTTP/1.1";
+      }
+      synchronized (this) {
+        if (closeAfterWrite) {
+          return;
+        }
+        requests.add(request);
+        if (!busy) {
+          busy = true;
+          workers.execute(this::process);
+        }
+      }
+    }
+
+    // worker thread
+    private void process() {
+      String next;
+      synchronized (this) {
+        next = requests.poll();
+      }
+      if (next == null) {
+        idle();
+        return;
+      }
+      boolean keep = false;
+      try {
+        String answer = client.handle(next, isHTTP);
+        keep = client.shouldKeep && !client.shouldStop;
+        if (client.shouldStop) {
+          stopAfterWrite = true;
+        }
+        respond(answer, keep);
+      } catch (Exception ex) {
+        ServerRunner.dolog(-1, "while processing: Exception:\n" + ex.getMessage());
+        respond(null, false);
+      }
+      synchronized (this) {
+        if (keep && !requests.isEmpty()) {
+          workers.execute(this::process);
+          return;
+        }
+      }
+      idle();
+    }
+
+    // worker thread: nothing more to process - with the input ended, the connection is closed after the answers
+    private void idle() {
+      synchronized (this) {
+        busy = false;
+        if (!inputEnded) {
+          return;
+        }
+        closeAfterWrite = true;
+      }
+      writable.add(this);
+      if (selector.isOpen()) {
+        selector.wakeup();
+      }
+    }
+
+    /**
+     * queues the answer for the selector thread
+     *
+     * @param answer the text (null: only close)
+     * @param keep   false: close the connection after the answer (the requests still waiting are dropped)
+     */
+    void respond(String answer, boolean keep) {
+      synchronized (this) {
+        if (answer != null) {
+          answers.add(ByteBuffer.wrap((answer + System.lineSeparator()).getBytes(Charset.defaultCharset())));
+        }
+        if (!keep) {
+          closeAfterWrite = true;
+          requests.clear();
+        }
+      }
+      writable.add(this);
+      if (selector.isOpen()) {
+        selector.wakeup();
+      }
+    }
+
+    // selector thread
+    void updateInterest() {
+      if (!key.isValid()) {
+        return;
+      }
+      synchronized (this) {
+        if (!answers.isEmpty()) {
+          key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+          return;
+        }
+      }
+      finishIfDone();
+    }
+
+    // selector thread
+    void write() throws IOException {
+      synchronized (this) {
+        while (!answers.isEmpty()) {
+          ByteBuffer answer = answers.peek();
+          channel.write(answer);
+          if (answer.hasRemaining()) {
+            return;
+          }
+          answers.poll();
+        }
+        key.interestOps(inputEnded ? 0 : SelectionKey.OP_READ);
+      }
+      finishIfDone();
+    }
+
+    private void finishIfDone() {
+      boolean done;
+      synchronized (this) {
+        done = closeAfterWrite && answers.isEmpty();
+      }
+      if (done) {
+        close();
+        if (stopAfterWrite) {
+          shouldStop = true;
+        }
+      }
+    }
+
+    void close() {
+      connections.remove(this);
+      key.cancel();
+      try {
+        channel.close();
+      } catch (IOException ex) {
+        ServerRunner.dolog(-1, "socket not closeable: %s", this);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+  //</editor-fold>
+
   private static int getPort(String p) {
     int port;
     int pDefault = 50001;
@@ -170,40 +480,29 @@ public class ServerRunner extends AbstractRunner {
   }
 
   static ScriptEngine jsRunner = null;
+	// the last SCRIPTS given on any connection: used by connections, that did not give their own
+	// (a client without keep-alive sends each command on a new connection)
 	static File scriptFolder = null;
 	static String scriptFolderNet = null;
-	static File imageFolder = null;
-	static String imageFolderNet = null;
 
-  private static class HandleClient implements Runnable {
+  /**
+   * the commands of one connection (the requests are handled one after the other)<br>
+   * SCRIPTS: the folder is valid for this connection (keep-alive) and the default for all others<br>
+   * IMAGES: the folder is added to the image path (for all connections)<br>
+   * RUN: the bundle path is set to the script while it runs (one run at a time)
+   */
+  private static class HandleClient {
 
-    private volatile boolean keepRunning;
-    private boolean shouldKeep = false;
-    Thread thread;
-    Socket socket;
-    Boolean shouldStop = false;
+    private static final Object RUN_LOCK = new Object();
 
-    public HandleClient(Socket sock) {
-      init(sock);
-    }
+		File scriptFolder = null;
+		String scriptFolderNet = null;
+		File imageFolder = null;
+		String imageFolderNet = null;
 
-    private void init(Socket sock) {
-      socket = sock;
-      if (in == null || out == null) {
-        ServerRunner.dolog(-1, "communication not established");
-        System.exit(1);
-      }
-      thread = new Thread(this, "HandleClient");
-      keepRunning = true;
-      thread.start();
-    }
+    boolean shouldKeep = false;
+    boolean shouldStop = false;
 
-    public boolean getShouldStop() {
-      return shouldStop;
-    }
-
-    boolean isHTTP = false;
-    String request;
     String rCommand;
     String rRessource;
     String rVersion = "HTTP/1.1";
@@ -222,224 +521,210 @@ public class ServerRunner extends AbstractRunner {
     String runTypeRB = "jruby";
     String runType = runTypeJS;
 
-    @Override
-    public void run() {
-			Debug.on(3);
-      ServerRunner.dolog("now handling client: " + socket);
-      while (keepRunning) {
-        try {
-          String inLine = in.nextLine();
-          if (inLine != null) {
-            if (!isHTTP) {
-              ServerRunner.dolog("processing: <%s>", inLine);
-            }
-						boolean success = true;
-            if (inLine.startsWith("GET /") && inLine.contains("HTTP/")) {
-              isHTTP = true;
-							request = inLine;
-              continue;
+    /**
+     * @param request the request line (GET /command HTTP/1.1)
+     * @param isHTTP  answer in HTTP format
+     * @return the answer
+     */
+    String handle(String request, boolean isHTTP) {
+      boolean success = checkRequest(request);
+      if (success) {
+        // STOP
+        if (rCommand.contains("STOP")) {
+          rMessage = "stopping server";
+          shouldStop = true;
+          shouldKeep = false;
+        } else if (rCommand.contains("EXIT")) {
+          rMessage = "stopping client";
+          shouldKeep = false;
+        // START
+        } else if (rCommand.startsWith("START")) {
+          runType = runTypeJS;
+          if (rCommand.length() > 5) {
+            if ("P".equals(rCommand.substring(5, 6))) {
+              runType = runTypePY;
+            } else if ("R".equals(rCommand.substring(5, 6))) {
+              runType = runTypeRB;
             }
-            if (isHTTP) {
-              if (!inLine.isEmpty()) {
-                continue;
+          }
+          success = startRunner(runType, null, null);
+          rMessage = "startRunner for: " + runType;
+          if (!success) {
+            rMessage = "startRunner: not possible for: " + runType;
+            rStatus = rStatusServiceNotAvail;
+          }
+        // SCRIPTS
+        } else if (rCommand.startsWith("SCRIPTS")) {
+          if (rRessource.isEmpty()) {
+            rMessage = "no scriptFolder given ";
+            rStatus = rStatusBadRequest;
+            success = false;
+          } else {
+            scriptFolder = getFolder(rRessource);
+            if (scriptFolder.getPath().startsWith("__NET/")) {
+              scriptFolderNet = "http://" + scriptFolder.getPath().substring(6);
+              rMessage = "scriptFolder now: " + scriptFolderNet;
+            } else {
+              scriptFolderNet = null;
+              rMessage = "scriptFolder now: " + scriptFolder.getAbsolutePath();
+              if (!scriptFolder.exists()) {
+                rMessage = "scriptFolder not found: " + scriptFolder.getAbsolutePath();
+                rStatus = rStatusNotFound;
+                success = false;
               }
             }
-            if (!isHTTP) {
-              request = "GET /" + inLine + " HTTP/1.1";
+            synchronized (HandleClient.class) {
+              ServerRunner.scriptFolder = scriptFolder;
+              ServerRunner.scriptFolderNet = scriptFolderNet;
             }
-            success = checkRequest(request);
-            if (success) {
-              // STOP
-              if (rCommand.contains("STOP")) {
-                rMessage = "stopping server";
-                shouldStop = true;
-                shouldKeep = false;
-              } else if (rCommand.contains("EXIT")) {
-                rMessage = "stopping client";
-                shouldKeep = false;
-              // START
-              } else if (rCommand.startsWith("START")) {
-                runType = runTypeJS;
-                if (rCommand.length() > 5) {
-                  if ("P".equals(rCommand.substring(5, 6))) {
-                    runType = runTypePY;
-                  } else if ("R".equals(rCommand.substring(5, 6))) {
-                    runType = runTypeRB;
-                  }
-                }
-                success = startRunner(runType, null, null);
-                rMessage = "startRunner for: " + runType;
-                if (!success) {
-                  rMessage = "startRunner: not possible for: " + runType;
-                  rStatus = rStatusServiceNotAvail;
-                }
-              // SCRIPTS
-              } else if (rCommand.startsWith("SCRIPTS")) {
-                if (rRessource.isEmpty()) {
-                  rMessage = "no scriptFolder given ";
-                  rStatus = rStatusBadRequest;
-                  success = false;
-                } else {
-                  scriptFolder = getFolder(rRessource);
-                  if (scriptFolder.getPath().startsWith("__NET/")) {
-                    scriptFolderNet = "http://" + scriptFolder.getPath().substring(6);
-                    rMessage = "scriptFolder now: " + scriptFolderNet;
-                  } else {
-                    scriptFolderNet = null;
-                    rMessage = "scriptFolder now: " + scriptFolder.getAbsolutePath();
-                    if (!scriptFolder.exists()) {
-                      rMessage = "scriptFolder not found: " + scriptFolder.getAbsolutePath();
-                      rStatus = rStatusNotFound;
-                      success = false;
-                    }
-                  }
-                }
-              // IMAGES
-              } else if (rCommand.startsWith("IMAGES")) {
-                String asImagePath;
-                if (rRessource.isEmpty()) {
-                  rMessage = "no imageFolder given ";
-                  rStatus = rStatusBadRequest;
-                  success = false;
-                } else {
-                  imageFolder = getFolder(rRessource);
-                  if (imageFolder.getPath().startsWith("__NET/")) {
-                    imageFolderNet = "http://" + imageFolder.getPath().substring(6);
-                    rMessage = "imageFolder now: " + imageFolderNet;
-                    asImagePath = imageFolderNet;
-                  } else {
-                    String fpGiven = imageFolder.getAbsolutePath();
-                    if (!imageFolder.exists()) {
-                      imageFolder = new File(imageFolder.getAbsolutePath() + ".sikuli");
-                      if (!imageFolder.exists()) {
-                        rMessage = "imageFolder not found: " + fpGiven;
-                        rStatus = rStatusNotFound;
-                        success = false;
-                      }
-                    }
-                    asImagePath = imageFolder.getAbsolutePath();
-                  }
-                  rMessage = "imageFolder now: " + asImagePath;
-                  ImagePath.add(asImagePath);
-                }
-                // RUN
-              } else if (rCommand.startsWith("RUN")) {
-                String script = rRessource;
-                File fScript = null;
-                File fScriptScript = null;
-                if (scriptFolderNet != null) {
-                  rMessage = "runScript from net not yet supported";
-                  rStatus = rStatusServiceNotAvail;
+          }
+        // IMAGES
+        } else if (rCommand.startsWith("IMAGES")) {
+          String asImagePath;
+          if (rRessource.isEmpty()) {
+            rMessage = "no imageFolder given ";
+            rStatus = rStatusBadRequest;
+            success = false;
+          } else {
+            imageFolder = getFolder(rRessource);
+            if (imageFolder.getPath().startsWith("__NET/")) {
+              imageFolderNet = "http://" + imageFolder.getPath().substring(6);
+              rMessage = "imageFolder now: " + imageFolderNet;
+              asImagePath = imageFolderNet;
+            } else {
+              String fpGiven = imageFolder.getAbsolutePath();
+              if (!imageFolder.exists()) {
+                imageFolder = new File(imageFolder.getAbsolutePath() + ".sikuli");
+                if (!imageFolder.exists()) {
+                  rMessage = "imageFolder not found: " + fpGiven;
+                  rStatus = rStatusNotFound;
                   success = false;
                 }
-                if (success) {
-                  Debug.log("Using script folder: " + ServerRunner.scriptFolder);
-                  fScript = new File(ServerRunner.scriptFolder, script);
-                  if (!fScript.exists()) {
-                    if (script.endsWith(".sikuli")) {
-                      script = script.replace(".sikuli", "");
-                    } else {
-                      script = script + ".sikuli";
-                    }
-                    fScript = new File(scriptFolder, script);
-                  }
-                  String scriptScript = script.replace(".sikuli", "");
-                  fScriptScript = new File(fScript, scriptScript + ".js");
-                  success = fScriptScript.exists();
-                  if (!success) {
-                    fScriptScript = new File(fScript, scriptScript + ".py");
-                    success = fScript.exists() && fScriptScript.exists();
-                    if (!success) {
-                      ServerRunner.dolog("Script folder path: " + fScript.getAbsolutePath());
-                      ServerRunner.dolog("Script file path: " + fScriptScript.getAbsolutePath());
-                      rMessage = "runScript: script not found, not valid or not supported "
-                              + fScriptScript.toString();
-                    }
-                    runType = runTypePY;
-                  }
-                }
-                if (success) {
-                  ImagePath.setBundlePath(fScript.getAbsolutePath());
-                  List<String> args = new ArrayList<String>();
-
-                  if (this.rQuery != null && this.rQuery.length() > 0) {
-                    String[] params = this.rQuery.split("[;&]");
-
-                    for (String param : params) {
-                      String[] pair = param.split("[=]");
-
-                      if (pair != null && pair.length == 2) {
-                        // Needs both a variable name and value, and supports repeated parameters
-                        String arg = String.format("--%1$s=%2$s", pair[0], pair[1]);
-                        ServerRunner.dolog("Parameter: %s", arg);
-                        args.add(arg);
-                      }
-                    }
-                  }
-
-                  success = this.startRunner(this.runType, fScript, fScriptScript, args.toArray(new String[0]));
-                }
-              } else if (rCommand.startsWith("EVAL")) {
-                if (jsRunner != null) {
-                  String line = rQuery;
-                  try {
-                    evalReturnObject = jsRunner.eval(line);
-                    rMessage = "runStatement: returned: "
-                            + (evalReturnObject == null ? "null" : evalReturnObject.toString());
-                    success = true;
-                  } catch (Exception ex) {
-                    rMessage = "runStatement: raised exception on eval: " + ex.toString();
-                    success = false;
-                  }
-                } else {
-                  rMessage = "runStatement: not possible --- no runner";
-                  rStatus = rStatusServiceNotAvail;
-                  success = false;
+              }
+              asImagePath = imageFolder.getAbsolutePath();
+            }
+            rMessage = "imageFolder now: " + asImagePath;
+            ImagePath.add(asImagePath);
+          }
+          // RUN
+        } else if (rCommand.startsWith("RUN")) {
+          String script = rRessource;
+          File fScript = null;
+          File fScriptScript = null;
+          File scriptFolder = this.scriptFolder;
+          String scriptFolderNet = this.scriptFolderNet;
+          if (scriptFolder == null) {
+            synchronized (HandleClient.class) {
+              scriptFolder = ServerRunner.scriptFolder;
+              scriptFolderNet = ServerRunner.scriptFolderNet;
+            }
+          }
+          if (scriptFolderNet != null) {
+            rMessage = "runScript from net not yet supported";
+            rStatus = rStatusServiceNotAvail;
+            success = false;
+          }
+          if (success) {
+            Debug.log("Using script folder: " + scriptFolder);
+            fScript = new File(scriptFolder, script);
+            if (!fScript.exists()) {
+              if (script.endsWith(".sikuli")) {
+                script = script.replace(".sikuli", "");
+              } else {
+                script = script + ".sikuli";
+              }
+              fScript = new File(scriptFolder, script);
+            }
+            String scriptScript = script.replace(".sikuli", "");
+            fScriptScript = new File(fScript, scriptScript + ".js");
+            success = fScriptScript.exists();
+            if (!success) {
+              fScriptScript = new File(fScript, scriptScript + ".py");
+              success = fScript.exists() && fScriptScript.exists();
+              if (!success) {
+                ServerRunner.dolog("Script folder path: " + fScript.getAbsolutePath());
+                ServerRunner.dolog("Script file path: " + fScriptScript.getAbsolutePath());
+                rMessage = "runScript: script not found, not valid or not supported "
+                        + fScriptScript.toString();
+              }
+              runType = runTypePY;
+            }
+          }
+          if (success) {
+            List<String> args = new ArrayList<String>();
+
+            if (this.rQuery != null && this.rQuery.length() > 0) {
+              String[] params = this.rQuery.split("[;&]");
+
+              for (String param : params) {
+                String[] pair = param.split("[=]");
+
+                if (pair != null && pair.length == 2) {
+                  // Needs both a variable name and value, and supports repeated parameters
+                  String arg = String.format("--%1$s=%2$s", pair[0], pair[1]);
+                  ServerRunner.dolog("Parameter: %s", arg);
+                  args.add(arg);
                 }
               }
             }
-            String retVal = "";
-            if (isHTTP) {
-              retVal = "HTTP/1.1 " + rStatus;
-              String state = (success ? "PASS " : "FAIL ") + rStatus.substring(0,3) + " ";
-              retVal += "\r\n\r\n" + state + rMessage + "\r";
+
+            File bundle = fScript;
+            File bundleScript = fScriptScript;
+            success = withBundlePath(bundle,
+                () -> this.startRunner(this.runType, bundle, bundleScript, args.toArray(new String[0])));
+          }
+        } else if (rCommand.startsWith("EVAL")) {
+          if (jsRunner != null) {
+            String line = rQuery;
+            Exception[] evalException = new Exception[1];
+            success = withBundlePath(null, () -> {
+              try {
+                evalReturnObject = jsRunner.eval(line);
+                return true;
+              } catch (Exception ex) {
+                evalException[0] = ex;
+                return false;
+              }
+            });
+            if (success) {
+              rMessage = "runStatement: returned: "
+                      + (evalReturnObject == null ? "null" : evalReturnObject.toString());
             } else {
-              retVal = (success ? "isok:\n" : "fail:\n") + rMessage + "\n###+++###";
+              rMessage = "runStatement: raised exception on eval: " + evalException[0].toString();
             }
-            try {
-              out.println(retVal);
-              out.flush();
-              ServerRunner.dolog("returned:\n"  + retVal.replace("###+++###", ""));
-            } catch (Exception ex) {
-              ServerRunner.dolog(-1, "write response: Exception:\n" + ex.getMessage());
-            }
-            stopRunning();
+          } else {
+            rMessage = "runStatement: not possible --- no runner";
+            rStatus = rStatusServiceNotAvail;
+            success = false;
           }
-        } catch (Exception ex) {
-          ServerRunner.dolog(-1, "while processing: Exception:\n" + ex.getMessage());
-          shouldKeep = false;
-          stopRunning();
         }
       }
-      try {
-        Thread.sleep(100);
-      } catch (InterruptedException ex) {
-        shouldKeep = false;
-        stopRunning();
+      String retVal = "";
+      if (isHTTP) {
+        retVal = "HTTP/1.1 " + rStatus;
+        String state = (success ? "PASS " : "FAIL ") + rStatus.substring(0,3) + " ";
+        retVal += "\r\n\r\n" + state + rMessage + "\r";
+      } else {
+        retVal = (success ? "isok:\n" : "fail:\n") + rMessage + "\n###+++###";
       }
+      ServerRunner.dolog("returned:\n"  + retVal.replace("###+++###", ""));
+      return retVal;
     }
 
-    public void stopRunning() {
-      if (!shouldKeep) {
-        in.close();
-        out.close();
-        try {
-          socket.close();
-        } catch (IOException ex) {
-          ServerRunner.dolog(-1, "fatal: socket not closeable");
-          System.exit(1);
+    /**
+     * runs the action with the given bundle path (runs and evals of all connections one at a time,
+     * so the global bundle path stays the one of the running script)
+     *
+     * @param bundle the script folder (null: bundle path not changed)
+     * @param action the run or eval
+     * @return the result of the action
+     */
+    private boolean withBundlePath(File bundle, BooleanSupplier action) {
+      synchronized (RUN_LOCK) {
+        if (bundle != null) {
+          ImagePath.setBundlePath(bundle.getAbsolutePath());
         }
-        keepRunning = false;
+        return action.getAsBoolean();
       }
     }
 
@@ -9,11 +9,12 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -26,6 +27,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.sikuli.basics.Debug;
+import org.sikuli.basics.Settings;
 import org.sikuli.support.FileManager;
 
 import io.undertow.Handlers;
@@ -46,6 +48,7 @@ import io.undertow.server.handlers.resource.ResourceManager;
 import io.undertow.util.AttachmentKey;
 import io.undertow.util.Headers;
 import io.undertow.util.Methods;
+import io.undertow.util.SameThreadExecutor;
 import io.undertow.util.StatusCodes;
 import io.undertow.util.URLUtils;
 import org.sikuli.support.Commons;
@@ -478,47 +481,45 @@ public class SikulixServer {
     };
 
     private ExceptionHandler run = Handlers.exceptionHandler(exchange -> {
-      if (exchange.isInIoThread()) {
-        // switching to a worker thread
-        exchange.dispatch(this.run);
+      if (getTaskManager().isPaused()) {
+        sendResponse(exchange, StatusCodes.NOT_ACCEPTABLE, new ErrorResponse(String.format("the script execution is paused")));
         return;
       }
+      String id = generateTaskId(exchange);
+      String groupName = getCurrentGroup(exchange);
+      String scriptName = exchange.getQueryParameters().get("*").getLast().replaceFirst("/run$", "");
+      String[] scriptArgs = getScriptArgs(exchange);
+
+      Task task = getTaskManager().request(id, groupName, scriptName, scriptArgs, getPriority(exchange), false);
+      // the exchange is parked until the task has ended - no thread is waiting
+      exchange.dispatch(SameThreadExecutor.INSTANCE, () -> task.whenEnded(ended ->
+          exchange.getIoThread().execute(() -> sendRunResponse(exchange, ended))));
+    });
 
+    private void sendRunResponse(final HttpServerExchange exchange, final Task task) {
       int statusCode = StatusCodes.OK;
       Object responseObject = null;
-
-      if (getTaskManager().isPaused()) {
-        responseObject = new ErrorResponse(String.format("the script execution is paused"));
-        statusCode = StatusCodes.NOT_ACCEPTABLE;
-      } else {
-        String id = generateTaskId(exchange);
-        String groupName = getCurrentGroup(exchange);
-        String scriptName = exchange.getQueryParameters().get("*").getLast().replaceFirst("/run$", "");
-        String[] scriptArgs = getScriptArgs(exchange);
-  
-        Task task = getTaskManager().requestSync(id, groupName, scriptName, scriptArgs);
-        int retval = task.exitCode;
-        switch(retval) {
-          case Runner.FILE_NOT_FOUND:
-            responseObject = new ErrorResponse(String.format("script not found '%s'", scriptName));
-            statusCode = StatusCodes.NOT_FOUND;
-            break;
-          case Runner.NOT_SUPPORTED:
-            responseObject = new ErrorResponse(String.format("script not supported '%s'", scriptName));
-            statusCode = StatusCodes.NOT_FOUND;
-            break;
-          default:
-            if (retval < 0 || 255 < retval) {
-              responseObject = new ErrorResponse(String.format("script failed exitCode='%d'", retval));
-              statusCode = StatusCodes.SERVICE_UNAVAILABLE;
-            } else {
-              responseObject = task;
-            }
-            break;
-        }  
+      int retval = task.exitCode;
+      switch(retval) {
+        case Runner.FILE_NOT_FOUND:
+          responseObject = new ErrorResponse(String.format("script not found '%s'", task.scriptName));
+          statusCode = StatusCodes.NOT_FOUND;
+          break;
+        case Runner.NOT_SUPPORTED:
+          responseObject = new ErrorResponse(String.format("script not supported '%s'", task.scriptName));
+          statusCode = StatusCodes.NOT_FOUND;
+          break;
+        default:
+          if (retval < 0 || 255 < retval) {
+            responseObject = new ErrorResponse(String.format("script failed exitCode='%d'", retval));
+            statusCode = StatusCodes.SERVICE_UNAVAILABLE;
+          } else {
+            responseObject = task;
+          }
+          break;
       }
       sendResponse(exchange, statusCode, responseObject);
-    });
+    }
 
     private HttpHandler task = exchange -> {
       String id = generateTaskId(exchange);
@@ -526,7 +527,7 @@ public class SikulixServer {
       String scriptName = exchange.getQueryParameters().get("*").getLast().replaceFirst("/task$", "");
       String[] scriptArgs = getScriptArgs(exchange);
 
-      Task task = getTaskManager().requestAsync(id, groupName, scriptName, scriptArgs);
+      Task task = getTaskManager().request(id, groupName, scriptName, scriptArgs, getPriority(exchange), true);
       sendResponse(exchange, StatusCodes.OK, task);
     };
 
@@ -563,8 +564,13 @@ public class SikulixServer {
     }
 
     private Optional<ObjectNode> getScriptInfo(String groupName, String scriptName) {
-      Commons.setWorkDir(groups.get(groupName));
-      String[] scripts = Runner.resolveRelativeFiles(new String[]{scriptName});
+      String[] scripts;
+      Commons.setThreadWorkDir(groups.get(groupName));
+      try {
+        scripts = Runner.resolveRelativeFiles(new String[]{scriptName});
+      } finally {
+        Commons.setThreadWorkDir(null);
+      }
       if (!scripts[0].startsWith("?")) {
         ObjectNode result = getObjectMapper().createObjectNode();
         result.put("name", scriptName)
@@ -586,6 +592,25 @@ public class SikulixServer {
       return Optional.ofNullable(attachment.get(GroupsCommand.ATTACHMENTKEY_GROUPNAME)).orElse(DEFAULT_GROUP);
     }
 
+    private int getPriority(final HttpServerExchange exchange) {
+      String priority = Optional.ofNullable(exchange.getQueryParameters().get("priority"))
+          .map(Deque::getLast).orElse(null);
+      if (exchange.getRequestMethod().equals(Methods.POST)) {
+        FormData form = exchange.getAttachment(FormDataParser.FORM_DATA);
+        if (form != null && form.contains("priority")) {
+          priority = form.getLast("priority").getValue();
+        }
+      }
+      if (priority != null) {
+        try {
+          return Integer.parseInt(priority.trim());
+        } catch (NumberFormatException ex) {
+          dolog(-1, "invalid priority '%s' - using 0", priority);
+        }
+      }
+      return 0;
+    }
+
     private String[] getScriptArgs(final HttpServerExchange exchange) {
       String[] args = {};
       Optional<String> argsString = Optional.empty();
@@ -749,63 +774,42 @@ public class SikulixServer {
     }
   }
 
+  /**
+   * runs the tasks with Settings.ServerWorkers threads<br>
+   * - each task has its own work dir (the group folder) and user args (see Commons.setThreadWorkDir)<br>
+   * - the waiting tasks are ordered by priority (higher first), then by arrival<br>
+   * - with Settings.ServerGroupSerial only one task per group runs at a time<br>
+   * - only the latest Settings.ServerTasksKept ended tasks are kept
+   */
   private static class TaskManager {
     private LinkedHashMap<String, Task> allTasks;
-    private LinkedBlockingDeque<Task> queue;
+    private TreeSet<Task> queue;
+    private Set<String> runningGroups;
+    private int workers;
+    private int running;
+    private int ended;
+    private long sequence;
     private boolean shouldStop;
     private boolean shouldPause;
-    private Object lock;
     private ExecutorService executor;
 
     public TaskManager() {
       allTasks = new LinkedHashMap<>();
-      queue = new LinkedBlockingDeque<>();
+      queue = new TreeSet<>(Comparator.comparingInt((Task task) -> -task.priority)
+          .thenComparingLong(task -> task.sequence));
+      runningGroups = new HashSet<>();
+      workers = Math.max(1, Settings.ServerWorkers);
+      running = 0;
+      ended = 0;
+      sequence = 0;
       shouldStop = false;
       shouldPause = false;
-      executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "Task Executor"));
-      lock = new Object();
-      executor.execute(() -> {
-        while (!shouldStop) {
-          Task task = null;
-          try {
-            synchronized(lock) {
-              while (shouldPause) {
-                lock.wait();
-              }
-            }
-            task = queue.take();
-            if ("shouldStop".equals(task.id) || "shouldPause".equals(task.id)) {
-              // NOOP
-            } else {
-              synchronized(task) {
-                if (task.isWaiting()) {
-                  task.updateStatus(Task.Status.RUNNING);
-                }
-              }
-              if (task.isRunning()) {
-                  task.runScript();
-              }
-            }
-          } catch (InterruptedException ex) {
-            // NOOP
-          } catch (Exception ex) {
-            SikulixServer.dolog(-1, "ScriptExecutor: Exception: %s", ex);
-            ex.printStackTrace();
-            if (task != null) {
-              task.updateStatus(Task.Status.FAILED);
-            }
-          } finally {
-            if (task != null) {
-              synchronized(task) {
-                task.notify();
-              }
-            }
-          }
-        }
-      });
+      AtomicInteger threadCount = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(workers, r -> new Thread(r,
+          workers == 1 ? "Task Executor" : "Task Executor-" + threadCount.incrementAndGet()));
     }
 
-    public Map<String, Task> getTasks(Optional<String> groupName, Optional<String> scriptName) {
+    public synchronized Map<String, Task> getTasks(Optional<String> groupName, Optional<String> scriptName) {
       LinkedHashMap<String, Task> result = allTasks.entrySet().stream()
           .filter(e -> {
             if (groupName.isPresent()) {
@@ -822,57 +826,119 @@ public class SikulixServer {
               }
             }
           })
-          .collect(Collectors.toMap(Entry::getKey, Entry::getValue, (oldValue, newValue) -> newValue, LinkedHashMap::new));
+          .collect(Collectors.toMap(Entry::getKey, e -> e.getValue().clone(), (oldValue, newValue) -> newValue, LinkedHashMap::new));
       return Collections.unmodifiableMap(result);
     }
 
-    public Task requestSync(final String id, final String groupName, final String scriptName, final String[] scriptArgs) throws Exception {
-      return request(id, groupName, scriptName, scriptArgs, false);
+    /**
+     * queues a new task
+     *
+     * @return a snapshot of the task (Task.whenEnded() signals the end)
+     */
+    public synchronized Task request(final String id, final String groupName, final String scriptName,
+        final String[] scriptArgs, final int priority, boolean isAsync) {
+      Task request = new Task(id, groupName, scriptName, scriptArgs, priority, isAsync);
+      request.sequence = sequence++;
+      request.submitDate = new Date();
+      allTasks.put(request.id, request);
+      if (shouldStop) {
+        end(request, Task.Status.CANCELED);
+        return request.clone();
+      }
+      queue.add(request);
+      schedule();
+      return request.clone();
     }
 
-    public Task requestAsync(final String id, final String groupName, final String scriptName, final String[] scriptArgs) throws Exception {
-      return request(id, groupName, scriptName, scriptArgs, true);
+    private void schedule() {
+      if (shouldPause || shouldStop) {
+        return;
+      }
+      Iterator<Task> waiting = queue.iterator();
+      while (running < workers && waiting.hasNext()) {
+        Task task = waiting.next();
+        if (Settings.ServerGroupSerial && runningGroups.contains(task.groupName)) {
+          continue;
+        }
+        waiting.remove();
+        running++;
+        runningGroups.add(task.groupName);
+        task.updateStatus(Task.Status.RUNNING);
+        task.startDate = new Date();
+        task.queueTime = task.startDate.getTime() - task.submitDate.getTime();
+        executor.execute(() -> execute(task));
+      }
     }
 
-    private Task request(final String id, final String groupName, final String scriptName, 
-        final String[] scriptArgs, boolean isAsync) throws Exception {
-      Task request = new Task(id, groupName, scriptName, scriptArgs, isAsync);
-      synchronized(allTasks) {
-        allTasks.put(request.id, request);
-        queue.put(request);
+    private void execute(Task task) {
+      Task.Status status = Task.Status.FAILED;
+      try {
+        task.exitCode = task.runScript();
+        status = task.exitCode < 0 || 255 < task.exitCode ? Task.Status.FAILED : Task.Status.FINISHED;
+      } catch (Exception ex) {
+        SikulixServer.dolog(-1, "ScriptExecutor: Exception: %s", ex);
+        ex.printStackTrace();
       }
-      if (!isAsync) {
-        synchronized(request) {
-          while(request.isWaiting() || request.isRunning()) {
-            request.wait();
-          }
+      Task snapshot;
+      synchronized (this) {
+        running--;
+        runningGroups.remove(task.groupName);
+        snapshot = end(task, status);
+        schedule();
+      }
+      task.ended.complete(snapshot);
+    }
+
+    private Task end(Task task, Task.Status status) {
+      task.updateStatus(status);
+      task.endDate = new Date();
+      if (task.startDate != null) {
+        task.runTime = task.endDate.getTime() - task.startDate.getTime();
+      } else {
+        task.queueTime = task.endDate.getTime() - task.submitDate.getTime();
+      }
+      ended++;
+      int kept = Math.max(0, Settings.ServerTasksKept);
+      Iterator<Task> tasks = allTasks.values().iterator();
+      while (ended > kept && tasks.hasNext()) {
+        if (tasks.next().hasEnded()) {
+          tasks.remove();
+          ended--;
         }
       }
-      return request.clone();
+      return task.clone();
     }
 
     public boolean cancel(final String id) {
-      Task task = allTasks.get(id);
-      if (task != null) {
-        synchronized (task) {
-          if (task.isWaiting()) {
-            task.updateStatus(Task.Status.CANCELED);
-            task.notify();
-            return true;
-          } else {
-            SikulixServer.dolog(-1, "could not cancel the task: %s", id);
-            return false;
-          }
+      Task task;
+      Task snapshot;
+      synchronized (this) {
+        task = allTasks.get(id);
+        if (task == null) {
+          SikulixServer.dolog(-1, "the task is not found: %s", id);
+          return false;
         }
-      } else {
-        SikulixServer.dolog(-1, "the task is not found: %s", id);
-        return false;
+        if (!task.isWaiting()) {
+          SikulixServer.dolog(-1, "could not cancel the task: %s", id);
+          return false;
+        }
+        queue.remove(task);
+        snapshot = end(task, Task.Status.CANCELED);
       }
+      task.ended.complete(snapshot);
+      return true;
     }
 
     public void stop() {
-      shouldStop = true;
-      queue.addFirst(new Task("shouldStop", null, null, null, true));
+      Map<Task, Task> canceled = new LinkedHashMap<>();
+      synchronized (this) {
+        shouldStop = true;
+        for (Task task : queue) {
+          canceled.put(task, end(task, Task.Status.CANCELED));
+        }
+        queue.clear();
+      }
+      canceled.forEach((task, snapshot) -> task.ended.complete(snapshot));
       executor.shutdown();
       while(!executor.isTerminated()) {
         try {
@@ -883,31 +949,26 @@ public class SikulixServer {
       }
     }
 
-    public boolean pause() {
-      synchronized(lock) {
-        if (shouldPause) {
-          return false;
-        } else {
-          shouldPause = true;
-          queue.addFirst(new Task("shouldPause", null, null, null, true));
-          return true;
-        }
+    public synchronized boolean pause() {
+      if (shouldPause) {
+        return false;
+      } else {
+        shouldPause = true;
+        return true;
       }
     }
 
-    public boolean resume() {
-      synchronized(lock) {
-        if (shouldPause) {
-          shouldPause = false;
-          lock.notify();
-          return true;
-        } else {
-          return false;
-        }
+    public synchronized boolean resume() {
+      if (shouldPause) {
+        shouldPause = false;
+        schedule();
+        return true;
+      } else {
+        return false;
       }
     }
 
-    public boolean isPaused() {
+    public synchronized boolean isPaused() {
       return shouldPause;
     }
   }
@@ -917,19 +978,26 @@ public class SikulixServer {
     public final String groupName;
     public final String scriptName;
     public final String[] scriptArgs;
+    public final int priority;
     @SuppressWarnings("unused")
     public final boolean isAsync;
     public Status status;
+    public Date submitDate;
     public Date startDate;
     public Date endDate;
+    public long queueTime = -1;
+    public long runTime = -1;
     public int exitCode;
+    private long sequence;
+    private CompletableFuture<Task> ended = new CompletableFuture<>();
 
-    private Task(final String id, final String groupName, 
-                 final String scriptName, final String[] scriptArgs, final boolean isAsync) {
+    private Task(final String id, final String groupName, final String scriptName,
+                 final String[] scriptArgs, final int priority, final boolean isAsync) {
       this.id = id;
       this.groupName = groupName;
       this.scriptName = scriptName;
       this.scriptArgs = scriptArgs;
+      this.priority = priority;
       this.isAsync = isAsync;
       this.status = Status.WAITING;
     }
@@ -944,21 +1012,31 @@ public class SikulixServer {
       return status == Status.RUNNING;
     }
 
+    private boolean hasEnded() {
+      return !isWaiting() && !isRunning();
+    }
+
     public void updateStatus(Status status) {
       this.status = status;
     }
 
-    public void runScript() {
-      Commons.setWorkDir(groups.get(groupName));
-      String[] scripts = Runner.resolveRelativeFiles(new String[]{scriptName});
-      Commons.setUserArgs(scriptArgs);
-      startDate = new Date();
-      exitCode = Runner.runScripts(scripts, scriptArgs, new IRunner.Options());
-      endDate = new Date();
-      if (exitCode < 0 || 255 < exitCode) {
-        status = Status.FAILED;
-      } else {
-        status = Status.FINISHED;
+    /**
+     * @param action gets a snapshot of the ended task (immediately, if already ended)
+     */
+    public void whenEnded(Consumer<Task> action) {
+      ended.thenAccept(action);
+    }
+
+    public int runScript() {
+      // work dir and user args of the task: valid for the worker thread (the runner passes them to the script)
+      Commons.setThreadWorkDir(groups.get(groupName));
+      Commons.setThreadUserArgs(scriptArgs);
+      try {
+        String[] scripts = Runner.resolveRelativeFiles(new String[]{scriptName});
+        return Runner.runScripts(scripts, scriptArgs, new IRunner.Options());
+      } finally {
+        Commons.setThreadWorkDir(null);
+        Commons.setThreadUserArgs(null);
       }
     }
 
@@ -967,6 +1045,9 @@ public class SikulixServer {
       Task clone = null;
       try {
         clone = (Task) super.clone();
+        if (submitDate != null) {
+          clone.submitDate = (Date) submitDate.clone();
+        }
         if (startDate != null) {
           clone.startDate = (Date) startDate.clone();
         }
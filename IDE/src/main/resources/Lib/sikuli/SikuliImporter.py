@@ -25,6 +25,13 @@ class SikuliImporter:
                 evalue = etype(fullname + ".sikuli has no " + fullname + ".py")
                 raise etype, evalue, etb
               
+            if desc[2] == imp.PY_SOURCE:
+                code = JH.get().getCompiledCode(pathname)
+                if code:
+                    if file:
+                        file.close()
+                    return self._exec_module(fullname, pathname, code)
+
             try:
                 return imp.load_module(fullname, file, pathname, desc)
             except:
@@ -35,6 +42,21 @@ class SikuliImporter:
                 if file:
                     file.close()
         
+        def _exec_module(self, fullname, pathname, code):
+            # same as imp.load_module, but with the bytecode from the compile cache
+            isNew = fullname not in sys.modules
+            module = sys.modules.setdefault(fullname, imp.new_module(fullname))
+            module.__file__ = pathname
+            try:
+                exec code in module.__dict__
+            except:
+                if isNew:
+                    del sys.modules[fullname]
+                etype, evalue, etb = sys.exc_info()
+                evalue = etype("!!WHILE IMPORTING!! %s" % evalue)
+                raise etype, evalue, etb
+            return sys.modules[fullname]
+
         def load_module(self, module_name):
             module_name = JH.get().loadModulePrepare(module_name, self.path)
             return self._load_module(module_name)
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010-2021, sikuli.org, sikulix.com - MIT license
+ */
+package org.sikuli.support.runner;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sikuli.script.ImagePath;
+import org.sikuli.support.Commons;
+import org.sikuli.util.Run;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * the RunServer socket protocol as used by org.sikuli.util.Run without connect():
+ * each command is sent on a new connection, so SCRIPTS and IMAGES must be valid for the following ones
+ */
+public class ServerRunnerTest {
+
+  private static final int PORT = 50001;
+  private static final long WAIT = 10000;
+
+  @ClassRule
+  public static TemporaryFolder folder = new TemporaryFolder();
+
+  private static Thread server = null;
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    assumeTrue(!Commons.runningWindows());
+    assumeTrue(!folder.getRoot().getAbsolutePath().toLowerCase().startsWith("/home/"));
+    try (ServerSocket probe = new ServerSocket(PORT)) {
+      probe.setReuseAddress(true);
+    } catch (IOException ex) {
+      assumeTrue("port in use: " + PORT, false);
+    }
+    server = new Thread(ServerRunner::run, "ServerRunnerTest");
+    server.setDaemon(true);
+    server.start();
+    long end = System.currentTimeMillis() + WAIT;
+    String answer = null;
+    while (answer == null && System.currentTimeMillis() < end) {
+      Thread.sleep(100);
+      answer = Run.send("EXIT");
+    }
+    assertNotNull("RunServer not started", answer);
+  }
+
+  @AfterClass
+  public static void tearDownClass() throws Exception {
+    if (server != null) {
+      Run.stop();
+      server.join(WAIT);
+    }
+  }
+
+  private static String folderPath(File aFolder) {
+    // the server maps /home/... to the user home and /x/... to drive x:
+    return aFolder.getAbsolutePath();
+  }
+
+  @Test
+  public void scriptsThenRunOnNewConnections() throws Exception {
+    File scripts = folder.newFolder("scripts");
+    File script = new File(scripts, "probe.sikuli");
+    assertTrue(script.mkdir());
+    assertTrue(new File(script, "probe.js").createNewFile());
+
+    String answer = Run.send("SCRIPTS" + folderPath(scripts));
+    assertTrue(answer, answer.startsWith("isok"));
+
+    answer = Run.send("RUN/probe");
+    assertFalse(answer, answer.contains("not found"));
+    assertTrue(answer, answer.contains("runScript: returned"));
+
+    answer = Run.send("RUN/missing");
+    assertTrue(answer, answer.contains("script not found"));
+  }
+
+  @Test
+  public void imagesStayOnTheImagePath() throws Exception {
+    File images = folder.newFolder("images");
+
+    String answer = Run.send("IMAGES" + folderPath(images));
+    assertTrue(answer, answer.startsWith("isok"));
+    assertTrue(ImagePath.has(images.getAbsolutePath()));
+  }
+}